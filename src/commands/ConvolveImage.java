@@ -0,0 +1,55 @@
+package commands;
+
+import controllers.ImageUtil;
+import model.Convolution;
+import model.IPicture;
+import model.ImageProcessorModel;
+
+/**
+ * This class represents a Convolve Command. When executed, this command filters a copy of the
+ * current image with a kernel given by the user, either as a kernel file or as weights separated
+ * by commas, and adds the result to the model.
+ */
+public class ConvolveImage implements Command {
+  private IPicture currImage;
+  private String returnName;
+  private ImageProcessorModel model;
+  private Convolution kernel;
+
+  /**
+   * Creates a new Convolve command that takes in the current model, the kernel to filter with,
+   * the image to filter, and the name to add the new picture to the model with.
+   *
+   * @param model      represents the current storage model
+   * @param kernel     represents the name of a kernel file, or the weights of the kernel
+   * @param currImage  represents the image that is being filtered
+   * @param returnName represents the new name of the image
+   * @throws IllegalArgumentException if the model, kernel, picture, or return name is null, or if
+   *                                  the kernel is not a square with an odd width
+   */
+  public ConvolveImage(ImageProcessorModel model, String kernel, IPicture currImage,
+                       String returnName) throws IllegalArgumentException {
+    if ((model == null) || (kernel == null) || (currImage == null) || (returnName == null)) {
+      throw new IllegalArgumentException("This command cannot have a null model, kernel, "
+              + "Picture, or return name!");
+    }
+    this.kernel = ImageUtil.readKernel(kernel);
+    this.model = model;
+    this.currImage = currImage;
+    this.returnName = returnName;
+  }
+
+  @Override
+  public void execute() {
+    IPicture newPicture = currImage.clone();
+    newPicture.filter(this.kernel);
+    model.addPicture(newPicture, returnName);
+  }
+
+  @Override
+  public String outputMessage() {
+    int width = 2 * this.kernel.getRadius() + 1;
+    return "Convolved picture with a " + width + "x" + width + " kernel and saved as "
+            + returnName + "\n";
+  }
+}
@@ -0,0 +1,61 @@
+package commands;
+
+import java.util.InputMismatchException;
+
+import model.GaussianBlur;
+import model.IPicture;
+import model.ImageProcessorModel;
+
+/**
+ * This class represents a Gaussian Blur Command. When executed, this command adds a copy of the
+ * current image blurred by the given strength, which is the standard deviation of the blur in
+ * pixels. Stronger blurs take no longer than weaker ones.
+ */
+public class GaussianBlurImage implements Command {
+  private IPicture currImage;
+  private GaussianBlur blur;
+  private String returnName;
+  private ImageProcessorModel model;
+
+  /**
+   * Creates a new GaussianBlurImage command that takes in the current model, the strength of the
+   * blur, the image to blur, and the name to add the new picture to the model with.
+   *
+   * @param model      represents the current storage model
+   * @param sigma      represents the standard deviation of the blur, in pixels
+   * @param currImage  represents the image that is being blurred
+   * @param returnName represents the new name of the image
+   * @throws IllegalArgumentException if the model, strength, Picture, or return name are null,
+   *                                  or if the strength is not a positive number
+   * @throws InputMismatchException   if the strength is not a valid decimal value
+   */
+  public GaussianBlurImage(ImageProcessorModel model, String sigma, IPicture currImage,
+                           String returnName)
+          throws IllegalArgumentException, InputMismatchException {
+    if ((model == null) || (sigma == null) || (currImage == null) || (returnName == null)) {
+      throw new IllegalArgumentException("This command cannot have a null model, strength, "
+              + "Picture, or return name!");
+    }
+    try {
+      this.blur = GaussianBlur.of(Double.parseDouble(sigma));
+    } catch (NumberFormatException ex) {
+      throw new InputMismatchException("Given strength must be a valid double");
+    }
+    this.model = model;
+    this.currImage = currImage;
+    this.returnName = returnName;
+  }
+
+  @Override
+  public void execute() {
+    IPicture newPicture = currImage.clone();
+    newPicture.gaussianBlur(this.blur.getSigma());
+    model.addPicture(newPicture, returnName);
+  }
+
+  @Override
+  public String outputMessage() {
+    return "Blurred picture with a strength of " + this.blur.getSigma() + " and saved as "
+            + returnName + "\n";
+  }
+}
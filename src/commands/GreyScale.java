@@ -1,5 +1,6 @@
 package commands;
 
+import model.GreyscaleType;
 import model.IPicture;
 import model.ImageProcessorModel;
 
@@ -9,7 +10,7 @@ import model.ImageProcessorModel;
  */
 public class GreyScale implements Command {
   private IPicture currImage;
-  private String type;
+  private GreyscaleType type;
   private String returnName;
   private ImageProcessorModel model;
 
@@ -24,6 +25,7 @@ public class GreyScale implements Command {
    *                   luma, value, or intensity components)
    * @param returnName represents the new name of the image
    * @throws IllegalArgumentException if the model, Picture, greyscale type, or return Name is null
+   *     or the greyscale type is not a valid type
    */
   public GreyScale(ImageProcessorModel model, IPicture currImage,
                    String type, String returnName) throws IllegalArgumentException {
@@ -32,7 +34,7 @@ public class GreyScale implements Command {
               + "return name!");
     }
     this.currImage = currImage;
-    this.type = type;
+    this.type = GreyscaleType.fromName(type);
     this.returnName = returnName;
     this.model = model;
   }
@@ -46,6 +48,6 @@ public class GreyScale implements Command {
 
   @Override
   public String outputMessage() {
-    return "Converted to " + type + " greyscale and saved as " + returnName + "\n";
+    return "Converted to " + type.getName() + " greyscale and saved as " + returnName + "\n";
   }
 }
@@ -1,6 +1,7 @@
 package commands;
 
 import controllers.ImageUtil;
+import model.IPicture;
 import model.ImageProcessorModel;
 
 /**
@@ -37,7 +38,12 @@ public class LoadImage implements Command {
   public void execute() {
     String fileType = name.substring(name.length() - 3);
 
-    if (fileType.equals("ppm")) {
+    if (fileType.equals("ppm") && ImageUtil.isLargePPM(name)) {
+      // The model stores its own copy, so the backing file of the loaded picture can go now
+      IPicture loaded = ImageUtil.readTiledPPM(name);
+      model.addPicture(loaded, returnName);
+      loaded.release();
+    } else if (fileType.equals("ppm")) {
       model.addPicture(ImageUtil.readPPM(name), returnName);
     } else {
       model.addPicture(ImageUtil.readAll(name), returnName);
@@ -1,57 +1,156 @@
 package commands;
 
+import java.util.InputMismatchException;
+import java.util.function.BiFunction;
+
 import controllers.ImageUtil;
+import model.GaussianBlur;
 import model.IPicture;
 import model.ImageProcessorModel;
+import model.Mask;
+import model.PictureStorageModel;
 
 /**
- * Takes in a black and white image of the same dimensions representing a mask. Given a filter to
- * apply, this class applies the transformation only in the black areas of the masked image.
+ * Takes in a black and white image of the same dimensions representing a mask. Given an
+ * operation to apply, this class applies the operation only in the white areas of the masked
+ * image. The operation is run by its own command on just the part of the image the mask needs,
+ * so a small mask costs little no matter how large the image is. Masks are decoded once and
+ * kept, so a script that reuses a mask file does not read it again.
  */
 public class MaskImage implements Command {
+  // The name the operation saves its result under in its own model
+  private static final String RESULT = "masked";
+
   private IPicture currImage;
   private String returnName;
   private ImageProcessorModel model;
-  private IPicture maskArray;
+  private Mask mask;
+  private String operation;
+  private int reach;
+  private BiFunction<ImageProcessorModel, IPicture, Command> edit;
 
   /**
-   * Creates a new Filter command that takes in the current model,
-   * the name of the image to duplicate, and the return name to store the photo with.
+   * Creates a new Mask command that takes in the current model, the image to brighten, the name
+   * of the mask image and the return name to store the photo with. The white areas of the mask
+   * are brightened by 50.
    *
-   * @param model      represents the current storage model
-   * @param currImage  represents the image that the user wants to be flipped
-   * @param returnName represents the new name of the image
-   * @throws IllegalArgumentException if the model, picture, or return name is null
+   * @param model        represents the current storage model
+   * @param currImage    represents the image that the user wants to be masked
+   * @param maskFileName the name of the mask image file
+   * @param returnName   represents the new name of the image
+   * @throws IllegalArgumentException if the model, picture, mask, or return name is null
    */
   public MaskImage(ImageProcessorModel model,
                      IPicture currImage, String maskFileName, String returnName)
           throws IllegalArgumentException {
-    if ((model == null) || (currImage == null) || (returnName == null)) {
-      throw new IllegalArgumentException("This command cannot have a null model, Picture, or "
-              + "return name!");
+    this(model, currImage, maskFileName, "brighten", "50", returnName);
+  }
+
+  /**
+   * Creates a new Mask command that applies one of the other commands to the white areas of a
+   * mask image. The operation is named the same as its command in a script: brighten, darken,
+   * value-component, luma-component, intensity-component, red-component, green-component,
+   * blue-component, sepia, blur, sharpen or gaussian-blur.
+   *
+   * @param model        represents the current storage model
+   * @param currImage    represents the image that the user wants to be masked
+   * @param maskFileName the name of the mask image file
+   * @param operation    the name of the operation to apply
+   * @param value        the value the operation takes (for brighten, darken and gaussian-blur),
+   *                     or null
+   * @param returnName   represents the new name of the image
+   * @throws IllegalArgumentException if the model, picture, mask, operation or return name is
+   *                                  null, the operation cannot be masked, or its value is not
+   *                                  valid
+   * @throws InputMismatchException   if the value of brighten, darken or gaussian-blur is not a
+   *                                  number
+   */
+  public MaskImage(ImageProcessorModel model, IPicture currImage, String maskFileName,
+                   String operation, String value, String returnName)
+          throws IllegalArgumentException, InputMismatchException {
+    if ((model == null) || (currImage == null) || (returnName == null)
+            || (maskFileName == null) || (operation == null)) {
+      throw new IllegalArgumentException("This command cannot have a null model, Picture, mask, "
+              + "operation or return name!");
     }
     this.model = model;
     this.currImage = currImage;
     this.returnName = returnName;
+    this.operation = operation;
+    this.reach = 0;
 
-    System.out.println(maskFileName);
-    String fileType = maskFileName.substring(maskFileName.length() - 3);
-    if (fileType.equals("ppm")) {
-      maskArray = ImageUtil.readPPM(maskFileName);
-    } else {
-      maskArray = ImageUtil.readAll(maskFileName);
+    // Values are checked the same way their commands check them, so a bad value is found right
+    // away without making a command
+    switch (operation) {
+      case "brighten":
+      case "darken":
+        try {
+          Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+          throw new InputMismatchException("Given value must be an integer!");
+        }
+        String type = operation.equals("brighten") ? "b" : "d";
+        this.edit = (m, p) -> new BrightenImage(m, value, type, p, RESULT);
+        break;
+      case "value-component":
+      case "luma-component":
+      case "intensity-component":
+      case "red-component":
+      case "green-component":
+      case "blue-component":
+        String component = operation.substring(0, operation.indexOf('-'));
+        this.edit = (m, p) -> new GreyScale(m, p, component, RESULT);
+        break;
+      case "sepia":
+        this.edit = (m, p) -> new ColorTransform(m, p, "sepia", RESULT);
+        break;
+      case "blur":
+      case "sharpen":
+        this.reach = operation.equals("blur") ? 1 : 2;
+        this.edit = (m, p) -> new FilterImage(m, p, RESULT, operation);
+        break;
+      case "gaussian-blur":
+        if (value == null) {
+          throw new IllegalArgumentException("A gaussian blur needs a strength!");
+        }
+        try {
+          this.reach = GaussianBlur.of(Double.parseDouble(value)).getReach();
+        } catch (NumberFormatException ex) {
+          throw new InputMismatchException("Given strength must be a valid double");
+        }
+        this.edit = (m, p) -> new GaussianBlurImage(m, value, p, RESULT);
+        break;
+      default:
+        throw new IllegalArgumentException("Cannot apply " + operation + " through a mask!");
     }
+    this.mask = ImageUtil.readMask(maskFileName);
+  }
+
+  /**
+   * Checks if a masked operation is followed by a value in a script.
+   *
+   * @param operation the name of the operation
+   * @return true if the operation takes a value
+   */
+  public static boolean takesValue(String operation) {
+    return operation.equals("brighten") || operation.equals("darken")
+            || operation.equals("gaussian-blur");
   }
 
   @Override
   public void execute() {
     IPicture newPicture = currImage.clone();
-    newPicture.maskImage(maskArray);
+    newPicture.applyMasked(this.mask, this.reach, region -> {
+      ImageProcessorModel scratch = new PictureStorageModel();
+      this.edit.apply(scratch, region).execute();
+      return scratch.getPicture(RESULT);
+    });
     model.addPicture(newPicture, returnName);
   }
 
   @Override
   public String outputMessage() {
-    return "Applied filter to valid regions in mask and saved as " + returnName + "\n";
+    return "Applied " + this.operation + " to valid regions in mask and saved as " + returnName
+            + "\n";
   }
 }
@@ -4,10 +4,12 @@ import java.util.InputMismatchException;
 
 import model.IPicture;
 import model.ImageProcessorModel;
+import model.ResampleFilter;
 
 /**
  * This class represents a Scale Command. When executed, this command adds a downscaled version
- * of the current image given a height and width ratio.
+ * of the current image given a height and width ratio. Given a resampling filter, the image can
+ * also be made larger, and every pixel of it is weighed by the filter.
  */
 public class ScaleImage implements Command {
   private IPicture currImage;
@@ -15,6 +17,7 @@ public class ScaleImage implements Command {
   private double heightRatio;
   private String returnName;
   private ImageProcessorModel model;
+  private ResampleFilter filter;
 
   /**
    * Creates a new ScaleImage command that takes in the current model, the
@@ -46,18 +49,71 @@ public class ScaleImage implements Command {
     }
     this.returnName = returnName;
     this.model = model;
+    this.filter = null;
+  }
+
+  /**
+   * Creates a new ScaleImage command that resizes the image by the given ratios using one of the
+   * resampling filters, "box", "bilinear" or "lanczos". Ratios above one make the image larger.
+   *
+   * @param model      represents the current storage model
+   * @param filter     represents the name of the filter to resample with
+   * @param width      represents the width ratio of the scaled image
+   * @param height     represents the height ratio of the scaled image
+   * @param currImage  represents the image that is being resized
+   * @param returnName represents the new name of the image
+   * @throws IllegalArgumentException if any argument is null, the filter is not known, or the
+   *                                  scaled image would be less than one pixel wide or tall
+   * @throws InputMismatchException   if the width and height ratio are not valid decimal values
+   */
+  public ScaleImage(ImageProcessorModel model, String filter, String width, String height,
+                    IPicture currImage, String returnName)
+          throws IllegalArgumentException, InputMismatchException {
+    this(model, width, height, currImage, returnName);
+    if (filter == null) {
+      throw new IllegalArgumentException("This command cannot have a null filter!");
+    }
+    this.filter = ResampleFilter.fromName(filter);
+    if ((this.scaledWidth() < 1) || (this.scaledHeight() < 1)) {
+      throw new IllegalArgumentException("The scaled image must be at least one pixel wide and "
+              + "tall!");
+    }
+  }
+
+  /**
+   * Computes the width of the scaled image.
+   *
+   * @return the width in pixels
+   */
+  private int scaledWidth() {
+    return (int) (this.currImage.getWidth() * this.widthRatio);
+  }
+
+  /**
+   * Computes the height of the scaled image.
+   *
+   * @return the height in pixels
+   */
+  private int scaledHeight() {
+    return (int) (this.currImage.getHeight() * this.heightRatio);
   }
 
   @Override
   public void execute() {
-    IPicture newPicture = currImage.clone();
-    newPicture = newPicture.downSize(this.heightRatio, this.widthRatio);
+    IPicture newPicture;
+    if (this.filter == null) {
+      newPicture = currImage.clone().downSize(this.heightRatio, this.widthRatio);
+    } else {
+      // Resizing only reads the current image, so it does not need a copy
+      newPicture = currImage.resize(this.scaledWidth(), this.scaledHeight(), this.filter);
+    }
     model.addPicture(newPicture, returnName);
   }
 
   @Override
   public String outputMessage() {
+    String using = (this.filter == null) ? "" : " using " + this.filter.getName();
     return "Scaled image by w: " + this.widthRatio + " height: "
-            + this.heightRatio + " and saved as " + returnName + "\n";
+            + this.heightRatio + using + " and saved as " + returnName + "\n";
   }
 }
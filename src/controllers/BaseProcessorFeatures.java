@@ -1,13 +1,20 @@
 package controllers;
 
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
 import commands.BrightenImage;
 import commands.ColorTransform;
 import commands.Command;
 import commands.FilterImage;
+import commands.GaussianBlurImage;
 import commands.GreyScale;
 import commands.HorizontalFlip;
 import commands.ScaleImage;
 import commands.VerticalFlip;
+import model.Channel;
+import model.ColorHistogram;
 import model.IPicture;
 import model.ImageProcessorModel;
 import view.ImageProcessorGUIView;
@@ -17,10 +24,22 @@ import view.ImageProcessorGUIView;
  * base implementation takes in a model and GUI view and communicated data between them. When the
  * view calls on this class, it will tell the model how to update, and transmit the updated model
  * data back to the view to draw.
+ *
+ * <p>For images that are much larger than the number of histogram samples, the histogram is first
+ * drawn from a sample of the pixels and then redrawn once the exact histogram has been counted
+ * in the background, so the view never waits for a full pass over a very large image.</p>
  */
 public class BaseProcessorFeatures implements Features {
+  // The histogram drawn right away is within half a percent of the exact one, 95% of the time
+  public static final double DEFAULT_HISTOGRAM_ERROR = 0.005;
+  // Images with fewer pixels than this many times the samples are counted exactly right away
+  private static final int SAMPLED_RATIO = 64;
+
   private ImageProcessorModel model;
   private ImageProcessorGUIView view;
+  private final int histogramSamples;
+  // Each zoom level shows the image at half the size of the one before it
+  private int zoomLevel = 0;
 
   /**
    * Creates a new base features object with a given model and view. The view will open to
@@ -30,8 +49,26 @@ public class BaseProcessorFeatures implements Features {
    * @param view The gui view the user will interact with
    */
   public BaseProcessorFeatures(ImageProcessorModel model, ImageProcessorGUIView view) {
+    this(model, view, ColorHistogram.samplesFor(DEFAULT_HISTOGRAM_ERROR));
+  }
+
+  /**
+   * Creates a new base features object with a given model and view, which estimates the
+   * histogram of a very large image from the given number of pixels before counting it exactly.
+   * @param model The model to use with this controller
+   * @param view The gui view the user will interact with
+   * @param histogramSamples The number of pixels the first histogram of a large image is drawn
+   *                         from, see {@link ColorHistogram#samplesFor(double)}
+   * @throws IllegalArgumentException if the number of samples is less than one
+   */
+  public BaseProcessorFeatures(ImageProcessorModel model, ImageProcessorGUIView view,
+                               int histogramSamples) throws IllegalArgumentException {
+    if (histogramSamples < 1) {
+      throw new IllegalArgumentException("A histogram needs at least one sample!");
+    }
     this.model = model;
     this.view = view;
+    this.histogramSamples = histogramSamples;
   }
 
   @Override
@@ -48,14 +85,78 @@ public class BaseProcessorFeatures implements Features {
     return model.getPicture(model.getLastCount());
   }
 
+  /**
+   * Sends the current IPicture to the view at the current zoom level. A zoomed out image is read
+   * from the mipmap pyramid of the IPicture, which is kept until the image changes, so zooming
+   * in and out again does not shrink the image again.
+   */
+  private void showImage() {
+    IPicture picture = this.currImage();
+    int level = Math.min(this.zoomLevel, picture.pyramidLevels() - 1);
+    if (level == 0) {
+      view.setImage(picture.getBufferedImage());
+    } else {
+      view.setImage(picture.pyramidLevel(level).getBufferedImage());
+    }
+  }
+
   /**
    * Notifies the view to refresh the histogram currently being displayed. Passes the current
    * color values of the image from the model, to the view so that it is able
-   * to accurately draw the updated histogram.
+   * to accurately draw the updated histogram. Every color is counted in the same pass over the
+   * image, an image that has not changed keeps its counts, and after a brighten the counts are
+   * moved instead of counted again. A very large image whose counts are not known yet is drawn
+   * from a sample first, and redrawn once it has been counted.
    */
   private void refreshHistogram() {
-    view.drawHistogram(this.model.colorValues("red"), this.model.colorValues("green"),
-            this.model.colorValues("blue"));
+    IPicture picture = this.currImage();
+    long pixels = (long) picture.getWidth() * picture.getHeight();
+    if (pixels <= (long) SAMPLED_RATIO * this.histogramSamples) {
+      view.drawHistogram(picture.colorValues(Channel.RED), picture.colorValues(Channel.GREEN),
+              picture.colorValues(Channel.BLUE));
+      return;
+    }
+    ColorHistogram estimate = picture.approximateHistogram(this.histogramSamples);
+    this.drawHistogram(estimate);
+    if (!estimate.isExact()) {
+      this.refineHistogram(picture);
+    }
+  }
+
+  /**
+   * Draws the colors of a histogram in the view.
+   * @param histogram The histogram to draw
+   */
+  private void drawHistogram(ColorHistogram histogram) {
+    view.drawHistogram(histogram.get(Channel.RED), histogram.get(Channel.GREEN),
+            histogram.get(Channel.BLUE));
+  }
+
+  /**
+   * Counts the exact histogram of a picture in the background, and draws it if the picture is
+   * still the one displayed once the count is done. Commands always change a clone of the
+   * displayed picture, so the picture is only read while it is being counted.
+   * @param picture The picture to count
+   */
+  private void refineHistogram(IPicture picture) {
+    new SwingWorker<ColorHistogram, Void>() {
+      @Override
+      protected ColorHistogram doInBackground() {
+        return picture.histogram();
+      }
+
+      @Override
+      protected void done() {
+        try {
+          ColorHistogram exact = this.get();
+          if (picture == currImage()) {
+            drawHistogram(exact);
+          }
+        } catch (InterruptedException | ExecutionException e) {
+          // The picture was released before it was counted, so the estimate stays
+        }
+      }
+    }.execute();
   }
 
   @Override
@@ -71,7 +172,7 @@ public class BaseProcessorFeatures implements Features {
       }
 
       // Get the buffered image of the newly added to draw
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     }
   }
@@ -92,7 +193,7 @@ public class BaseProcessorFeatures implements Features {
         c = new HorizontalFlip(model, this.currImage(), model.getCurrCount());
       }
       c.execute();
-      view.setImage(model.getPicture(model.getLastCount()).getBufferedImage());
+      this.showImage();
     } else {
       view.pictureError();
     }
@@ -107,7 +208,7 @@ public class BaseProcessorFeatures implements Features {
       String amount = String.valueOf(value);
       Command c = new BrightenImage(model, amount, type, this.currImage(), model.getCurrCount());
       c.execute();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     } else {
       view.pictureError();
@@ -120,7 +221,21 @@ public class BaseProcessorFeatures implements Features {
     if (!(model.getCurrCount().equals("0"))) {
       Command c = new FilterImage(model, this.currImage(), model.getCurrCount(), type);
       c.execute();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
+      this.refreshHistogram();
+    } else {
+      view.pictureError();
+    }
+  }
+
+  @Override
+  public void gaussianBlur(int strength) {
+    // Checks there is an image loaded, otherwise have view display pop up to notify user
+    if (!(model.getCurrCount().equals("0"))) {
+      Command c = new GaussianBlurImage(model, String.valueOf(strength), this.currImage(),
+              model.getCurrCount());
+      c.execute();
+      this.showImage();
       this.refreshHistogram();
     } else {
       view.pictureError();
@@ -133,7 +248,7 @@ public class BaseProcessorFeatures implements Features {
     if (!(model.getCurrCount().equals("0"))) {
       Command c = new GreyScale(model, this.currImage(), type, model.getCurrCount());
       c.execute();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     } else {
       view.pictureError();
@@ -146,7 +261,7 @@ public class BaseProcessorFeatures implements Features {
     if (!(model.getCurrCount().equals("0"))) {
       Command c = new ColorTransform(model, this.currImage(), type, model.getCurrCount());
       c.execute();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     } else {
       view.pictureError();
@@ -157,7 +272,7 @@ public class BaseProcessorFeatures implements Features {
   public void undo() {
     if (!(model.getCurrCount().equals("1"))) {
       model.undo();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     }
   }
@@ -168,10 +283,22 @@ public class BaseProcessorFeatures implements Features {
       Command c = new ScaleImage(model, heightRatio, widthRatio,
               this.currImage(), model.getCurrCount());
       c.execute();
-      view.setImage(this.currImage().getBufferedImage());
+      this.showImage();
       this.refreshHistogram();
     } else {
       view.pictureError();
     }
   }
+
+  @Override
+  public void zoom(int level) throws IllegalArgumentException {
+    if (level < 0) {
+      throw new IllegalArgumentException("The zoom level cannot be negative!");
+    }
+    this.zoomLevel = level;
+    // With no image loaded the level is kept for the first one
+    if (!(model.getCurrCount().equals("0"))) {
+      this.showImage();
+    }
+  }
 }
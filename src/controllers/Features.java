@@ -49,6 +49,13 @@ public interface Features {
    */
   void filter(String type);
 
+  /**
+   * Blurs a Picture by a given strength, the standard deviation of the blur in pixels. Calls the
+   * model's method on the current IPicture object the view is displaying.
+   * @param strength the amount to blur the image by
+   */
+  void gaussianBlur(int strength);
+
   /**
    * Applies a greyscale to a Picture based on the given type. Calls the model's method
    * on the current IPicture object the view is displaying.
@@ -70,4 +77,12 @@ public interface Features {
   void undo();
 
   void downscaleImage(String heightRatio, String widthRatio);
+
+  /**
+   * Shows the current IPicture at a smaller size, halving the width and height once for every
+   * zoom level. The view keeps showing the same level for every later image until it is changed.
+   * @param level The zoom level, 0 to show the image at full size
+   * @throws IllegalArgumentException if the level is negative
+   */
+  void zoom(int level) throws IllegalArgumentException;
 }
@@ -1,6 +1,9 @@
 package controllers;
 
+import model.ColorHistogram;
+import model.FixedPoint;
 import model.ImageProcessorModel;
+import model.Parallelism;
 import model.PictureStorageModel;
 import view.ImageProcessorGUIView;
 import view.GUIView;
@@ -15,12 +18,40 @@ public class ImageProcessorGUIMain {
   /**
    * The main method to run the GUI view. Creates a new GUI controller with an empty model
    * and the default GUI view.
-   * @param args optional input for this application
+   * @param args optional input for this application, -threads followed by a number lets
+   *             operations on an image use that many threads, and -fixed applies color
+   *             transformations and filters with fixed point math, and -histogram-error
+   *             followed by a fraction sets how far the first histogram drawn for a very
+   *             large image may be off (0.01 is 1% of the pixels)
    */
   public static void main(String[] args) {
+    int histogramSamples = ColorHistogram.samplesFor(
+            BaseProcessorFeatures.DEFAULT_HISTOGRAM_ERROR);
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-threads") && (i + 1 < args.length)) {
+        try {
+          Parallelism.setLevel(Integer.parseInt(args[i + 1]));
+        } catch (IllegalArgumentException e) {
+          System.out.println("ERROR: Must input a valid number of threads after -threads");
+          return;
+        }
+        i++;
+      } else if (args[i].equals("-fixed")) {
+        FixedPoint.setEnabled(true);
+      } else if (args[i].equals("-histogram-error") && (i + 1 < args.length)) {
+        try {
+          histogramSamples = ColorHistogram.samplesFor(Double.parseDouble(args[i + 1]));
+        } catch (IllegalArgumentException e) {
+          System.out.println("ERROR: Must input a fraction between 0 and 1 after "
+                  + "-histogram-error");
+          return;
+        }
+        i++;
+      }
+    }
     ImageProcessorModel model = new PictureStorageModel();
     ImageProcessorGUIView view = new GUIView();
-    Features baseFeatures = new BaseProcessorFeatures(model, view);
+    Features baseFeatures = new BaseProcessorFeatures(model, view, histogramSamples);
     GUIController controller = new GUIController(baseFeatures);
 
     controller.runProcessor();
@@ -7,6 +7,8 @@ import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import model.FixedPoint;
+import model.Parallelism;
 import model.PictureStorageModel;
 import model.ImageProcessorModel;
 import view.ImageProcessorGUIView;
@@ -25,20 +27,51 @@ public class ImageProcessorMain {
    * This is the main class where the user can run commands relating to image processing. If
    * -file is given, the program runs the contents inside the file and quits. If -text is given,
    * the user can input commands in the command line. If no arguments are given, the GUI view
-   * will open and run based on user input.
+   * will open and run based on user input. If -offheap is given before the other arguments, the
+   * pixels of every stored image are kept outside of the Java heap. If -threads is given before
+   * the other arguments followed by a number, operations on an image use that many threads. If
+   * -fixed is given before the other arguments, color transformations and filters use whole
+   * number math, which is faster but can make a color one higher or lower.
    *
    * @param args represents the list of commands that are inputted by the user. If the user
    *             inputs -file, the next String will be the filename for the command script file.
    *             If the user enters -text, the text scripting Image processor will run. If
    *             an invalid command is given it will print an error message and end the program.
+   *             -offheap can be given first to store image pixels outside of the Java heap,
+   *             -threads followed by a number can be given first to use that many threads,
+   *             and -fixed can be given first to use fixed point math.
    */
   public static void main(String[] args) throws IOException {
     ImageProcessorModel model = new PictureStorageModel();
     ImageProcessorView textView = new TextView(System.out);
     Readable rd = new BufferedReader(new InputStreamReader(System.in));
 
-    if (args.length > 0) {
-      for (int i = 0; i < args.length; i++) {
+    int firstArg = 0;
+    while (firstArg < args.length) {
+      if (args[firstArg].equals("-offheap")) {
+        // Keep the pixels of every stored image outside of the Java heap
+        model = new PictureStorageModel(true);
+        firstArg += 1;
+      } else if (args[firstArg].equals("-threads")) {
+        // Let operations split each image between the given number of threads
+        try {
+          Parallelism.setLevel(Integer.parseInt(args[firstArg + 1]));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+          System.out.println("ERROR: Must input a valid number of threads after -threads");
+          return;
+        }
+        firstArg += 2;
+      } else if (args[firstArg].equals("-fixed")) {
+        // Apply color transformations and filters with whole number math
+        FixedPoint.setEnabled(true);
+        firstArg += 1;
+      } else {
+        break;
+      }
+    }
+
+    if (args.length > firstArg) {
+      for (int i = firstArg; i < args.length; i++) {
         // If file is given try to get the next, if there is no next output message and quit
         if (args[i].equals("-file")) {
           try {
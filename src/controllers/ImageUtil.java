@@ -1,96 +1,163 @@
 package controllers;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
-import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.Writer;
 import java.io.FileInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
+import model.Convolution;
+import model.HeapRaster;
 import model.IPicture;
-import model.IPixel;
+import model.Mask;
+import model.Parallelism;
+import model.PixelRaster;
+import model.TiledPicture;
+import model.TiledRaster;
 import model.TransparentPicture;
 import model.AllPicture;
-import model.RGBAPixel;
-import model.RGBPixel;
 
 /**
  * This class contains utility methods to read an image from file and store its data as
  * an IPicture object.
  */
 public class ImageUtil {
+  // Number of rows of a PPM file formatted before they are written out
+  private static final int PPM_ROWS_PER_BLOCK = 256;
 
   /**
-   * Read an image file in the PPM format and output data as a single PPMPicture.
+   * Read an image file in the PPM format and output data as a single PPMPicture. The bytes of
+   * the file are parsed directly into the pixels, and a large file is parsed in chunks at the
+   * same time when more than one thread may be used.
    *
    * @param filename the path of the file.
+   * @throws IllegalArgumentException if the file cannot be read or is not a valid PPM file
    */
   public static AllPicture readPPM(String filename) throws IllegalArgumentException {
-    Scanner sc;
+    try (FileInputStream file = new FileInputStream(filename)) {
+      PpmParser parser = new PpmParser(file);
+      if (!parser.nextWord().equals("P3")) {
+        System.out.println("Invalid PPM file: plain RAW file should begin with P3");
+      }
 
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
+      int width = parser.nextInt();
+      int height = parser.nextInt();
+      int maxValue = parser.nextInt();
+      // Pictures store 8 bits per color value, so scale down files with a larger max value
+      int storedMax = Math.min(maxValue, 255);
+      HeapRaster raster = new HeapRaster(width, height);
+      FileChannel channel = file.getChannel();
+      long start = parser.offset();
+      if (PpmParser.worthSplitting(channel.size() - start, width, height)) {
+        PpmParser.readChunks(channel, start, raster, maxValue, storedMax);
+      } else {
+        parser.readPixels(raster, maxValue, storedMax);
+      }
+      return new AllPicture(width, height, storedMax, raster);
+    } catch (IOException e) {
       throw new IllegalArgumentException("Given file is not formatted properly!");
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
+  }
+
+  /**
+   * Checks if a PPM file is too large to comfortably load into memory, and should be read as a
+   * TiledPicture instead. A plain PPM file takes several bytes of text per color value, so the
+   * loaded pixels are much smaller than the file, and a file is only considered large once it
+   * takes more than a quarter of the memory available to the program.
+   *
+   * @param filename the path of the file
+   * @return true if the file should be read with {@link #readTiledPPM(String)}
+   */
+  public static boolean isLargePPM(String filename) {
+    return new File(filename).length() > Runtime.getRuntime().maxMemory() / 4;
+  }
+
+  /**
+   * Read an image file in the PPM format into a TiledPicture. The file is streamed one color
+   * value at a time directly into the tiles of the picture, so neither the text of the file nor
+   * the full image is ever held in memory. It is parsed the same way as by
+   * {@link #readPPM(String)}, one block of bytes at a time.
+   *
+   * @param filename the path of the file.
+   * @return a TiledPicture holding every pixel of the file
+   * @throws IllegalArgumentException if the file cannot be read or is not a valid PPM file
+   */
+  public static TiledPicture readTiledPPM(String filename) throws IllegalArgumentException {
+    try (InputStream file = new FileInputStream(filename)) {
+      PpmParser parser = new PpmParser(file);
+      if (!parser.nextWord().equals("P3")) {
+        System.out.println("Invalid PPM file: plain RAW file should begin with P3");
       }
-    }
 
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-    String token;
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
+      int width = parser.nextInt();
+      int height = parser.nextInt();
+      int maxValue = parser.nextInt();
+      // Pictures store 8 bits per color value, so scale down files with a larger max value
+      int storedMax = Math.min(maxValue, 255);
+      TiledRaster raster = new TiledRaster(width, height);
 
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-    RGBPixel[][] pictArray = new RGBPixel[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pictArray[i][j] = new RGBPixel(r, g, b);
+      try {
+        parser.readPixels(raster, maxValue, storedMax);
+      } catch (IllegalArgumentException | IOException e) {
+        raster.release();
+        throw e;
       }
+      return new TiledPicture(width, height, storedMax, raster);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Given file is not formatted properly!");
     }
-    return new AllPicture(width, height, maxValue, pictArray);
   }
 
   /**
    * Saves a picture by outputting all the data of a IPicture object into PPM format. If the
    * data includes alpha values, the data is first converted to RGB values then saved.
    *
-   * @param width      The width of the saved picture
-   * @param height     The height of the saved picture
-   * @param max        The max color value for the picture
-   * @param pixelArray All the pixel data for this IPicture
-   * @param fileName   the file name to save the file to
+   * @param width    The width of the saved picture
+   * @param height   The height of the saved picture
+   * @param max      The max color value for the picture
+   * @param raster   All the packed pixel data for this IPicture
+   * @param fileName the file name to save the file to
    */
   public static void savePPM(int width, int height, int max,
-                             IPixel[][] pixelArray, String fileName) {
+                             PixelRaster raster, String fileName) {
     try {
-      FileWriter myWriter = new FileWriter(fileName);
+      Writer myWriter = new BufferedWriter(new FileWriter(fileName));
       myWriter.write("P3" + "\n");
       myWriter.write(width + " ");
       myWriter.write(height + " ");
       myWriter.write(max + " " + "\n");
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          myWriter.write(pixelArray[i][j].toString());
+      // Rows are formatted a block at a time, so the text of a large image is never all in
+      // memory at once but the rows of a block can be formatted at the same time
+      String[] rowText = new String[Math.min(height, PPM_ROWS_PER_BLOCK)];
+      for (int block = 0; block < height; block += PPM_ROWS_PER_BLOCK) {
+        int first = block;
+        int count = Math.min(PPM_ROWS_PER_BLOCK, height - block);
+        Parallelism.forEachBand(count, (start, end) -> {
+          int[] row = new int[width];
+          StringBuilder text = new StringBuilder();
+          for (int i = start; i < end; i++) {
+            raster.getRow(first + i, row);
+            text.setLength(0);
+            for (int j = 0; j < width; j++) {
+              int argb = row[j];
+              text.append(PixelRaster.red(argb)).append(' ')
+                      .append(PixelRaster.green(argb)).append(' ')
+                      .append(PixelRaster.blue(argb)).append(' ');
+            }
+            rowText[i] = text.toString();
+          }
+        }, raster);
+        for (int i = 0; i < count; i++) {
+          myWriter.write(rowText[i]);
         }
       }
       myWriter.close();
@@ -100,6 +167,53 @@ public class ImageUtil {
     }
   }
 
+  /**
+   * Reads the weights of a square kernel, either from the file with the given name or, if there
+   * is no such file, from the given text itself with the weights separated by commas (ex:
+   * 0,0.2,0,0.2,0.2,0.2,0,0.2,0). The weights are listed row by row, separated by commas or
+   * whitespace, and the kernel must have an odd width. Anything on a line after a # is a comment.
+   *
+   * @param kernel The name of a kernel file, or the weights of the kernel
+   * @return the kernel
+   * @throws IllegalArgumentException if the weights cannot be read or do not make a square kernel
+   *                                  with an odd width
+   */
+  public static Convolution readKernel(String kernel) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("The kernel cannot be null!");
+    }
+    String text = kernel;
+    File file = new File(kernel);
+    if (file.isFile()) {
+      try {
+        text = Files.readString(file.toPath());
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Unable to read the kernel file!");
+      }
+    }
+    List<Double> weights = new ArrayList<>();
+    for (String line : text.split("\\R")) {
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      for (String value : line.trim().split("[\\s,]+")) {
+        if (!value.isEmpty()) {
+          try {
+            weights.add(Double.parseDouble(value));
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("A kernel can only hold numbers!");
+          }
+        }
+      }
+    }
+    int size = (int) Math.round(Math.sqrt(weights.size()));
+    if ((size * size != weights.size()) || (size % 2 == 0)) {
+      throw new IllegalArgumentException("A kernel must be a square with an odd width!");
+    }
+    return Convolution.fromList(weights, size / 2);
+  }
+
   /**
    * Reads an image in any format and saves the data as a IPicture type. If the file is a png,
    * it will store it as a TransparentPicture object including the alpha values, otherwise it will
@@ -117,51 +231,58 @@ public class ImageUtil {
       int pictureWidth = image.getWidth();
       int pictureHeight = image.getHeight();
       int pictureMax = 255;
-      IPixel[][] pictArray;
-      // If it's a png image, include alpha values otherwise don't
-      if (fileType.equals("png")) {
-        pictArray = new RGBAPixel[pictureHeight][pictureWidth];
-      } else {
-        pictArray = new RGBPixel[pictureHeight][pictureWidth];
-      }
-
-      for (int i = 0; i < pictureHeight; i++) {
-        for (int j = 0; j < pictureWidth; j++) {
-          int r = new Color(image.getRGB(j, i)).getRed();
-          int g = new Color(image.getRGB(j, i)).getGreen();
-          int b = new Color(image.getRGB(j, i)).getBlue();
-          if (fileType.equals("png")) {
-            int a = new Color(image.getRGB(j, i)).getAlpha();
-            pictArray[i][j] = new RGBAPixel(r, g, b, a);
-          } else {
-            pictArray[i][j] = new RGBPixel(r, g, b);
+      boolean transparent = fileType.equals("png");
+      HeapRaster raster = new HeapRaster(pictureWidth, pictureHeight);
+      // Read every row at once as packed ARGB values
+      Parallelism.forEachBand(pictureHeight, (start, end) -> {
+        int[] row = new int[pictureWidth];
+        for (int i = start; i < end; i++) {
+          image.getRGB(0, i, pictureWidth, 1, row, 0, pictureWidth);
+          // If it's a png image, include alpha values otherwise every pixel is opaque
+          if (!transparent) {
+            for (int j = 0; j < pictureWidth; j++) {
+              row[j] = row[j] | 0xFF000000;
+            }
           }
+          raster.setRow(i, row);
         }
-      }
+      }, raster);
 
-      if (fileType.equals("png")) {
-        return new TransparentPicture(pictureWidth, pictureHeight,
-                pictureMax, (RGBAPixel[][]) pictArray);
+      if (transparent) {
+        return new TransparentPicture(pictureWidth, pictureHeight, pictureMax, raster);
       } else {
-        return new AllPicture(pictureWidth, pictureHeight, pictureMax, (RGBPixel[][]) pictArray);
+        return new AllPicture(pictureWidth, pictureHeight, pictureMax, raster);
       }
     } catch (IOException e) {
       throw new IllegalArgumentException("The given file is not in the correct format");
     }
   }
 
+  /**
+   * Reads the white pixels of a mask image. Masks are kept in a shared cache of limited size,
+   * keyed by the path of the file along with when it was last changed and its size, so a mask
+   * used again is only decoded again if the file changed or it was pushed out of the cache.
+   *
+   * @param filename the filename and location of the mask image
+   * @return the mask of the white pixels of the image
+   * @throws IllegalArgumentException if the given file cannot be read as an image
+   */
+  public static Mask readMask(String filename) throws IllegalArgumentException {
+    return MaskCache.shared().get(filename);
+  }
+
   /**
    * Saves a picture by outputting all the data of a IPicture object into the given file name.
    * The file type is determined off the ending of the file name. If the type is .png, it will
    * include alpha values of this IPicture. The default alpha value for AllPictures is 255 to
    * represent no transparency.
    *
-   * @param width      The width of the saved picture
-   * @param height     The height of the saved picture
-   * @param pixelArray All the pixel data for this IPicture
-   * @param fileName   the file name to save the file to
+   * @param width    The width of the saved picture
+   * @param height   The height of the saved picture
+   * @param raster   All the packed pixel data for this IPicture
+   * @param fileName the file name to save the file to
    */
-  public static void saveAll(int width, int height, IPixel[][] pixelArray, String fileName) {
+  public static void saveAll(int width, int height, PixelRaster raster, String fileName) {
     String fileType = fileName.substring(fileName.lastIndexOf(".") + 1);
     BufferedImage bufferedImage;
     if (!(fileType.equals("png"))) {
@@ -170,38 +291,29 @@ public class ImageUtil {
     } else {
       bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     }
-    saveHelper(bufferedImage, fileName, fileType, pixelArray);
+    saveHelper(bufferedImage, fileName, fileType, raster);
   }
 
   /**
    * Sets colors for a buffered Image based on the file type, and writes the data to a file
-   * with the given file name.
+   * with the given file name. Images that are not png files drop the alpha value of each pixel.
    *
    * @param image    The buffered image to add pixel data to
    * @param fileName The filename to write this image to
    * @param fileType The type of file to save as
-   * @param pixelArray The 2D array of pixels that represent the saved image
+   * @param raster   The packed pixels that represent the saved image
    */
   private static void saveHelper(BufferedImage image, String fileName,
-                                 String fileType, IPixel[][] pixelArray) {
+                                 String fileType, PixelRaster raster) {
     int height = image.getHeight();
     int width = image.getWidth();
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        int red = (int) currPixel.getValue("red");
-        int green = (int) currPixel.getValue("green");
-        int blue = (int) currPixel.getValue("blue");
-        if (fileType.equals("png")) {
-          int alpha = (int) currPixel.getValue("alpha");
-          Color currColor = new Color(red, green, blue, alpha);
-          image.setRGB(j, i, currColor.getRGB());
-        } else {
-          Color currColor = new Color(red, green, blue);
-          image.setRGB(j, i, currColor.getRGB());
-        }
+    Parallelism.forEachBand(height, (start, end) -> {
+      int[] row = new int[width];
+      for (int i = start; i < end; i++) {
+        raster.getRow(i, row);
+        image.setRGB(0, i, width, 1, row, 0, width);
       }
-    }
+    }, raster);
     try {
       File outputFile = new File(fileName);
       ImageIO.write(image, fileType, outputFile);
@@ -0,0 +1,140 @@
+package controllers;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.IPicture;
+import model.Mask;
+
+/**
+ * Keeps the masks decoded from image files, so a script that uses the same mask many times only
+ * reads and decodes the file once. A mask is stored as its spans of white pixels instead of the
+ * whole image. Each mask is kept along with when its file was last changed and the size of the
+ * file, and is decoded again if either one changes.
+ *
+ * <p>The cache holds at most a set number of bytes of masks. Once it is full the least recently
+ * used mask is dropped, and a mask larger than the whole cache is decoded but never kept.</p>
+ */
+public final class MaskCache {
+  public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+  private static final MaskCache SHARED = new MaskCache(DEFAULT_CACHE_BYTES);
+
+  private final long cacheBytes;
+  // Kept in order of use, least recently used first
+  private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long usedBytes;
+
+  /**
+   * Represents a decoded mask along with the version of the file it was decoded from.
+   */
+  private static final class Entry {
+    private final Mask mask;
+    private final long modified;
+    private final long length;
+
+    private Entry(Mask mask, long modified, long length) {
+      this.mask = mask;
+      this.modified = modified;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Creates an empty cache that holds up to the given number of bytes of masks.
+   *
+   * @param cacheBytes The most memory the kept masks can take
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public MaskCache(long cacheBytes) throws IllegalArgumentException {
+    if (cacheBytes < 0) {
+      throw new IllegalArgumentException("The size of a cache cannot be negative!");
+    }
+    this.cacheBytes = cacheBytes;
+  }
+
+  /**
+   * Returns the cache shared by every mask command.
+   *
+   * @return the shared cache
+   */
+  public static MaskCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the mask of the white pixels of an image file, decoding the file only if it is not
+   * kept already or it has changed since it was decoded.
+   *
+   * @param filename the filename and location of the mask image
+   * @return the mask of the white pixels of the image
+   * @throws IllegalArgumentException if the file cannot be read as an image
+   */
+  public synchronized Mask get(String filename) throws IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("Cannot read a mask from a null file name!");
+    }
+    File file = new File(filename);
+    String key = file.getAbsolutePath();
+    long modified = file.lastModified();
+    long length = file.length();
+    Entry entry = this.cache.get(key);
+    if ((entry != null) && (entry.modified == modified) && (entry.length == length)) {
+      return entry.mask;
+    }
+    if (entry != null) {
+      this.cache.remove(key);
+      this.usedBytes -= entry.mask.memorySize();
+    }
+
+    Mask mask = decode(filename);
+    long size = mask.memorySize();
+    if (size <= this.cacheBytes) {
+      this.cache.put(key, new Entry(mask, modified, length));
+      this.usedBytes += size;
+      Iterator<Map.Entry<String, Entry>> eldest = this.cache.entrySet().iterator();
+      while (this.usedBytes > this.cacheBytes) {
+        this.usedBytes -= eldest.next().getValue().mask.memorySize();
+        eldest.remove();
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Returns the number of bytes of masks currently kept.
+   *
+   * @return the memory used by the kept masks
+   */
+  public synchronized long usedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Drops every kept mask.
+   */
+  public synchronized void clear() {
+    this.cache.clear();
+    this.usedBytes = 0;
+  }
+
+  /**
+   * Reads an image file and finds its white pixels.
+   *
+   * @param filename the filename and location of the mask image
+   * @return the mask of the white pixels of the image
+   * @throws IllegalArgumentException if the file cannot be read as an image
+   */
+  private static Mask decode(String filename) throws IllegalArgumentException {
+    IPicture image;
+    if (filename.endsWith("ppm")) {
+      image = ImageUtil.readPPM(filename);
+    } else {
+      image = ImageUtil.readAll(filename);
+    }
+    Mask mask = image.mask();
+    image.release();
+    return mask;
+  }
+}
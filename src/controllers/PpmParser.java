@@ -0,0 +1,507 @@
+package controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import model.Parallelism;
+import model.PixelRaster;
+
+/**
+ * Reads the text of a plain (P3) PPM file straight from its bytes. The file is read into a byte
+ * buffer a block at a time and every number is built up digit by digit as it goes by, so the
+ * text is never turned into strings or held in memory, and each color value is scaled with a
+ * table made once for the file. A # starts a comment that runs to the end of its line, anywhere
+ * in the file.
+ *
+ * <p>When several threads may be used, the pixels of a large file can also be read in chunks at
+ * the same time. The file is mapped into memory and cut into chunks at whitespace, so no number
+ * is split between two chunks. A chunk does not know if it starts in the middle of a comment,
+ * so a first pass counts the numbers of each chunk both ways. Everything after the first line
+ * break of a chunk is the same either way, so this takes one pass. Going through the chunks in
+ * order then finds where each one really starts and which value it starts at, and a second pass
+ * parses every chunk into its place.</p>
+ */
+final class PpmParser {
+  // Files with at least this many bytes of pixels are worth reading in chunks
+  static final long PARALLEL_BYTES = 1L << 22;
+  private static final int BUFFER_BYTES = 1 << 16;
+  private static final int CHUNK_BYTES = 1 << 20;
+  // The largest max value the PPM format allows, and so the largest scale table made
+  private static final int LARGEST_MAX = 65535;
+  private static final String BAD_FORMAT = "Given file is not formatted properly!";
+
+  private final InputStream in;
+  private final byte[] buffer = new byte[BUFFER_BYTES];
+  private int position = 0;
+  private int limit = 0;
+  // The number of bytes of the stream that came before the buffer
+  private long consumed = 0;
+
+  /**
+   * Creates a parser that reads from the start of the given stream.
+   *
+   * @param in The bytes of the PPM file
+   */
+  PpmParser(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * Returns how many bytes of the stream have been parsed, which is where the next value starts
+   * being looked for.
+   *
+   * @return the offset of the next byte to parse
+   */
+  long offset() {
+    return this.consumed + this.position;
+  }
+
+  /**
+   * Makes sure there is at least one byte left in the buffer, reading the next block if needed.
+   *
+   * @return false if the end of the stream was reached
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean fill() throws IOException {
+    if (this.position < this.limit) {
+      return true;
+    }
+    this.consumed += this.limit;
+    this.position = 0;
+    this.limit = Math.max(0, this.in.read(this.buffer));
+    return this.limit > 0;
+  }
+
+  /**
+   * Skips over whitespace and comments up to the start of the next token.
+   *
+   * @return false if the end of the stream was reached first
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean skipSpace() throws IOException {
+    boolean inComment = false;
+    while (this.fill()) {
+      byte b = this.buffer[this.position];
+      if (inComment) {
+        inComment = (b != '\n');
+      } else if (b == '#') {
+        inComment = true;
+      } else if (b > ' ') {
+        return true;
+      }
+      this.position++;
+    }
+    return false;
+  }
+
+  /**
+   * Reads the next token as text, which is only used for the magic number at the start of the
+   * file.
+   *
+   * @return the next token
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if there are no tokens left
+   */
+  String nextWord() throws IOException, IllegalArgumentException {
+    if (!this.skipSpace()) {
+      throw new IllegalArgumentException(BAD_FORMAT);
+    }
+    StringBuilder word = new StringBuilder();
+    while (this.fill() && isTokenByte(this.buffer[this.position])) {
+      word.append((char) (this.buffer[this.position++] & 0xFF));
+    }
+    return word.toString();
+  }
+
+  /**
+   * Reads the next whole number. The byte after it is left unread.
+   *
+   * @return the next number in the file
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the next token is missing, is not a number or does not
+   *                                  fit in an int
+   */
+  int nextInt() throws IOException, IllegalArgumentException {
+    if (!this.skipSpace()) {
+      throw new IllegalArgumentException(BAD_FORMAT);
+    }
+    boolean negative = this.buffer[this.position] == '-';
+    if (negative) {
+      this.position++;
+    }
+    int value = 0;
+    int digits = 0;
+    while (this.fill()) {
+      byte b = this.buffer[this.position];
+      if (!isTokenByte(b)) {
+        break;
+      }
+      value = addDigit(value, b);
+      digits++;
+      this.position++;
+    }
+    if (digits == 0) {
+      throw new IllegalArgumentException(BAD_FORMAT);
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Reads the next whole number, taking a shortcut when it is made of digits that are all in the
+   * buffer already along with the byte after them. Anything else (a comment, a sign, a number
+   * cut off by the end of the buffer or a bad token) is left to {@link #nextInt()}.
+   *
+   * @return the next number in the file
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the next token is missing, is not a number or does not
+   *                                  fit in an int
+   */
+  private int nextValue() throws IOException, IllegalArgumentException {
+    byte[] bytes = this.buffer;
+    int at = this.position;
+    int end = this.limit;
+    while ((at < end) && (bytes[at] <= ' ')) {
+      at++;
+    }
+    int value = 0;
+    int digits = 0;
+    while (at < end) {
+      int d = bytes[at] - '0';
+      if ((d < 0) || (d > 9) || (digits == 9)) {
+        break;
+      }
+      value = value * 10 + d;
+      digits++;
+      at++;
+    }
+    if ((digits > 0) && (at < end) && (bytes[at] <= ' ')) {
+      this.position = at;
+      return value;
+    }
+    return this.nextInt();
+  }
+
+  /**
+   * Reads the color values of every pixel, in order, into the rows of a raster. Anything after
+   * the last pixel is ignored.
+   *
+   * @param raster    The raster to fill, the size given in the file
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if a value is missing or is not a number
+   */
+  void readPixels(PixelRaster raster, int fileMax, int storedMax) throws IOException,
+          IllegalArgumentException {
+    int width = raster.getWidth();
+    int[] row = new int[width];
+    int[] table = scaleTable(fileMax, storedMax);
+    for (int i = 0; i < raster.getHeight(); i++) {
+      for (int j = 0; j < width; j++) {
+        int r = scale(this.nextValue(), table, fileMax, storedMax);
+        int g = scale(this.nextValue(), table, fileMax, storedMax);
+        int b = scale(this.nextValue(), table, fileMax, storedMax);
+        row[j] = PixelRaster.pack(r, g, b, 255);
+      }
+      raster.setRow(i, row);
+    }
+  }
+
+  /**
+   * Checks if the pixels of a file are worth reading in chunks at the same time with
+   * {@link #readChunks(FileChannel, long, PixelRaster, int, int)}.
+   *
+   * @param bytes  The number of bytes of the file after its header
+   * @param width  The width of the image
+   * @param height The height of the image
+   * @return true if more than one thread may be used and the file is large enough
+   */
+  static boolean worthSplitting(long bytes, int width, int height) {
+    return (Parallelism.getLevel() > 1) && (bytes >= PARALLEL_BYTES)
+            && (bytes <= Integer.MAX_VALUE) && (3L * width * height <= Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Reads the color values of every pixel of a file into the rows of a raster, parsing chunks of
+   * the file at the same time. The color values are first stored one byte each in the order of
+   * the file, and then packed into rows.
+   *
+   * @param channel   The open file
+   * @param start     The offset of the first byte after the header
+   * @param raster    The raster to fill, the size given in the file
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @throws IOException              if the file cannot be mapped into memory
+   * @throws IllegalArgumentException if a value is missing or is not a number
+   */
+  static void readChunks(FileChannel channel, long start, PixelRaster raster, int fileMax,
+                         int storedMax) throws IOException, IllegalArgumentException {
+    int width = raster.getWidth();
+    int values = 3 * width * raster.getHeight();
+    MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start,
+            channel.size() - start);
+    int length = data.capacity();
+    int chunks = Math.max(1, (int) ((length + (long) CHUNK_BYTES - 1) / CHUNK_BYTES));
+    int[] bounds = new int[chunks + 1];
+    for (int k = 1; k < chunks; k++) {
+      int at = Math.max(bounds[k - 1], k * CHUNK_BYTES);
+      while ((at < length) && (data.get(at) > ' ')) {
+        at++;
+      }
+      bounds[k] = at;
+    }
+    bounds[chunks] = length;
+
+    // The number of values and the comment state at the end for a chunk starting outside of a
+    // comment, and for one starting inside of one
+    long[] plainCount = new long[chunks];
+    long[] commentCount = new long[chunks];
+    boolean[] plainExit = new boolean[chunks];
+    boolean[] commentExit = new boolean[chunks];
+    Parallelism.forEachBand(chunks, 1, (first, last) -> {
+      for (int k = first; k < last; k++) {
+        byte[] bytes = copy(data, bounds[k], bounds[k + 1]);
+        int newline = indexOf(bytes, (byte) '\n');
+        int split = (newline < 0) ? bytes.length : newline + 1;
+        long[] before = count(bytes, 0, split, false);
+        long[] after = count(bytes, split, bytes.length, false);
+        plainCount[k] = before[0] + after[0];
+        plainExit[k] = (newline < 0) ? (before[1] != 0) : (after[1] != 0);
+        commentCount[k] = after[0];
+        commentExit[k] = (newline < 0) || (after[1] != 0);
+      }
+    });
+
+    long[] firstValue = new long[chunks];
+    boolean[] startsInComment = new boolean[chunks];
+    long total = 0;
+    boolean inComment = false;
+    for (int k = 0; k < chunks; k++) {
+      firstValue[k] = total;
+      startsInComment[k] = inComment;
+      total += inComment ? commentCount[k] : plainCount[k];
+      inComment = inComment ? commentExit[k] : plainExit[k];
+    }
+    if (total < values) {
+      throw new IllegalArgumentException(BAD_FORMAT);
+    }
+
+    byte[] colors = new byte[values];
+    int[] table = scaleTable(fileMax, storedMax);
+    Parallelism.forEachBand(chunks, 1, (first, last) -> {
+      for (int k = first; k < last; k++) {
+        if (firstValue[k] < values) {
+          byte[] bytes = copy(data, bounds[k], bounds[k + 1]);
+          parse(bytes, startsInComment[k], (int) firstValue[k], colors, table, fileMax,
+                  storedMax);
+        }
+      }
+    });
+    Parallelism.forEachBand(raster.getHeight(), (first, last) -> {
+      int[] row = new int[width];
+      for (int i = first; i < last; i++) {
+        int index = 3 * width * i;
+        for (int j = 0; j < width; j++) {
+          row[j] = PixelRaster.pack(colors[index] & 0xFF, colors[index + 1] & 0xFF,
+                  colors[index + 2] & 0xFF, 255);
+          index += 3;
+        }
+        raster.setRow(i, row);
+      }
+    }, raster);
+  }
+
+  /**
+   * Copies the bytes of a chunk of the mapped file into an array.
+   *
+   * @param data  The mapped file
+   * @param start The first byte of the chunk
+   * @param end   The byte after the last byte of the chunk
+   * @return the bytes of the chunk
+   */
+  private static byte[] copy(MappedByteBuffer data, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    data.get(start, bytes);
+    return bytes;
+  }
+
+  /**
+   * Finds the first place a byte appears.
+   *
+   * @param bytes The bytes to search
+   * @param value The byte to find
+   * @return the index of the byte, or -1 if it is not there
+   */
+  private static int indexOf(byte[] bytes, byte value) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Counts the tokens in part of a chunk, without checking that they are numbers.
+   *
+   * @param bytes     The bytes of the chunk
+   * @param from      The first byte to count in
+   * @param to        The byte after the last byte to count in
+   * @param inComment Whether the first byte is inside a comment
+   * @return the number of tokens, and 1 if the last byte is inside a comment (0 if not)
+   */
+  private static long[] count(byte[] bytes, int from, int to, boolean inComment) {
+    long tokens = 0;
+    boolean inToken = false;
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (inComment) {
+        inComment = (b != '\n');
+      } else if (b == '#') {
+        inComment = true;
+        inToken = false;
+      } else if (b > ' ') {
+        if (!inToken) {
+          tokens++;
+          inToken = true;
+        }
+      } else {
+        inToken = false;
+      }
+    }
+    return new long[] {tokens, inComment ? 1 : 0};
+  }
+
+  /**
+   * Parses the color values of a chunk into their places in the color array. Values past the
+   * last pixel are ignored.
+   *
+   * @param bytes     The bytes of the chunk
+   * @param inComment Whether the chunk starts inside a comment
+   * @param index     The place of the first value of the chunk
+   * @param colors    The color values of every pixel, red, green and blue one after another
+   * @param table     The scaled value of each value up to the file max, or null
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @throws IllegalArgumentException if a token is not a number
+   */
+  private static void parse(byte[] bytes, boolean inComment, int index, byte[] colors,
+                            int[] table, int fileMax, int storedMax)
+          throws IllegalArgumentException {
+    int i = 0;
+    int length = bytes.length;
+    while ((i < length) && (index < colors.length)) {
+      byte b = bytes[i];
+      if (inComment) {
+        inComment = (b != '\n');
+        i++;
+        continue;
+      }
+      if (b == '#') {
+        inComment = true;
+        i++;
+        continue;
+      }
+      if (b <= ' ') {
+        i++;
+        continue;
+      }
+      boolean negative = (b == '-');
+      if (negative) {
+        i++;
+      }
+      int value = 0;
+      int digits = 0;
+      while ((i < length) && isTokenByte(bytes[i])) {
+        value = addDigit(value, bytes[i]);
+        digits++;
+        i++;
+      }
+      if (digits == 0) {
+        throw new IllegalArgumentException(BAD_FORMAT);
+      }
+      colors[index++] = (byte) scale(negative ? -value : value, table, fileMax, storedMax);
+    }
+  }
+
+  /**
+   * Checks if a byte is part of a token, which is anything that is not whitespace or the start
+   * of a comment.
+   *
+   * @param b The byte to check
+   * @return true if the byte belongs to a token
+   */
+  private static boolean isTokenByte(byte b) {
+    return (b > ' ') && (b != '#');
+  }
+
+  /**
+   * Adds a digit to the end of a number.
+   *
+   * @param value The number so far
+   * @param digit The byte of the next digit
+   * @return the number with the digit added
+   * @throws IllegalArgumentException if the byte is not a digit or the number gets too large
+   */
+  private static int addDigit(int value, byte digit) throws IllegalArgumentException {
+    int d = digit - '0';
+    if ((d < 0) || (d > 9) || (value > (Integer.MAX_VALUE - d) / 10)) {
+      throw new IllegalArgumentException(BAD_FORMAT);
+    }
+    return value * 10 + d;
+  }
+
+  /**
+   * Makes a table of the value to store for every color value from 0 up to the file max.
+   *
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @return the table, or null if the file max is outside the range the format allows
+   */
+  private static int[] scaleTable(int fileMax, int storedMax) {
+    if ((fileMax < 0) || (fileMax > LARGEST_MAX)) {
+      return null;
+    }
+    int[] table = new int[fileMax + 1];
+    for (int value = 0; value <= fileMax; value++) {
+      table[value] = scaleValue(value, fileMax, storedMax);
+    }
+    return table;
+  }
+
+  /**
+   * Scales a color value with the table if there is one.
+   *
+   * @param value     The color value read from the file
+   * @param table     The table made by {@link #scaleTable(int, int)}, or null
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @return the color value to store
+   */
+  private static int scale(int value, int[] table, int fileMax, int storedMax) {
+    if ((table != null) && (value >= 0) && (value <= fileMax)) {
+      return table[value];
+    }
+    return scaleValue(value, fileMax, storedMax);
+  }
+
+  /**
+   * Converts a color value read from a file with the given max value to a value that can be
+   * stored in a Picture with the stored max value. Values outside of the file's range are
+   * clamped to the range first.
+   *
+   * @param value     The color value read from the file
+   * @param fileMax   The max color value declared by the file
+   * @param storedMax The max color value of the Picture being created
+   * @return the color value to store
+   */
+  static int scaleValue(int value, int fileMax, int storedMax) {
+    int clamped = Math.max(0, Math.min(value, fileMax));
+    if (fileMax == storedMax) {
+      return clamped;
+    }
+    return (int) ((long) clamped * storedMax / fileMax);
+  }
+}
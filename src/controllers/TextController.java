@@ -11,7 +11,9 @@ import java.util.Stack;
 import java.util.function.Function;
 
 import commands.ColorTransform;
+import commands.ConvolveImage;
 import commands.FilterImage;
+import commands.GaussianBlurImage;
 import commands.BrightenImage;
 import commands.Command;
 import commands.GreyScale;
@@ -113,12 +115,28 @@ public class TextController implements ImageProcessorController {
     knownCommands.put("sharpen",
         (Scanner s) -> new FilterImage(model, model.getPicture(s.next()), s.next(),
                     "sharpen"));
+    knownCommands.put("convolve",
+        (Scanner s) -> new ConvolveImage(model, s.next(), model.getPicture(s.next()),
+                    s.next()));
+    knownCommands.put("gaussian-blur",
+        (Scanner s) -> new GaussianBlurImage(model, s.next(), model.getPicture(s.next()),
+                    s.next()));
     knownCommands.put("downscale",
         (Scanner s) -> new ScaleImage(model, s.next(), s.next(),
                     model.getPicture(s.next()), s.next()));
+    knownCommands.put("resize",
+        (Scanner s) -> new ScaleImage(model, s.next(), s.next(), s.next(),
+                    model.getPicture(s.next()), s.next()));
     knownCommands.put("mask",
         (Scanner s) -> new MaskImage(model, model.getPicture(s.next()),
                     s.next(), s.next()));
+    knownCommands.put("masked", (Scanner s) -> {
+      String maskFile = s.next();
+      String operation = s.next();
+      String value = MaskImage.takesValue(operation) ? s.next() : null;
+      return new MaskImage(model, model.getPicture(s.next()), maskFile, operation, value,
+              s.next());
+    });
     knownCommands.put("load", (Scanner s) -> new LoadImage(model, s.next(), s.next()));
 
     while (scan.hasNext()) {
@@ -1,88 +1,390 @@
 package model;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 import controllers.ImageUtil;
 
 /**
  * This is an abstract class that represents shared code between different IPicture concrete
  * classes. The abstract class stores the width, height, and max value of an IPicture along
- * with its IPixel array.
+ * with a packed raster that holds the ARGB value of every pixel.
+ *
+ * <p>Operations that change each pixel based only on its own value (brightening, greyscales,
+ * color transformations and masked brightening) are not applied right away. They are queued up
+ * and the whole queue is applied in a single pass over the pixels the next time the pixels are
+ * read, so a chain of these operations only goes over the image once. Clones share the queue of
+ * the Picture they were cloned from.</p>
+ *
+ * <p>The histogram of a Picture can be counted on another thread while the Picture is only being
+ * read (cloned, drawn or sampled). The known histogram is published through volatile fields so
+ * readers never wait for a count, and releasing the Picture waits until any count is done.</p>
+ *
+ * <p>A Picture also keeps the mipmap pyramid of its pixels once it is asked for, so every
+ * downscale and zoom level of the same pixels reuses the halved copies made for the first.</p>
  */
 public abstract class AbstractPicture implements IPicture {
+  private static final Channel[] RGB_CHANNELS = {Channel.RED, Channel.GREEN, Channel.BLUE};
+  // Multiplying a color by this copies it into the red, green and blue places of a packed pixel
+  private static final int GREY = 0x010101;
+  // Multiplying a sum of three colors by this and dropping 16 bits divides it by 3
+  private static final int THIRD = 21846;
+
   protected int width;
   protected int height;
   protected int maxValue;
-  private IPixel[][] pixelArray;
+  protected PixelRaster raster;
+  private final List<RowOperation> pending = new ArrayList<>();
+  // Counts every change to the pixel values, so a histogram knows if it is still up to date
+  private volatile long version = 0;
+  // The histogram is always stored before the version it belongs to
+  private ColorHistogram histogram = null;
+  private volatile long histogramVersion = -1;
+  // Held while counting the histogram, so the pixels are not released in the middle of a count
+  private final Object counting = new Object();
+  // The mipmaps of the pixels, made the first time they are needed (guarded by counting)
+  private Pyramid pyramid = null;
 
   /**
-   * Creates a Picture with a given width, height, max Color value, and list of all the
-   * pixels that make up this image.
+   * Creates a Picture with a given width, height, max Color value, and the raster holding
+   * every pixel that makes up this image.
    *
-   * @param width      Width of this image (in pixels)
-   * @param height     Height of this image (in pixels)
-   * @param maxValue   The maximum color value of a single pixel field (R, G, B fields)
-   * @param pixelArray A 2D array that holds every pixel in this image
+   * @param width    Width of this image (in pixels)
+   * @param height   Height of this image (in pixels)
+   * @param maxValue The maximum color value of a single pixel field (R, G, B fields)
+   * @param raster   The packed ARGB values of every pixel in this image
+   * @throws IllegalArgumentException if the raster does not match the size of this image or the
+   *                                  max value cannot be stored in a single byte
    */
-  public AbstractPicture(int width, int height, int maxValue, IPixel[][] pixelArray) {
+  public AbstractPicture(int width, int height, int maxValue, PixelRaster raster)
+          throws IllegalArgumentException {
+    if ((raster == null) || (raster.getWidth() != width) || (raster.getHeight() != height)) {
+      throw new IllegalArgumentException("The pixel data does not match the picture size!");
+    }
+    if ((maxValue < 0) || (maxValue > 255)) {
+      throw new IllegalArgumentException("The max color value must be within 0-255!");
+    }
     this.width = width;
     this.height = height;
     this.maxValue = maxValue;
-    this.pixelArray = pixelArray;
+    this.raster = raster;
+  }
+
+  /**
+   * Packs a 2D array of pixels into a raster. Used by the constructors that still accept an
+   * array of pixel objects.
+   *
+   * @param width      Width of the image (in pixels)
+   * @param height     Height of the image (in pixels)
+   * @param pixelArray A 2D array that holds every pixel in the image
+   * @return a raster holding the packed values of every pixel
+   */
+  protected static PixelRaster packPixels(int width, int height, IPixel[][] pixelArray) {
+    PixelRaster packed = new HeapRaster(width, height);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        IPixel currPixel = pixelArray[i][j];
+        packed.set(i, j, PixelRaster.pack((int) currPixel.getValue("red"),
+                (int) currPixel.getValue("green"), (int) currPixel.getValue("blue"),
+                (int) currPixel.getValue("alpha")));
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Creates a new Picture of the same concrete type as this one that holds the given raster.
+   *
+   * @param width  Width of the new image (in pixels)
+   * @param height Height of the new image (in pixels)
+   * @param raster The pixel data of the new image
+   * @return a new Picture of the same type as this Picture
+   */
+  protected abstract IPicture createPicture(int width, int height, PixelRaster raster);
+
+  /**
+   * Gives a clone of this Picture every operation that is still queued on this Picture, so that
+   * cloning does not force the queue to be applied.
+   *
+   * @param copy The clone of this Picture, holding a copy of this Picture's raster
+   * @param <T>  The type of the clone
+   * @return the given clone
+   */
+  protected <T extends AbstractPicture> T sharePending(T copy) {
+    AbstractPicture picture = copy;
+    picture.pending.addAll(this.pending);
+    ColorHistogram known = this.knownHistogram();
+    if (known != null) {
+      // The clone holds the same pixels, so it can keep the same histogram
+      picture.storeHistogram(known, picture.version);
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the histogram kept on this Picture if it matches the current pixel values.
+   *
+   * @return the up to date histogram, or null if there is none
+   */
+  private ColorHistogram knownHistogram() {
+    // Reading the version first guarantees the histogram read after it is at least as new
+    long known = this.histogramVersion;
+    ColorHistogram result = this.histogram;
+    return (known == this.version) ? result : null;
+  }
+
+  /**
+   * Keeps a histogram on this Picture.
+   *
+   * @param result  The histogram to keep
+   * @param counted The version of the pixel values the histogram was made from
+   */
+  private void storeHistogram(ColorHistogram result, long counted) {
+    this.histogram = result;
+    this.histogramVersion = counted;
+  }
+
+  /**
+   * Records that the pixel values of this Picture changed, so any histogram computed before is
+   * out of date. Moving pixels around (flips) does not change a histogram.
+   */
+  private void modified() {
+    this.version++;
+  }
+
+  /**
+   * Returns the raster of this Picture after applying every queued operation to it. Anything
+   * that reads or writes pixels directly must go through this instead of the raster field.
+   *
+   * @return the up to date raster of this Picture
+   */
+  protected PixelRaster pixels() {
+    if (!this.pending.isEmpty()) {
+      this.applyPending();
+    }
+    return this.raster;
+  }
+
+  /**
+   * Applies every queued operation in a single pass, running all of them back to back on each
+   * row before moving on to the next one.
+   */
+  private void applyPending() {
+    // Each new pixel only depends on the old one, so the storage can be changed even if the
+    // raster is flipped
+    PixelRaster target = this.raster.storage();
+    RowOperation[] operations = this.pending.toArray(new RowOperation[0]);
+    Parallelism.forEachBand(height, (start, end) -> {
+      int[] row = new int[width];
+      for (int i = start; i < end; i++) {
+        target.getRow(i, row);
+        for (RowOperation operation : operations) {
+          operation.apply(i, row);
+        }
+        target.setRow(i, row);
+      }
+    }, target);
+    this.pending.clear();
+  }
+
+  /**
+   * Queues an operation to be applied the next time the pixels of this Picture are read. Lookup
+   * tables queued one after another are always combined into a single table, and a color matrix
+   * queued right after another one is combined with it when
+   * {@link ColorMatrix#composesWith(ColorMatrix)} allows it. Either way the pixels are exactly
+   * the same as applying the operations one at a time, so they never depend on whether the
+   * pixels were read in between. Other matrices stay separate and run one after another on each
+   * row in the same pass.
+   *
+   * @param operation The operation to queue
+   */
+  private void queue(RowOperation operation) {
+    this.modified();
+    int last = this.pending.size() - 1;
+    if ((operation instanceof LutOperation) && (last >= 0)
+            && (this.pending.get(last) instanceof LutOperation)) {
+      ChannelLut previous = ((LutOperation) this.pending.get(last)).lut;
+      this.pending.set(last, new LutOperation(previous.then(((LutOperation) operation).lut)));
+      return;
+    }
+    if ((operation instanceof MatrixOperation) && (last >= 0)
+            && (this.pending.get(last) instanceof MatrixOperation)) {
+      ColorMatrix previous = ((MatrixOperation) this.pending.get(last)).matrix;
+      ColorMatrix next = ((MatrixOperation) operation).matrix;
+      if (previous.composesWith(next)) {
+        this.pending.set(last, new MatrixOperation(previous.then(next), this.maxValue));
+        return;
+      }
+    }
+    this.pending.add(operation);
+  }
+
+  /**
+   * Represents a queued color matrix, kept as its own class so that consecutive matrices can be
+   * found in the queue and combined.
+   */
+  private static final class MatrixOperation implements RowOperation {
+    private final ColorMatrix matrix;
+    private final int maxValue;
+
+    private MatrixOperation(ColorMatrix matrix, int maxValue) {
+      this.matrix = matrix;
+      this.maxValue = maxValue;
+    }
+
+    @Override
+    public void apply(int row, int[] pixels) {
+      this.matrix.apply(pixels, this.maxValue);
+    }
+  }
+
+  /**
+   * Represents a queued lookup table.
+   */
+  private static final class LutOperation implements RowOperation {
+    private final ChannelLut lut;
+
+    private LutOperation(ChannelLut lut) {
+      this.lut = lut;
+    }
+
+    @Override
+    public void apply(int row, int[] pixels) {
+      this.lut.apply(pixels);
+    }
   }
 
   @Override
   public String toString() {
-    String startMessage = "P3\n" + this.width + " " + this.height + "\n" + this.maxValue + "\n";
-    String pixels = "";
-    for (int i = 0; i < pixelArray.length; i++) {
-      for (int j = 0; j < pixelArray[i].length; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        pixels = pixels + currPixel.toString();
+    StringBuilder builder = new StringBuilder();
+    builder.append("P3\n").append(this.width).append(" ").append(this.height).append("\n")
+            .append(this.maxValue).append("\n");
+    PixelRaster pixels = this.pixels();
+    // Each row is written out separately so rows can be formatted at the same time
+    String[] lines = new String[height];
+    Parallelism.forEachBand(height, (start, end) -> {
+      int[] row = new int[width];
+      StringBuilder line = new StringBuilder();
+      for (int i = start; i < end; i++) {
+        pixels.getRow(i, row);
+        line.setLength(0);
+        for (int j = 0; j < width; j++) {
+          int argb = row[j];
+          line.append(PixelRaster.red(argb)).append(" ")
+                  .append(PixelRaster.green(argb)).append(" ")
+                  .append(PixelRaster.blue(argb)).append(" ");
+        }
+        lines[i] = line.append("\n").toString();
       }
-      pixels = pixels + "\n";
+    }, pixels);
+    for (String line : lines) {
+      builder.append(line);
     }
-    return startMessage + pixels;
+    return builder.toString();
   }
 
   @Override
   public abstract IPicture clone();
 
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+
+  @Override
+  public void release() {
+    synchronized (this.counting) {
+      this.modified();
+      this.pending.clear();
+      this.raster.release();
+      if (this.pyramid != null) {
+        this.pyramid.release();
+        this.pyramid = null;
+      }
+    }
+  }
+
   @Override
   public void save(String filename) {
     String fileType = filename.substring(filename.lastIndexOf(".") + 1);
     if (fileType.equals("ppm")) {
-      ImageUtil.savePPM(this.width, this.height, this.maxValue, this.pixelArray, filename);
+      ImageUtil.savePPM(this.width, this.height, this.maxValue, this.pixels(), filename);
     } else {
-      ImageUtil.saveAll(this.width, this.height, this.pixelArray, filename);
+      ImageUtil.saveAll(this.width, this.height, this.pixels(), filename);
     }
   }
 
   @Override
   public BufferedImage getBufferedImage() {
     BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        int red = (int) currPixel.getValue("red");
-        int green = (int) currPixel.getValue("green");
-        int blue = (int) currPixel.getValue("blue");
-        int alpha = (int) currPixel.getValue("alpha");
-        Color currColor = new Color(red, green, blue, alpha);
-        image.setRGB(j, i, currColor.getRGB());
+    // Copy each row straight into the image's backing array instead of setting every pixel
+    int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    PixelRaster pixels = this.pixels();
+    Parallelism.forEachBand(height, (start, end) -> {
+      int[] row = new int[width];
+      for (int i = start; i < end; i++) {
+        pixels.getRow(i, row);
+        System.arraycopy(row, 0, imageData, i * width, width);
       }
-    }
+    }, pixels);
     return image;
   }
 
+  /**
+   * Checks that a location is within this Picture.
+   *
+   * @param row The row of the location
+   * @param col The column of the location
+   * @throws IllegalArgumentException if the location is outside of this picture
+   */
+  private void checkLocation(int row, int col) throws IllegalArgumentException {
+    if ((row < 0) || (col < 0) || (row >= height) || (col >= width)) {
+      throw new IllegalArgumentException("The given pixel is outside of this picture!");
+    }
+  }
+
+  @Override
+  public IPixel getPixel(int row, int col) throws IllegalArgumentException {
+    checkLocation(row, col);
+    return new PixelView(this, row, col);
+  }
+
+  @Override
+  public int getChannel(int row, int col, Channel channel) throws IllegalArgumentException {
+    return channel.get(this.getARGB(row, col));
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IllegalArgumentException {
+    checkLocation(row, col);
+    return this.pixels().get(row, col);
+  }
+
+  @Override
+  public void setARGB(int row, int col, int argb) throws IllegalArgumentException {
+    checkLocation(row, col);
+    this.pixels().set(row, col, argb);
+    this.modified();
+  }
+
   @Override
   public boolean equals(Object other) {
-    if (!((other instanceof AllPicture) || (other instanceof TransparentPicture))) {
+    if (!(other instanceof AbstractPicture)) {
       return false;
     }
     AbstractPicture that = (AbstractPicture) other;
@@ -91,209 +393,569 @@ public abstract class AbstractPicture implements IPicture {
 
   @Override
   public int hashCode() {
-    return (Objects.hash(this.maxValue, this.width, this.height, this.pixelArray));
+    return (Objects.hash(this.maxValue, this.width, this.height));
   }
 
   /**
-   * Checks if all the fields of an IPicture are equal including all the values of every pixel
-   * in the IPixel array.
+   * Checks if all the fields of an IPicture are equal including the red, green, blue, and alpha
+   * values of every pixel in the raster.
    *
    * @param that The Picture to compare equality to
    * @return if this picture is equal to the given
    */
   protected boolean equalsHelper(AbstractPicture that) {
-    int isEqual = 0;
-    if (this.height == that.height && this.width == that.width && this.maxValue == that.maxValue) {
-      for (int i = 0; i < this.height; i++) {
-        for (int j = 0; j < this.width; j++) {
-          IPixel currPixel = this.pixelArray[i][j];
-          IPixel otherPixel = that.pixelArray[i][j];
-          if (!(currPixel.equals(otherPixel))) {
-            isEqual = isEqual + 1;
-          }
-        }
+    if (this.height != that.height || this.width != that.width
+            || this.maxValue != that.maxValue) {
+      return false;
+    }
+    PixelRaster thisPixels = this.pixels();
+    PixelRaster thatPixels = that.pixels();
+    int[] thisRow = new int[width];
+    int[] thatRow = new int[width];
+    for (int i = 0; i < this.height; i++) {
+      thisPixels.getRow(i, thisRow);
+      thatPixels.getRow(i, thatRow);
+      if (!Arrays.equals(thisRow, thatRow)) {
+        return false;
       }
     }
-    return (isEqual == 0);
+    return true;
+  }
+
+  /**
+   * Clamps a color value so that it is between 0 and the max value of this Picture.
+   *
+   * @param value The color value to clamp
+   * @return the clamped color value
+   */
+  protected int clamp(int value) {
+    return ChannelLut.clamp(value, this.maxValue);
   }
 
   @Override
   public void verticalFlip() {
-    for (int i = 0; i < height / 2; i++) {
-      for (int j = 0; j < pixelArray[i].length; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        pixelArray[i][j] = pixelArray[pixelArray.length - 1 - i][j];
-        pixelArray[pixelArray.length - 1 - i][j] = currPixel;
-      }
-    }
+    // Flips only change how the raster is viewed, no pixels are moved until they are needed
+    this.raster = FlippedRaster.flip(this.raster, true, false);
   }
 
   @Override
   public void horizontalFlip() {
-    for (int i = 0; i < pixelArray.length; i++) {
-      for (int j = 0; j < pixelArray[i].length / 2; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        pixelArray[i][j] = pixelArray[i][pixelArray[i].length - 1 - j];
-        pixelArray[i][pixelArray[i].length - 1 - j] = currPixel;
-      }
-    }
+    this.raster = FlippedRaster.flip(this.raster, false, true);
   }
 
   @Override
   public void brightenImage(int value) {
-    for (int i = 0; i < pixelArray.length; i++) {
-      for (int j = 0; j < pixelArray[i].length; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        currPixel.brighten(value, maxValue);
-      }
+    this.applyLut(ChannelLut.brighten(value, this.maxValue));
+  }
+
+  @Override
+  public void applyLut(ChannelLut lut) throws IllegalArgumentException {
+    if (lut == null) {
+      throw new IllegalArgumentException("Cannot apply a null lookup table!");
     }
+    ColorHistogram known = this.knownHistogram();
+    this.queue(new LutOperation(lut));
+    if (known != null) {
+      // Every pixel with the same color gets the same new color, so the counts just move
+      this.storeHistogram(known.remap(lut), this.version);
+    }
+  }
+
+  @Override
+  public void greyScale(String type) throws IllegalArgumentException {
+    this.greyScale(GreyscaleType.fromName(type));
   }
 
   @Override
-  public void greyScale(String type) {
-    List<Double> transformList = new ArrayList<>();
-    if (type.equals("luma")) {
-      transformList = new ArrayList<>(Arrays.asList(0.2126, 0.2126, 0.2126,
-              0.7152, 0.7152, 0.7152, 0.0722, 0.0722, 0.0722));
-    } else if (type.equals("red")) {
-      transformList = new ArrayList<>(Arrays.asList(1.0, 1.0, 1.0, 0.0, 0.0,
-              0.0, 0.0, 0.0, 0.0));
-    } else if (type.equals("green")) {
-      transformList = new ArrayList<>(Arrays.asList(0.0, 0.0, 0.0, 1.0, 1.0,
-              1.0, 0.0, 0.0, 0.0));
-    } else if (type.equals("blue")) {
-      transformList = new ArrayList<>(Arrays.asList(0.0, 0.0, 0.0, 0.0, 0.0,
-              0.0, 1.0, 1.0, 1.0));
+  public void greyScale(GreyscaleType type) {
+    switch (type) {
+      case LUMA:
+        this.colorTransform(Arrays.asList(0.2126, 0.2126, 0.2126,
+                0.7152, 0.7152, 0.7152, 0.0722, 0.0722, 0.0722));
+        break;
+      case RED:
+        this.colorTransform(Arrays.asList(1.0, 1.0, 1.0, 0.0, 0.0,
+                0.0, 0.0, 0.0, 0.0));
+        break;
+      case GREEN:
+        this.colorTransform(Arrays.asList(0.0, 0.0, 0.0, 1.0, 1.0,
+                1.0, 0.0, 0.0, 0.0));
+        break;
+      case BLUE:
+        this.colorTransform(Arrays.asList(0.0, 0.0, 0.0, 0.0, 0.0,
+                0.0, 1.0, 1.0, 1.0));
+        break;
+      default:
+        this.valueGreyScale(type == GreyscaleType.VALUE);
+    }
+  }
+
+  /**
+   * Converts every pixel of this Picture to the value (largest component) or intensity (average
+   * of the components) greyscale.
+   *
+   * @param isValue true to convert to the value greyscale, false for the intensity greyscale
+   */
+  private void valueGreyScale(boolean isValue) {
+    if (isValue) {
+      this.queue((i, row) -> valueRow(row));
     } else {
-      for (int i = 0; i < pixelArray.length; i++) {
-        for (int j = 0; j < pixelArray[i].length; j++) {
-          IPixel currPixel = pixelArray[i][j];
-          currPixel.greyScale(type);
-        }
-      }
-      return;
+      this.queue((i, row) -> intensityRow(row));
+    }
+  }
+
+  /**
+   * Replaces every color of a row of packed pixels with the largest color of its pixel. The loop
+   * has no branches or calls so that the JIT compiler can run it on several pixels at once with
+   * vector instructions: the larger of two colors is found with a sign mask instead of a
+   * comparison.
+   *
+   * @param row The packed pixels of the row
+   */
+  private static void valueRow(int[] row) {
+    for (int j = 0; j < row.length; j++) {
+      int argb = row[j];
+      int value = (argb >> 16) & 0xFF;
+      int difference = value - ((argb >> 8) & 0xFF);
+      value -= difference & (difference >> 31);
+      difference = value - (argb & 0xFF);
+      value -= difference & (difference >> 31);
+      row[j] = (argb & 0xFF000000) | (value * GREY);
+    }
+  }
+
+  /**
+   * Replaces every color of a row of packed pixels with the average of the colors of its pixel,
+   * rounded down. The sum of three colors is at most 765, and for those sums multiplying by
+   * 21846 and dropping 16 bits is exactly the same as dividing by 3, which keeps the loop free of
+   * divisions so it can be run with vector instructions.
+   *
+   * @param row The packed pixels of the row
+   */
+  private static void intensityRow(int[] row) {
+    for (int j = 0; j < row.length; j++) {
+      int argb = row[j];
+      int sum = ((argb >> 16) & 0xFF) + ((argb >> 8) & 0xFF) + (argb & 0xFF);
+      row[j] = (argb & 0xFF000000) | (((sum * THIRD) >>> 16) * GREY);
     }
-    this.colorTransform(transformList);
   }
 
   @Override
   public void colorTransform(List<Double> arrayValues) throws IllegalArgumentException {
-    if (arrayValues.size() != 9) {
-      throw new IllegalArgumentException("Invalid values for the color transformation matrix");
+    this.colorTransform(ColorMatrix.fromTransform(arrayValues));
+  }
+
+  @Override
+  public void colorTransform(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Cannot apply a null color matrix!");
     }
+    if (matrix.isPerChannel()) {
+      // Matrices that keep the colors apart are cheaper as a lookup table
+      this.applyLut(ChannelLut.fromMatrix(matrix, this.maxValue));
+    } else {
+      this.queue(new MatrixOperation(matrix, this.maxValue));
+    }
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        IPixel currPixel = pixelArray[i][j];
-        double currRed = currPixel.getValue("red");
-        double currGreen = currPixel.getValue("green");
-        double currBlue = currPixel.getValue("blue");
-
-        int r = (int) (arrayValues.get(0) * currRed + arrayValues.get(3) * currGreen
-                + arrayValues.get(6) * currBlue);
-        int g = (int) (arrayValues.get(1) * currRed + arrayValues.get(4) * currGreen
-                + arrayValues.get(7) * currBlue);
-        int b = (int) (arrayValues.get(2) * currRed + arrayValues.get(5) * currGreen
-                + arrayValues.get(8) * currBlue);
-        this.pixelArray[i][j].set(r, g, b, this.maxValue);
+  @Override
+  public void filter(List<Double> values, int bounds) throws IllegalArgumentException {
+    this.filter(Convolution.fromList(values, bounds));
+  }
+
+  @Override
+  public void filter(Convolution kernel) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Cannot filter with a null kernel!");
+    }
+    // The kernel reads flipped pixels through the view and writes them out in order
+    PixelRaster source = this.pixels();
+    this.raster = kernel.apply(source, this.maxValue);
+    source.release();
+    this.modified();
+  }
+
+  @Override
+  public void gaussianBlur(double sigma) throws IllegalArgumentException {
+    GaussianBlur blur = GaussianBlur.of(sigma);
+    PixelRaster source = this.pixels();
+    this.raster = blur.apply(source);
+    source.release();
+    this.modified();
+  }
+
+  @Override
+  public int[] colorValues(String type) throws IllegalArgumentException {
+    return this.colorValues(Channel.fromName(type));
+  }
+
+  @Override
+  public int[] colorValues(Channel channel) {
+    ColorHistogram known = this.knownHistogram();
+    if (known != null) {
+      // The colors are known even if the intensities were lost
+      return known.get(channel);
+    }
+    return this.histogram().get(channel);
+  }
+
+  @Override
+  public ColorHistogram histogram() {
+    ColorHistogram known = this.knownHistogram();
+    if ((known != null) && known.hasIntensity()) {
+      return known;
+    }
+    synchronized (this.counting) {
+      // Another thread may have finished counting while this one waited
+      known = this.knownHistogram();
+      if ((known != null) && known.hasIntensity()) {
+        return known;
       }
+      long counted = this.version;
+      // The counts do not depend on where each pixel is, so flips can be ignored
+      ColorHistogram result = ColorHistogram.of(this.pixels().storage());
+      this.storeHistogram(result, counted);
+      return result;
     }
   }
 
   @Override
-  public void filter(List<Double> values, int bounds) {
-    // For each of the pixels, apply Kernel to find avg for each RGB value, set value
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        // We want a radius of [i - 1][j - 1] --> [i + 1][j + 1]
-        int r = filterHelp(j, i, bounds, "red", values);
-        int g = filterHelp(j, i, bounds, "green", values);
-        int b = filterHelp(j, i, bounds, "blue", values);
-        this.pixelArray[i][j].set(r, g, b, this.maxValue);
+  public ColorHistogram approximateHistogram(int samples) throws IllegalArgumentException {
+    if (samples < 1) {
+      throw new IllegalArgumentException("A histogram needs at least one sample!");
+    }
+    ColorHistogram known = this.knownHistogram();
+    if (known != null) {
+      return known;
+    }
+    if ((long) this.width * this.height <= samples) {
+      return this.histogram();
+    }
+    return ColorHistogram.sample(this.pixels().storage(), samples);
+  }
+
+  @Override
+  public IPicture downSize(double heightRatio, double widthRatio) {
+    int newHeight = (int) (this.height * heightRatio);
+    int newWidth = (int) (this.width * widthRatio);
+    this.raster = this.pixels().materialize();
+    PixelRaster source = this.raster;
+
+    // Where each row and column is taken from only depends on its own index, so it is found once
+    double[] rowAt = samplePoints(newHeight, heightRatio);
+    double[] colAt = samplePoints(newWidth, widthRatio);
+    int[] floorCol = new int[newWidth];
+    int[] ceilCol = new int[newWidth];
+    for (int j = 0; j < newWidth; j++) {
+      floorCol[j] = (int) Math.floor(colAt[j]);
+      ceilCol[j] = (int) Math.ceil(colAt[j]);
+    }
+    PixelRaster scaled = source.create(newWidth, newHeight);
+
+    Parallelism.forEachBand(newHeight, (start, end) -> {
+      int[] top = new int[this.width];
+      int[] bottom = new int[this.width];
+      int[] out = new int[newWidth];
+      for (int i = start; i < end; i++) {
+        double rowPoint = rowAt[i];
+        int floorRow = (int) Math.floor(rowPoint);
+        source.getRow(floorRow, top);
+        if (rowPoint % 1 == 0) {
+          for (int j = 0; j < newWidth; j++) {
+            out[j] = top[(int) colAt[j]];
+          }
+        } else {
+          int ceilRow = (int) Math.ceil(rowPoint);
+          source.getRow(ceilRow, bottom);
+          for (int j = 0; j < newWidth; j++) {
+            double colPoint = colAt[j];
+            if (colPoint % 1 == 0) {
+              out[j] = top[(int) colPoint];
+              continue;
+            }
+            out[j] = interpolate(top[floorCol[j]], top[ceilCol[j]], bottom[floorCol[j]],
+                    bottom[ceilCol[j]], rowPoint, floorRow, ceilRow, colPoint, floorCol[j],
+                    ceilCol[j]);
+          }
+        }
+        scaled.setRow(i, out);
       }
+    }, source, scaled);
+
+    return this.createPicture(newWidth, newHeight, scaled);
+  }
+
+  /**
+   * Finds the point of the current image each row (or column) of a downsized image is taken from.
+   *
+   * @param size  The number of rows (or columns) of the downsized image
+   * @param ratio The ratio of the downsized size to the current size
+   * @return the point in the current image of each row (or column)
+   */
+  private static double[] samplePoints(int size, double ratio) {
+    double[] points = new double[size];
+    for (int k = 0; k < size; k++) {
+      points[k] = k / ratio;
     }
+    return points;
   }
 
   /**
-   * Takes in a list of kernel values inputting from left to right, with the top row first,
-   * followed by the rest of the rows. The given col and row represent the middle pixel of the
-   * kernel during calculations. The grid bounds determine the size of the kernel with the
-   * equation 1 + gridBounds * 2 (gridBounds 1 is 3x3, 2 is 5x5);
+   * Calculates the correct Pixel values when mapping one pixel to that of a large image.
+   * When the pixel location is represented by floating points, this method takes an average of
+   * the four surrounding pixels to help retain pixel data. This calculation helps to minimize
+   * visual artifacts.
    *
-   * @param col          The column of the current pixel located at the middle of kernel
-   * @param row          The row of the current pixel located at the middle of kernel
-   * @param gridBounds   The size of the kernel
-   * @param color        The color value to calculate for the current pixel
-   * @param kernelValues The list of values that make up the kernel
-   * @return The new integer value for this color of a given pixel after the kernel is applied
+   * @param pixelA      The pixel at the floor of the height and width
+   * @param pixelB      The pixel at the floor of the height and ceiling of the width
+   * @param pixelC      The pixel at the ceiling of the height and floor of the width
+   * @param pixelD      The pixel at the ceiling of the height and width
+   * @param height      The mapped pixel height value
+   * @param floorHeight The height rounded down
+   * @param ceilHeight  The height rounded up
+   * @param width       The mapped pixel width value
+   * @param floorWidth  The width rounded down
+   * @param ceilWidth   The width rounded up
+   * @return The packed average of the four surrounding pixels, fully opaque
    */
-  private int filterHelp(int col, int row, int gridBounds, String color,
-                         List<Double> kernelValues) {
-    double total = 0;
-    int count = 0;
-    for (int i = row - gridBounds; i <= row + gridBounds; i++) {
-      for (int j = col - gridBounds; j <= col + gridBounds; j++) {
-        // If the pixel in the kernel is a valid pixel (within 0,0 to Picture dimensions)
-        if ((i >= 0) && (j >= 0) && (i < this.height) && (j < this.width)) {
-          IPixel currPixel = this.pixelArray[i][j];
-          total = total + kernelValues.get(count) * currPixel.getValue(color);
-        }
-        count = count + 1;
-      }
+  private static int interpolate(int pixelA, int pixelB, int pixelC, int pixelD, double height,
+                                 int floorHeight, int ceilHeight, double width, int floorWidth,
+                                 int ceilWidth) {
+    int newPixel = PixelRaster.pack(0, 0, 0, 255);
+    for (Channel c : RGB_CHANNELS) {
+      double m = c.get(pixelB) * (width - floorWidth) + c.get(pixelA) * (ceilWidth - width);
+      double n = c.get(pixelD) * (width - floorWidth) + c.get(pixelC) * (ceilWidth - width);
+      double cp = n * (height - floorHeight) + m * (ceilHeight - height);
+      newPixel = c.set(newPixel, (int) cp);
     }
-    return (int) total;
+    return newPixel;
   }
 
   @Override
-  public int[] colorValues(String type) {
-    int[] colorValueList = new int[256];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int colorValue = (int) this.pixelArray[i][j].getValue(type);
-        colorValueList[colorValue] = colorValueList[colorValue] + 1;
-      }
+  public IPicture resize(int newWidth, int newHeight, ResampleFilter filter)
+          throws IllegalArgumentException {
+    if (filter == null) {
+      throw new IllegalArgumentException("Cannot resample with a null filter!");
     }
+    if ((newWidth < 1) || (newHeight < 1)) {
+      throw new IllegalArgumentException("An image must be at least one pixel wide and tall!");
+    }
+    // Shrinking by half or more starts from the smallest mipmap that is still large enough
+    Pyramid mipmaps = this.pyramid();
+    PixelRaster source = mipmaps.level(mipmaps.nearest(newWidth, newHeight));
+    Resampler resampler = Resampler.of(filter, source.getWidth(), source.getHeight(), newWidth,
+            newHeight);
+    // The resampler reads flipped pixels through the view and writes them out in order
+    PixelRaster scaled = resampler.apply(source);
+    return this.createPicture(newWidth, newHeight, scaled);
+  }
 
-    return colorValueList;
+  @Override
+  public int pyramidLevels() {
+    return Pyramid.depth(this.width, this.height);
+  }
+
+  @Override
+  public IPicture pyramidLevel(int level) throws IllegalArgumentException {
+    PixelRaster pixels = this.pyramid().level(level);
+    return this.createPicture(pixels.getWidth(), pixels.getHeight(), pixels.copy());
   }
 
   /**
-   * Calculates a 2D array of all the pixels that should be including in the masking effect.
-   * For a pixel to be included its RGB values must all be black.
-   * @return A 2D array of booleans, true represents a valid pixel
+   * Returns the mipmap pyramid of the current pixels, replacing the one kept on this Picture if
+   * the pixels changed or moved since it was made.
+   *
+   * @return the up to date pyramid
    */
+  private Pyramid pyramid() {
+    synchronized (this.counting) {
+      PixelRaster pixels = this.pixels();
+      if ((this.pyramid == null) || !this.pyramid.isFor(pixels, this.version)) {
+        if (this.pyramid != null) {
+          this.pyramid.release();
+        }
+        this.pyramid = new Pyramid(pixels, this.version);
+      }
+      return this.pyramid;
+    }
+  }
+
+  @Override
   public boolean[][] validPixels() {
+    Mask mask = this.mask();
     boolean[][] validPixelArray = new boolean[this.height][this.width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        IPixel currPixel = this.pixelArray[i][j];
-        if ((currPixel.getValue("red") == 255)
-                && (currPixel.getValue("green") == 255)
-                && (currPixel.getValue("blue") == 255)) {
-          validPixelArray[i][j] = true;
-        } else {
-          validPixelArray[i][j] = false;
-        }
+    for (int i = mask.getTop(); i < mask.getBottom(); i++) {
+      for (int k = 0; k < mask.spanCount(i); k++) {
+        Arrays.fill(validPixelArray[i], mask.spanStart(i, k), mask.spanEnd(i, k), true);
       }
     }
     return validPixelArray;
   }
 
   @Override
-  public void maskImage(IPicture maskedImage) {
-    boolean[][] validPixels = maskedImage.validPixels();
-    //IPicture validPicture;
-    //IPixel[][] validPixel = new IPixel[][];
+  public Mask mask() {
+    return Mask.white(this.pixels());
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        IPixel currPixel = this.pixelArray[i][j];
-        if (validPixels[i][j]) {
-          currPixel.brighten(50, 255);
+  @Override
+  public void maskImage(IPicture maskedImage) throws IllegalArgumentException {
+    if (maskedImage == null) {
+      throw new IllegalArgumentException("Cannot mask with a null picture!");
+    }
+    this.applyMasked(maskedImage.mask(), 0, region -> {
+      region.applyLut(ChannelLut.brighten(50, 255));
+      return region;
+    });
+  }
+
+  @Override
+  public void applyMasked(Mask mask, int reach, UnaryOperator<IPicture> edit)
+          throws IllegalArgumentException {
+    if ((mask == null) || (edit == null)) {
+      throw new IllegalArgumentException("Cannot apply a null edit or mask!");
+    }
+    if (reach < 0) {
+      throw new IllegalArgumentException("The reach of an edit cannot be negative!");
+    }
+    Mask within = mask.within(this.width, this.height);
+    if (within.isEmpty()) {
+      return;
+    }
+    PixelRaster pixels = this.pixels();
+    if (reach == 0) {
+      this.editPacked(within, pixels, edit);
+    } else {
+      this.editCropped(within, reach, pixels, edit);
+    }
+    this.modified();
+  }
+
+  /**
+   * Applies an edit that only looks at each pixel's own value to the selected pixels. The
+   * selected pixels are copied one after another into the rows of a new Picture as wide as the
+   * bounding box of the mask, the edit is applied to it, and the results are copied back.
+   *
+   * @param mask   The pixels to edit, the same size as this Picture
+   * @param pixels The up to date raster of this Picture
+   * @param edit   The edit to apply
+   * @throws IllegalArgumentException if the edit changes the size of the Picture given to it
+   */
+  private void editPacked(Mask mask, PixelRaster pixels, UnaryOperator<IPicture> edit)
+          throws IllegalArgumentException {
+    int packedWidth = mask.getRight() - mask.getLeft();
+    int packedHeight = (int) ((mask.getArea() + packedWidth - 1) / packedWidth);
+    PixelRaster packed = pixels.create(packedWidth, packedHeight);
+    int[] row = new int[packedWidth];
+    int packedRow = 0;
+    int filled = 0;
+    for (int i = mask.getTop(); i < mask.getBottom(); i++) {
+      for (int k = 0; k < mask.spanCount(i); k++) {
+        for (int j = mask.spanStart(i, k); j < mask.spanEnd(i, k); j++) {
+          row[filled++] = pixels.get(i, j);
+          if (filled == packedWidth) {
+            packed.setRow(packedRow++, row);
+            filled = 0;
+          }
+        }
+      }
+    }
+    if (filled > 0) {
+      packed.setRow(packedRow, row);
+    }
+    PixelRaster edited = this.edit(packed, edit);
+    packedRow = 0;
+    filled = packedWidth;
+    for (int i = mask.getTop(); i < mask.getBottom(); i++) {
+      for (int k = 0; k < mask.spanCount(i); k++) {
+        for (int j = mask.spanStart(i, k); j < mask.spanEnd(i, k); j++) {
+          if (filled == packedWidth) {
+            edited.getRow(packedRow++, row);
+            filled = 0;
+          }
+          pixels.set(i, j, row[filled++]);
+        }
+      }
+    }
+    edited.release();
+  }
+
+  /**
+   * Applies an edit that reads the pixels around each pixel to the selected pixels. The bounding
+   * box of the mask, grown by the reach of the edit, is copied into a new Picture, the edit is
+   * applied to it, and only the selected pixels are copied back. Every selected pixel is at least
+   * the reach away from the sides of the copy that are not sides of this Picture, so it sees the
+   * same pixels around it as it would in the whole image.
+   *
+   * @param mask   The pixels to edit, the same size as this Picture
+   * @param reach  How far away a pixel can be and still change a pixel in the edit
+   * @param pixels The up to date raster of this Picture
+   * @param edit   The edit to apply
+   * @throws IllegalArgumentException if the edit changes the size of the Picture given to it
+   */
+  private void editCropped(Mask mask, int reach, PixelRaster pixels,
+                           UnaryOperator<IPicture> edit) throws IllegalArgumentException {
+    int top = Math.max(0, mask.getTop() - reach);
+    int bottom = (int) Math.min(this.height, (long) mask.getBottom() + reach);
+    int left = Math.max(0, mask.getLeft() - reach);
+    int right = (int) Math.min(this.width, (long) mask.getRight() + reach);
+    PixelRaster cropped = pixels.create(right - left, bottom - top);
+    int[] row = new int[this.width];
+    int[] part = new int[right - left];
+    for (int i = top; i < bottom; i++) {
+      pixels.getRow(i, row);
+      System.arraycopy(row, left, part, 0, part.length);
+      cropped.setRow(i - top, part);
+    }
+    PixelRaster edited = this.edit(cropped, edit);
+    for (int i = mask.getTop(); i < mask.getBottom(); i++) {
+      if (mask.spanCount(i) == 0) {
+        continue;
+      }
+      edited.getRow(i - top, part);
+      pixels.getRow(i, row);
+      for (int k = 0; k < mask.spanCount(i); k++) {
+        int start = mask.spanStart(i, k);
+        System.arraycopy(part, start - left, row, start, mask.spanEnd(i, k) - start);
+      }
+      pixels.setRow(i, row);
+    }
+    edited.release();
+  }
+
+  /**
+   * Applies an edit to a new Picture holding the given raster.
+   *
+   * @param region The pixels to edit
+   * @param edit   The edit to apply
+   * @return the raster of the edited Picture, which the caller releases
+   * @throws IllegalArgumentException if the edit changes the size of the Picture
+   */
+  private PixelRaster edit(PixelRaster region, UnaryOperator<IPicture> edit)
+          throws IllegalArgumentException {
+    IPicture picture = this.createPicture(region.getWidth(), region.getHeight(), region);
+    IPicture edited = edit.apply(picture);
+    if ((edited == null) || (edited.getWidth() != region.getWidth())
+            || (edited.getHeight() != region.getHeight())) {
+      picture.release();
+      throw new IllegalArgumentException("A masked edit cannot change the size of the picture!");
+    }
+    PixelRaster result;
+    if (edited instanceof AbstractPicture) {
+      result = ((AbstractPicture) edited).pixels();
+    } else {
+      result = region.create(region.getWidth(), region.getHeight());
+      int[] row = new int[region.getWidth()];
+      for (int i = 0; i < region.getHeight(); i++) {
+        for (int j = 0; j < row.length; j++) {
+          row[j] = edited.getARGB(i, j);
         }
+        result.setRow(i, row);
       }
+      edited.release();
+    }
+    if (edited != picture) {
+      picture.release();
     }
+    return result;
   }
-}
\ No newline at end of file
+}
@@ -26,62 +26,57 @@ public abstract class AbstractPixel implements IPixel {
   @Override
   public abstract IPixel clone();
 
+  /**
+   * Returns the alpha value of this pixel. Pixels that do not store an alpha value are opaque.
+   *
+   * @return the alpha value of this pixel
+   */
+  protected int getAlpha() {
+    return 255;
+  }
+
+  /**
+   * Updates the alpha value of this pixel. Pixels that do not store an alpha value ignore it.
+   *
+   * @param alpha the new alpha value of this pixel
+   */
+  protected void setAlpha(int alpha) {
+    // An RGB pixel is always opaque
+  }
+
   @Override
   public String toString() {
     return this.red + " " + this.green + " " + this.blue + " ";
   }
 
   /**
-   * Checks if the red, green, and blue values of this pixel are the same as another RGB pixel.
+   * Checks if the red, green, blue, and alpha values of this pixel are the same as another pixel.
    *
    * @param other The object to check equality with
-   * @return True if all the RGB fields are identical, false otherwise
+   * @return True if all the RGBA fields are identical, false otherwise
    */
   @Override
   public boolean equals(Object other) {
-    if (!((other instanceof RGBPixel) || (other instanceof RGBAPixel))) {
+    if (!(other instanceof IPixel)) {
       return false;
     }
-    AbstractPixel that = (AbstractPixel) other;
-
-    int otherRed = (int) that.getValue("red");
-    int otherGreen = (int) that.getValue("green");
-    int otherBlue = (int) that.getValue("blue");
-    int otherAlpha = (int) that.getValue("alpha");
-    int thisAlpha = (int) this.getValue("alpha");
-    return ((this.red == otherRed) && (this.blue == otherBlue) && (this.green == otherGreen)
-            && (thisAlpha == otherAlpha));
+    IPixel that = (IPixel) other;
+    return ((this.red == that.getChannel(Channel.RED))
+            && (this.blue == that.getChannel(Channel.BLUE))
+            && (this.green == that.getChannel(Channel.GREEN))
+            && (this.getAlpha() == that.getChannel(Channel.ALPHA)));
   }
 
   @Override
   public int hashCode() {
-    int thisAlpha = (int) this.getValue("alpha");
-    return (Objects.hash(this.red, this.green, this.blue, thisAlpha));
+    return (Objects.hash(this.red, this.green, this.blue, this.getAlpha()));
   }
 
   @Override
   public void set(int r, int g, int b, int maxValue) {
-    if (r > maxValue) {
-      r = maxValue;
-    }
-    if (g > maxValue) {
-      g = maxValue;
-    }
-    if (b > maxValue) {
-      b = maxValue;
-    }
-    if (r < 0) {
-      r = 0;
-    }
-    if (g < 0) {
-      g = 0;
-    }
-    if (b < 0) {
-      b = 0;
-    }
-    this.red = r;
-    this.green = g;
-    this.blue = b;
+    this.red = ChannelLut.clamp(r, maxValue);
+    this.green = ChannelLut.clamp(g, maxValue);
+    this.blue = ChannelLut.clamp(b, maxValue);
   }
 
   /**
@@ -103,30 +98,41 @@ public abstract class AbstractPixel implements IPixel {
 
   /**
    * Updates the fields each of the RGB values by performing a greyscale image conversion
-   * of the type: intensity or value.
+   * of the type: value, intensity, luma, red, green, or blue.
    *
    * @param type The type of greyscale conversion
+   * @throws IllegalArgumentException if the type is not a valid greyscale type
    */
   @Override
-  public void greyScale(String type) {
+  public void greyScale(String type) throws IllegalArgumentException {
+    this.greyScale(GreyscaleType.fromName(type));
+  }
+
+  @Override
+  public void greyScale(GreyscaleType type) {
     int currValue;
 
-    if (type.equals("value")) {
-      currValue = Math.max(Math.max(this.red, this.green), this.blue);
-    } else if (type.equals("intensity")) {
-      currValue = (this.red + this.blue + this.green) / 3;
-    }
-    /*else if (type.equals("luma")) {
-      currValue = (int) (0.2126 * this.red + 0.7152 * this.green + 0.0722 * this.blue);
-    } else if (type.equals("red")) {
-      currValue = this.red;
-    } else if (type.equals("blue")) {
-      currValue = this.blue;
-    } else if (type.equals("green")) {
-      currValue = this.green;
-    } */
-    else {
-      throw new IllegalArgumentException("Invalid greyscale type!");
+    switch (type) {
+      case VALUE:
+        currValue = Math.max(Math.max(this.red, this.green), this.blue);
+        break;
+      case INTENSITY:
+        currValue = (this.red + this.blue + this.green) / 3;
+        break;
+      case LUMA:
+        currValue = (int) (0.2126 * this.red + 0.7152 * this.green + 0.0722 * this.blue);
+        break;
+      case RED:
+        currValue = this.red;
+        break;
+      case GREEN:
+        currValue = this.green;
+        break;
+      case BLUE:
+        currValue = this.blue;
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid greyscale type!");
     }
 
     this.red = currValue;
@@ -136,17 +142,33 @@ public abstract class AbstractPixel implements IPixel {
 
   @Override
   public double getValue(String color) throws IllegalArgumentException {
-    if (color.equals("red")) {
-      return this.red;
-    } else if (color.equals("green")) {
-      return this.green;
-    } else if (color.equals("blue")) {
-      return this.blue;
-    } else if (color.equals("alpha")) {
-      return 255;
-    } else {
-      throw new IllegalArgumentException("A RGB pixel does not store data of the given type!");
+    return this.getChannel(Channel.fromName(color));
+  }
+
+  @Override
+  public int getChannel(Channel channel) {
+    switch (channel) {
+      case RED:
+        return this.red;
+      case GREEN:
+        return this.green;
+      case BLUE:
+        return this.blue;
+      default:
+        return this.getAlpha();
     }
   }
-}
 
+  @Override
+  public int getARGB() {
+    return PixelRaster.pack(this.red, this.green, this.blue, this.getAlpha());
+  }
+
+  @Override
+  public void setARGB(int argb) {
+    this.red = PixelRaster.red(argb);
+    this.green = PixelRaster.green(argb);
+    this.blue = PixelRaster.blue(argb);
+    this.setAlpha(PixelRaster.alpha(argb));
+  }
+}
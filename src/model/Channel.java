@@ -0,0 +1,83 @@
+package model;
+
+/**
+ * Represents a single color channel of a pixel. Each channel knows where its value is stored in a
+ * packed ARGB int, so callers can resolve a channel once and then read or write the value of
+ * many pixels without comparing channel names for each one.
+ */
+public enum Channel {
+  RED("red", 16),
+  GREEN("green", 8),
+  BLUE("blue", 0),
+  ALPHA("alpha", 24);
+
+  private final String name;
+  private final int shift;
+
+  /**
+   * Creates a channel with the name used by the text commands and the bit position of its value
+   * in a packed ARGB int.
+   *
+   * @param name  The name of this channel
+   * @param shift The bit position of the lowest bit of this channel's value
+   */
+  Channel(String name, int shift) {
+    this.name = name;
+    this.shift = shift;
+  }
+
+  /**
+   * Returns the lowercase name of this channel ("red", "green", "blue", or "alpha").
+   *
+   * @return the name of this channel
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the bit position of this channel's value in a packed ARGB int.
+   *
+   * @return the number of bits the value of this channel is shifted by
+   */
+  public int getShift() {
+    return this.shift;
+  }
+
+  /**
+   * Extracts the value of this channel from a packed ARGB int.
+   *
+   * @param argb The packed pixel value
+   * @return the value of this channel 0-255
+   */
+  public int get(int argb) {
+    return (argb >>> this.shift) & 0xFF;
+  }
+
+  /**
+   * Replaces the value of this channel in a packed ARGB int.
+   *
+   * @param argb  The packed pixel value
+   * @param value The new value of this channel, must be within 0-255
+   * @return the packed pixel value with this channel replaced
+   */
+  public int set(int argb, int value) {
+    return (argb & ~(0xFF << this.shift)) | (value << this.shift);
+  }
+
+  /**
+   * Finds the channel with the given name.
+   *
+   * @param name The name of the channel ("red", "green", "blue", or "alpha")
+   * @return the channel with the given name
+   * @throws IllegalArgumentException if no channel has the given name
+   */
+  public static Channel fromName(String name) throws IllegalArgumentException {
+    for (Channel channel : Channel.values()) {
+      if (channel.name.equals(name)) {
+        return channel;
+      }
+    }
+    throw new IllegalArgumentException("A pixel does not store data of the given type!");
+  }
+}
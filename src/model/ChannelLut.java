@@ -0,0 +1,240 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a lookup table for each of the red, green and blue values of a pixel. Any operation
+ * where the new value of a color only depends on the old value of that same color (brightening,
+ * darkening, curves, levels, thresholds, gamma) can be turned into a table of the 256 possible
+ * results, which is computed once. Applying the table to a pixel is then three lookups with no
+ * branching or clamping, no matter how complicated the operation is. The alpha value of a pixel
+ * is never changed.
+ *
+ * <p>Two tables applied one after another combine into a single table with
+ * {@link #then(ChannelLut)}, and the combined table gives exactly the same results, so a chain
+ * of these operations costs the same as one.</p>
+ */
+public final class ChannelLut {
+  private static final int SIZE = 256;
+
+  // Each table is stored already shifted into the position of its color in a packed pixel
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+
+  /**
+   * Creates a lookup table from tables already shifted into place.
+   *
+   * @param red   The shifted red table
+   * @param green The shifted green table
+   * @param blue  The shifted blue table
+   */
+  private ChannelLut(int[] red, int[] green, int[] blue) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+  }
+
+  /**
+   * Creates a lookup table that uses the same table for the red, green and blue values.
+   *
+   * @param table The new value for each of the 256 old values
+   * @return the lookup table
+   * @throws IllegalArgumentException if the table does not have 256 values within 0-255
+   */
+  public static ChannelLut of(int[] table) throws IllegalArgumentException {
+    return of(table, table, table);
+  }
+
+  /**
+   * Creates a lookup table with a separate table for each of the red, green and blue values.
+   *
+   * @param red   The new red value for each of the 256 old red values
+   * @param green The new green value for each of the 256 old green values
+   * @param blue  The new blue value for each of the 256 old blue values
+   * @return the lookup table
+   * @throws IllegalArgumentException if a table does not have 256 values within 0-255
+   */
+  public static ChannelLut of(int[] red, int[] green, int[] blue)
+          throws IllegalArgumentException {
+    return new ChannelLut(shifted(red, Channel.RED), shifted(green, Channel.GREEN),
+            shifted(blue, Channel.BLUE));
+  }
+
+  /**
+   * Creates a lookup table by computing a function for every possible value and clamping the
+   * result to the given max value. The same function is used for every color.
+   *
+   * @param function The function to compute the new value of a color from its old value
+   * @param maxValue The max value of the Picture the table is made for
+   * @return the lookup table
+   * @throws IllegalArgumentException if the function is null
+   */
+  public static ChannelLut fromFunction(IntUnaryOperator function, int maxValue)
+          throws IllegalArgumentException {
+    if (function == null) {
+      throw new IllegalArgumentException("Cannot make a lookup table from a null function!");
+    }
+    int[] table = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      table[i] = clamp(function.applyAsInt(i), maxValue);
+    }
+    return of(table);
+  }
+
+  /**
+   * Creates a lookup table that adds a value to every color, clamped to the given max value.
+   * This brightens a Picture, or darkens it if the value is negative.
+   *
+   * @param value    The value to add to each color
+   * @param maxValue The max value of the Picture the table is made for
+   * @return the lookup table
+   */
+  public static ChannelLut brighten(int value, int maxValue) {
+    return fromFunction(i -> i + value, maxValue);
+  }
+
+  /**
+   * Creates a lookup table that gives the same results as a color matrix that does not mix the
+   * colors together, i.e. one where each new color only depends on the same old color.
+   *
+   * @param matrix   The color matrix
+   * @param maxValue The max value of the Picture the table is made for
+   * @return the lookup table
+   * @throws IllegalArgumentException if the matrix mixes colors together
+   */
+  public static ChannelLut fromMatrix(ColorMatrix matrix, int maxValue)
+          throws IllegalArgumentException {
+    if ((matrix == null) || !matrix.isPerChannel()) {
+      throw new IllegalArgumentException("Only a matrix that keeps the colors apart can be a "
+              + "lookup table!");
+    }
+    int[] red = new int[SIZE];
+    int[] green = new int[SIZE];
+    int[] blue = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      // Each color of a grey pixel is only changed by its own row of the matrix
+      int argb = matrix.apply(PixelRaster.pack(i, i, i, 255), maxValue);
+      red[i] = PixelRaster.red(argb);
+      green[i] = PixelRaster.green(argb);
+      blue[i] = PixelRaster.blue(argb);
+    }
+    return of(red, green, blue);
+  }
+
+  /**
+   * Checks a table and shifts its values into the position of a color in a packed pixel.
+   *
+   * @param table   The table to shift
+   * @param channel The color the table is for
+   * @return the shifted copy of the table
+   * @throws IllegalArgumentException if the table does not have 256 values within 0-255
+   */
+  private static int[] shifted(int[] table, Channel channel) throws IllegalArgumentException {
+    if ((table == null) || (table.length != SIZE)) {
+      throw new IllegalArgumentException("A lookup table needs exactly 256 values!");
+    }
+    int[] result = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      if ((table[i] < 0) || (table[i] > 255)) {
+        throw new IllegalArgumentException("A lookup table can only hold values within 0-255!");
+      }
+      result[i] = table[i] << channel.getShift();
+    }
+    return result;
+  }
+
+  /**
+   * Clamps a value so that it is between 0 and the given max value without branching.
+   *
+   * @param value    The value to clamp
+   * @param maxValue The largest value allowed
+   * @return the clamped value
+   */
+  public static int clamp(int value, int maxValue) {
+    return Math.max(0, Math.min(value, maxValue));
+  }
+
+  /**
+   * Combines this table with one applied after it into a single table.
+   *
+   * @param next The table applied after this one
+   * @return a table that gives the same results as applying this table and then the next
+   */
+  public ChannelLut then(ChannelLut next) {
+    int[] red = new int[SIZE];
+    int[] green = new int[SIZE];
+    int[] blue = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      red[i] = next.red[this.red[i] >>> Channel.RED.getShift()];
+      green[i] = next.green[this.green[i] >>> Channel.GREEN.getShift()];
+      blue[i] = next.blue[this.blue[i]];
+    }
+    return new ChannelLut(red, green, blue);
+  }
+
+  /**
+   * Returns the new value this table gives a color.
+   *
+   * @param channel The color to look up (red, green or blue)
+   * @param value   The old value of the color, within 0-255
+   * @return the new value of the color
+   * @throws IllegalArgumentException if the channel is alpha
+   */
+  public int get(Channel channel, int value) throws IllegalArgumentException {
+    switch (channel) {
+      case RED:
+        return this.red[value] >>> Channel.RED.getShift();
+      case GREEN:
+        return this.green[value] >>> Channel.GREEN.getShift();
+      case BLUE:
+        return this.blue[value];
+      default:
+        throw new IllegalArgumentException("A lookup table does not change the alpha value!");
+    }
+  }
+
+  /**
+   * Applies this table to a packed pixel.
+   *
+   * @param argb The packed value of the pixel
+   * @return the packed value with every color looked up
+   */
+  public int apply(int argb) {
+    return (argb & 0xFF000000) | this.red[(argb >>> 16) & 0xFF]
+            | this.green[(argb >>> 8) & 0xFF] | this.blue[argb & 0xFF];
+  }
+
+  /**
+   * Applies this table to every pixel in a row of packed values in place.
+   *
+   * @param pixels The packed values of the row
+   */
+  public void apply(int[] pixels) {
+    int[] r = this.red;
+    int[] g = this.green;
+    int[] b = this.blue;
+    for (int i = 0; i < pixels.length; i++) {
+      int argb = pixels[i];
+      pixels[i] = (argb & 0xFF000000) | r[(argb >>> 16) & 0xFF] | g[(argb >>> 8) & 0xFF]
+              | b[argb & 0xFF];
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof ChannelLut)) {
+      return false;
+    }
+    ChannelLut that = (ChannelLut) other;
+    return Arrays.equals(this.red, that.red) && Arrays.equals(this.green, that.green)
+            && Arrays.equals(this.blue, that.blue);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(this.red) * 31 * 31 + Arrays.hashCode(this.green) * 31
+            + Arrays.hashCode(this.blue);
+  }
+}
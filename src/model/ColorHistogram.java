@@ -0,0 +1,328 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Represents how many pixels of a Picture have each value 0-255 of red, green, blue and alpha,
+ * and of intensity (the average of the red, green and blue values, rounded down). Every count is
+ * found in a single pass over the pixels, and a histogram never changes once it is made.
+ *
+ * <p>A histogram can also be carried through a lookup table without looking at the pixels again,
+ * since every pixel with a given value of a color gets the same new value. The intensity of a
+ * pixel depends on all three colors together, so it can only be carried along when the table
+ * moves every value that is present by the same amount. Otherwise the intensities are left out,
+ * and the Picture counts them again if they are asked for.</p>
+ *
+ * <p>For very large images a histogram can be estimated from a sample of the pixels instead. The
+ * image is split into a grid of cells shaped like the image, one pixel is picked at random in
+ * each cell, and it is counted once for every pixel of its cell. Every part of the image is
+ * sampled evenly and the counts still add up to the number of pixels. With n samples, the
+ * fraction of pixels counted at any one value is within 0.98 / sqrt(n) of the exact fraction
+ * 95% of the time.</p>
+ *
+ * <p>The counts are kept as longs, so an image with more than 2^31 pixels of one value is counted
+ * exactly. The methods that give the counts as ints saturate them at the largest int instead of
+ * wrapping around, and {@link #getCounts(Channel)} and {@link #getIntensityCounts()} give the
+ * exact counts.</p>
+ */
+public final class ColorHistogram {
+  private static final int VALUES = 256;
+  // The counts of each kind of value are stored one after another in this order
+  private static final int RED = 0;
+  private static final int GREEN = VALUES;
+  private static final int BLUE = 2 * VALUES;
+  private static final int ALPHA = 3 * VALUES;
+  private static final int INTENSITY = 4 * VALUES;
+  // Multiplying a sum of three colors by this and dropping 16 bits divides it by 3
+  private static final int THIRD = 21846;
+  // Number of standard errors that 95% of estimates fall within
+  private static final double CONFIDENCE = 1.96;
+  // The same cells are always sampled, so estimates of the same pixels are the same
+  private static final long SEED = 0x5DEECE66DL;
+
+  private final long[] counts;
+  private final boolean hasIntensity;
+  // Number of pixels the counts were estimated from, or 0 if every pixel was counted
+  private final int samples;
+
+  /**
+   * Creates a histogram from its counts.
+   *
+   * @param counts       The counts of red, green, blue, alpha and intensity values, one after
+   *                     another
+   * @param hasIntensity false if the intensity counts are not known
+   * @param samples      The number of pixels sampled, or 0 if every pixel was counted
+   */
+  private ColorHistogram(long[] counts, boolean hasIntensity, int samples) {
+    this.counts = counts;
+    this.hasIntensity = hasIntensity;
+    this.samples = samples;
+  }
+
+  /**
+   * Counts the values of every pixel in a raster. The rows are split into bands that each count
+   * into their own table, and the tables are added together once every band is done.
+   *
+   * @param pixels The pixels to count
+   * @return the histogram of the pixels
+   */
+  static ColorHistogram of(PixelRaster pixels) {
+    int width = pixels.getWidth();
+    long[] total = new long[5 * VALUES];
+    Parallelism.forEachBand(pixels.getHeight(), (start, end) -> {
+      long[] counts = new long[5 * VALUES];
+      int[] row = new int[width];
+      for (int i = start; i < end; i++) {
+        pixels.getRow(i, row);
+        for (int j = 0; j < width; j++) {
+          int argb = row[j];
+          int red = (argb >> 16) & 0xFF;
+          int green = (argb >> 8) & 0xFF;
+          int blue = argb & 0xFF;
+          counts[RED + red]++;
+          counts[GREEN + green]++;
+          counts[BLUE + blue]++;
+          counts[ALPHA + (argb >>> 24)]++;
+          counts[INTENSITY + (((red + green + blue) * THIRD) >>> 16)]++;
+        }
+      }
+      synchronized (total) {
+        for (int k = 0; k < total.length; k++) {
+          total[k] += counts[k];
+        }
+      }
+    }, pixels);
+    return new ColorHistogram(total, true, 0);
+  }
+
+  /**
+   * Estimates the histogram of a raster from about the given number of pixels, picking one at
+   * random in each cell of a grid over the image. Each sample counts for every pixel of its
+   * cell. If there are not more pixels than samples, every pixel is counted exactly.
+   *
+   * @param pixels  The pixels to sample
+   * @param samples The number of pixels to sample
+   * @return the estimated histogram of the pixels
+   * @throws IllegalArgumentException if the number of samples is less than one
+   */
+  static ColorHistogram sample(PixelRaster pixels, int samples)
+          throws IllegalArgumentException {
+    if (samples < 1) {
+      throw new IllegalArgumentException("A histogram needs at least one sample!");
+    }
+    int width = pixels.getWidth();
+    int height = pixels.getHeight();
+    if ((long) width * height <= samples) {
+      return of(pixels);
+    }
+    // The cells are about as wide as they are tall
+    int rows = (int) Math.round(Math.sqrt((double) samples * height / width));
+    rows = Math.max(1, Math.min(height, rows));
+    int cols = Math.max(1, Math.min(width, samples / rows));
+    SplittableRandom random = new SplittableRandom(SEED);
+    long[] counts = new long[5 * VALUES];
+    for (int r = 0; r < rows; r++) {
+      int top = (int) ((long) r * height / rows);
+      int cellHeight = (int) ((long) (r + 1) * height / rows) - top;
+      for (int c = 0; c < cols; c++) {
+        int left = (int) ((long) c * width / cols);
+        int cellWidth = (int) ((long) (c + 1) * width / cols) - left;
+        int argb = pixels.get(top + random.nextInt(cellHeight), left + random.nextInt(cellWidth));
+        long area = (long) cellHeight * cellWidth;
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
+        counts[RED + red] += area;
+        counts[GREEN + green] += area;
+        counts[BLUE + blue] += area;
+        counts[ALPHA + (argb >>> 24)] += area;
+        counts[INTENSITY + (((red + green + blue) * THIRD) >>> 16)] += area;
+      }
+    }
+    return new ColorHistogram(counts, true, rows * cols);
+  }
+
+  /**
+   * Gives the number of samples needed to estimate a histogram within the given error. With
+   * that many samples, the fraction of pixels counted at any one value is within the error of
+   * the exact fraction 95% of the time.
+   *
+   * @param errorBound The largest error wanted, as a fraction of all the pixels (0.01 is 1%)
+   * @return the number of samples to use
+   * @throws IllegalArgumentException if the error is not between 0 and 1
+   */
+  public static int samplesFor(double errorBound) throws IllegalArgumentException {
+    if (!(errorBound > 0) || !(errorBound < 1)) {
+      throw new IllegalArgumentException("The error of a histogram must be between 0 and 1!");
+    }
+    double samples = Math.ceil(Math.pow(CONFIDENCE / (2 * errorBound), 2));
+    return (int) Math.min(samples, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gives the histogram of the pixels after the given lookup table is applied to them. Each count
+   * of a color moves to the value the table gives for it, and the alpha counts stay the same.
+   * Costs the same no matter how many pixels were counted.
+   *
+   * @param lut The lookup table applied to every pixel
+   * @return the histogram of the changed pixels, which may not know the intensities
+   */
+  ColorHistogram remap(ChannelLut lut) {
+    long[] result = new long[5 * VALUES];
+    for (int value = 0; value < VALUES; value++) {
+      result[RED + lut.get(Channel.RED, value)] += this.counts[RED + value];
+      result[GREEN + lut.get(Channel.GREEN, value)] += this.counts[GREEN + value];
+      result[BLUE + lut.get(Channel.BLUE, value)] += this.counts[BLUE + value];
+      result[ALPHA + value] = this.counts[ALPHA + value];
+    }
+    Integer shift = this.hasIntensity ? this.commonShift(lut) : null;
+    if (shift == null) {
+      return new ColorHistogram(result, false, this.samples);
+    }
+    // Adding the same amount to all three colors adds exactly that amount to their average
+    for (int value = 0; value < VALUES; value++) {
+      if (this.counts[INTENSITY + value] > 0) {
+        result[INTENSITY + value + shift] = this.counts[INTENSITY + value];
+      }
+    }
+    return new ColorHistogram(result, true, this.samples);
+  }
+
+  /**
+   * Finds the amount the given table adds to every color value that some pixel has, if it is the
+   * same amount for every one of them.
+   *
+   * @param lut The lookup table to check
+   * @return the amount added to every value present, or null if there is none
+   */
+  private Integer commonShift(ChannelLut lut) {
+    Integer shift = null;
+    Channel[] channels = {Channel.RED, Channel.GREEN, Channel.BLUE};
+    int[] offsets = {RED, GREEN, BLUE};
+    for (int c = 0; c < channels.length; c++) {
+      for (int value = 0; value < VALUES; value++) {
+        if (this.counts[offsets[c] + value] == 0) {
+          continue;
+        }
+        int moved = lut.get(channels[c], value) - value;
+        if (shift == null) {
+          shift = moved;
+        } else if (shift != moved) {
+          return null;
+        }
+      }
+    }
+    // With no pixels at all there is nothing to move
+    return (shift == null) ? 0 : shift;
+  }
+
+  /**
+   * Returns whether the intensity counts of this histogram are known. A histogram carried
+   * through a lookup table may only know the colors.
+   *
+   * @return false if the intensities have to be counted again
+   */
+  public boolean hasIntensity() {
+    return this.hasIntensity;
+  }
+
+  /**
+   * Returns whether every pixel was counted, rather than estimated from a sample.
+   *
+   * @return true if the counts are exact
+   */
+  public boolean isExact() {
+    return this.samples == 0;
+  }
+
+  /**
+   * Returns how far off the fraction of pixels counted at any one value may be, 95% of the
+   * time. An exact histogram is never off.
+   *
+   * @return the error bound as a fraction of all the pixels, or 0 if the counts are exact
+   */
+  public double getErrorBound() {
+    return this.isExact() ? 0 : CONFIDENCE / (2 * Math.sqrt(this.samples));
+  }
+
+  /**
+   * Returns how many pixels have each value 0-255 of the given channel. A count above the largest
+   * int is given as the largest int.
+   *
+   * @param channel The channel to get the counts of
+   * @return a new array holding the count of each value
+   */
+  public int[] get(Channel channel) {
+    return saturate(this.getCounts(channel));
+  }
+
+  /**
+   * Returns exactly how many pixels have each value 0-255 of the given channel.
+   *
+   * @param channel The channel to get the counts of
+   * @return a new array holding the count of each value
+   */
+  public long[] getCounts(Channel channel) {
+    switch (channel) {
+      case RED:
+        return this.copy(RED);
+      case GREEN:
+        return this.copy(GREEN);
+      case BLUE:
+        return this.copy(BLUE);
+      default:
+        return this.copy(ALPHA);
+    }
+  }
+
+  /**
+   * Returns how many pixels have each intensity 0-255, the average of their red, green and blue
+   * values rounded down. A count above the largest int is given as the largest int.
+   *
+   * @return a new array holding the count of each intensity
+   * @throws IllegalStateException if this histogram does not have the intensities, which
+   *                               {@link IPicture#histogram()} never returns
+   */
+  public int[] getIntensity() throws IllegalStateException {
+    return saturate(this.getIntensityCounts());
+  }
+
+  /**
+   * Returns exactly how many pixels have each intensity 0-255.
+   *
+   * @return a new array holding the count of each intensity
+   * @throws IllegalStateException if this histogram does not have the intensities
+   */
+  public long[] getIntensityCounts() throws IllegalStateException {
+    if (!this.hasIntensity) {
+      throw new IllegalStateException("The intensities of this histogram are not known!");
+    }
+    return this.copy(INTENSITY);
+  }
+
+  /**
+   * Copies the counts of one kind of value.
+   *
+   * @param offset The index of the first count
+   * @return a new array holding the 256 counts
+   */
+  private long[] copy(int offset) {
+    long[] result = new long[VALUES];
+    System.arraycopy(this.counts, offset, result, 0, VALUES);
+    return result;
+  }
+
+  /**
+   * Gives the counts as ints, with any count above the largest int given as the largest int.
+   *
+   * @param counts The exact counts
+   * @return a new array holding the saturated counts
+   */
+  private static int[] saturate(long[] counts) {
+    int[] result = new int[counts.length];
+    for (int k = 0; k < counts.length; k++) {
+      result[k] = (int) Math.min(counts[k], Integer.MAX_VALUE);
+    }
+    return result;
+  }
+}
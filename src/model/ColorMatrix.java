@@ -0,0 +1,320 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents an affine color transformation: a 3x3 matrix that mixes the red, green and blue
+ * values of a pixel, followed by an offset added to each of them. Brightening is an offset with
+ * the identity matrix, and every color transformation (greyscales, sepia) is a matrix with no
+ * offset. The alpha value of a pixel is never changed.
+ *
+ * <p>Applying a matrix computes each new value with doubles, truncates it to an int and clamps
+ * it to the max value of the Picture. Two matrices can be combined into one with
+ * {@link #then(ColorMatrix)}, but the result only matches applying them one after another for
+ * the matrices in {@link #composesWith(ColorMatrix)}.</p>
+ *
+ * <p>When {@link FixedPoint fixed point} math is on, rows of pixels are transformed with the
+ * values of the matrix scaled to whole numbers instead, which can make a new value one higher
+ * or lower than with doubles.</p>
+ */
+public final class ColorMatrix {
+  public static final ColorMatrix IDENTITY = new ColorMatrix(new double[] {
+      1, 0, 0, 0,
+      0, 1, 0, 0,
+      0, 0, 1, 0});
+
+  // Row major 3x4 values, each row is the red, green and blue weight followed by the offset
+  private final double[] values;
+  // The values scaled for fixed point math and the bits after their point, null if too large
+  private final int[] fixed;
+  private final int fixedBits;
+  // Whether the scaled values can ever give a new value below zero
+  private final boolean fixedNegative;
+
+  /**
+   * Creates a color matrix from its rows.
+   *
+   * @param values The 12 values of the matrix, row by row
+   */
+  private ColorMatrix(double[] values) {
+    this.values = values;
+    int bits = FixedPoint.FRACTION_BITS;
+    for (int row = 0; (row < 3) && (bits >= 0); row++) {
+      double[] weights = Arrays.copyOfRange(values, row * 4, row * 4 + 3);
+      int rowBits = FixedPoint.fractionBits(weights, values[row * 4 + 3]);
+      bits = (rowBits < 0) ? -1 : Math.min(bits, rowBits);
+    }
+    this.fixed = (bits < 0) ? null : FixedPoint.scale(values, bits);
+    this.fixedBits = bits;
+    boolean negative = false;
+    for (int corner = 0; (this.fixed != null) && (corner < 8); corner++) {
+      // Each new value only grows or shrinks with each old value, so its smallest value is at
+      // one of the corners where every color is 0 or 255
+      int red = ((corner & 1) != 0) ? 255 : 0;
+      int green = ((corner & 2) != 0) ? 255 : 0;
+      int blue = ((corner & 4) != 0) ? 255 : 0;
+      for (int row = 0; row < 3; row++) {
+        int start = row * 4;
+        negative = negative || (((this.fixed[start] * red + this.fixed[start + 1] * green
+                + this.fixed[start + 2] * blue + this.fixed[start + 3]) >> bits) < 0);
+      }
+    }
+    this.fixedNegative = negative;
+  }
+
+  /**
+   * Creates a color matrix from its 12 values given row by row. The first row computes the new
+   * red value as {@code values[0] * red + values[1] * green + values[2] * blue + values[3]}, and
+   * the second and third rows compute the new green and blue values the same way.
+   *
+   * @param values The values of the matrix
+   * @return the color matrix
+   * @throws IllegalArgumentException if there are not exactly 12 finite values
+   */
+  public static ColorMatrix of(double... values) throws IllegalArgumentException {
+    if ((values == null) || (values.length != 12)) {
+      throw new IllegalArgumentException("A color matrix needs exactly 12 values!");
+    }
+    for (double value : values) {
+      if (!Double.isFinite(value)) {
+        throw new IllegalArgumentException("A color matrix cannot hold infinite values!");
+      }
+    }
+    return new ColorMatrix(values.clone());
+  }
+
+  /**
+   * Creates a color matrix from the 9 values of a color transformation, in the order used by
+   * {@link IPicture#colorTransform(List)}: the first three values are the weights of the red
+   * value in the new red, green and blue values, followed by the weights of green and blue.
+   *
+   * @param transform The values of the transformation
+   * @return a color matrix with no offset
+   * @throws IllegalArgumentException if there are not exactly 9 values
+   */
+  public static ColorMatrix fromTransform(List<Double> transform)
+          throws IllegalArgumentException {
+    if ((transform == null) || (transform.size() != 9)) {
+      throw new IllegalArgumentException("Invalid values for the color transformation matrix");
+    }
+    double[] values = new double[12];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        values[row * 4 + col] = transform.get(col * 3 + row);
+      }
+    }
+    return of(values);
+  }
+
+  /**
+   * Creates a color matrix that adds the same value to the red, green and blue values of a
+   * pixel, which brightens (or darkens, if negative) it.
+   *
+   * @param value The value to add
+   * @return the color matrix
+   */
+  public static ColorMatrix offset(int value) {
+    return new ColorMatrix(new double[] {
+        1, 0, 0, value,
+        0, 1, 0, value,
+        0, 0, 1, value});
+  }
+
+  /**
+   * Combines this matrix with one applied after it into a single matrix.
+   *
+   * @param next The matrix applied after this one
+   * @return a matrix that applies this matrix and then the next
+   */
+  public ColorMatrix then(ColorMatrix next) {
+    double[] result = new double[12];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 4; col++) {
+        double total = (col == 3) ? next.values[row * 4 + 3] : 0;
+        for (int k = 0; k < 3; k++) {
+          total += next.values[row * 4 + k] * this.values[k * 4 + col];
+        }
+        result[row * 4 + col] = total;
+      }
+    }
+    return new ColorMatrix(result);
+  }
+
+  /**
+   * Checks if applying this matrix and then the next one gives exactly the same values as the
+   * single matrix from {@link #then(ColorMatrix)}. This is only the case for two brightenings
+   * that go in the same direction: their values stay whole numbers, and clamping twice in the
+   * same direction is the same as clamping once. Any other matrix truncates its values, and
+   * truncating once at the end can give a value a step or two away from truncating after each
+   * matrix, so those matrices are applied one after another.
+   *
+   * @param next The matrix applied after this one
+   * @return true if the matrices can be combined
+   */
+  public boolean composesWith(ColorMatrix next) {
+    return this.isOffset() && next.isOffset() && ((this.values[3] * next.values[3]) >= 0);
+  }
+
+  /**
+   * Checks if this matrix keeps the colors apart, meaning each new color only depends on the
+   * old value of the same color. A matrix like this can be turned into a
+   * {@link ChannelLut lookup table}.
+   *
+   * @return true if the matrix does not mix colors together
+   */
+  public boolean isPerChannel() {
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        if ((row != col) && (this.values[row * 4 + col] != 0)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if this matrix is the identity matrix with the same whole number offset added to
+   * every value, like a brightening.
+   *
+   * @return true if this matrix only adds an offset
+   */
+  private boolean isOffset() {
+    double offset = this.values[3];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        if (this.values[row * 4 + col] != ((row == col) ? 1 : 0)) {
+          return false;
+        }
+      }
+      if (this.values[row * 4 + 3] != offset) {
+        return false;
+      }
+    }
+    return offset == Math.rint(offset);
+  }
+
+  /**
+   * Computes a single new color value before it is clamped.
+   *
+   * @param row   The row of the matrix (0 for red, 1 for green, 2 for blue)
+   * @param red   The red value of the pixel
+   * @param green The green value of the pixel
+   * @param blue  The blue value of the pixel
+   * @return the truncated new value
+   */
+  private int compute(int row, double red, double green, double blue) {
+    int start = row * 4;
+    return (int) (this.values[start] * red + this.values[start + 1] * green
+            + this.values[start + 2] * blue + this.values[start + 3]);
+  }
+
+  /**
+   * Applies this matrix to a packed pixel, clamping each new value to the given max value and
+   * keeping the alpha value of the pixel.
+   *
+   * @param argb     The packed value of the pixel
+   * @param maxValue The max value of a color value
+   * @return the packed value of the transformed pixel
+   */
+  public int apply(int argb, int maxValue) {
+    double red = PixelRaster.red(argb);
+    double green = PixelRaster.green(argb);
+    double blue = PixelRaster.blue(argb);
+    int r = ChannelLut.clamp(this.compute(0, red, green, blue), maxValue);
+    int g = ChannelLut.clamp(this.compute(1, red, green, blue), maxValue);
+    int b = ChannelLut.clamp(this.compute(2, red, green, blue), maxValue);
+    return PixelRaster.pack(r, g, b, PixelRaster.alpha(argb));
+  }
+
+  /**
+   * Applies this matrix to every pixel in a row of packed values in place, with fixed point
+   * math if it is on.
+   *
+   * @param pixels   The packed values of the row
+   * @param maxValue The max value of a color value
+   */
+  public void apply(int[] pixels, int maxValue) {
+    if ((this.fixed != null) && FixedPoint.isEnabled()) {
+      this.applyFixed(pixels, maxValue);
+      return;
+    }
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = this.apply(pixels[i], maxValue);
+    }
+  }
+
+  /**
+   * Applies the scaled values of this matrix to every pixel in a row of packed values in place.
+   * Shifting the extra bits off rounds down instead of towards zero, which only changes
+   * negative values, and those are clamped to zero either way.
+   *
+   * <p>Most matrices (every greyscale, sepia and brightening) can never give a negative value,
+   * so only the max value has to be checked. That check is done with a sign mask, which keeps
+   * the loop small and free of branches so the JIT compiler runs it with vector instructions.
+   * The loop that also checks for negative values is too large for that.</p>
+   *
+   * @param pixels   The packed values of the row
+   * @param maxValue The max value of a color value
+   */
+  private void applyFixed(int[] pixels, int maxValue) {
+    int[] m = this.fixed;
+    int bits = this.fixedBits;
+    int rr = m[0];
+    int rg = m[1];
+    int rb = m[2];
+    int ro = m[3];
+    int gr = m[4];
+    int gg = m[5];
+    int gb = m[6];
+    int go = m[7];
+    int br = m[8];
+    int bg = m[9];
+    int bb = m[10];
+    int bo = m[11];
+    if (this.fixedNegative) {
+      for (int i = 0; i < pixels.length; i++) {
+        int argb = pixels[i];
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
+        int r = FixedPoint.clamp((rr * red + rg * green + rb * blue + ro) >> bits, maxValue);
+        int g = FixedPoint.clamp((gr * red + gg * green + gb * blue + go) >> bits, maxValue);
+        int b = FixedPoint.clamp((br * red + bg * green + bb * blue + bo) >> bits, maxValue);
+        pixels[i] = (argb & 0xFF000000) | (r << 16) | (g << 8) | b;
+      }
+      return;
+    }
+    for (int i = 0; i < pixels.length; i++) {
+      int argb = pixels[i];
+      int red = (argb >> 16) & 0xFF;
+      int green = (argb >> 8) & 0xFF;
+      int blue = argb & 0xFF;
+      // How far above the max value each new value is, which is kept only if it is negative
+      int r = ((rr * red + rg * green + rb * blue + ro) >> bits) - maxValue;
+      int g = ((gr * red + gg * green + gb * blue + go) >> bits) - maxValue;
+      int b = ((br * red + bg * green + bb * blue + bo) >> bits) - maxValue;
+      pixels[i] = (argb & 0xFF000000) | ((maxValue + (r & (r >> 31))) << 16)
+              | ((maxValue + (g & (g >> 31))) << 8) | (maxValue + (b & (b >> 31)));
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof ColorMatrix)) {
+      return false;
+    }
+    return Arrays.equals(this.values, ((ColorMatrix) other).values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(this.values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(this.values);
+  }
+}
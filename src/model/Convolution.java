@@ -0,0 +1,964 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a square kernel that filters a Picture by convolution. The new value of each color
+ * of a pixel is the sum of the weights of the kernel times the same color of the pixels around it,
+ * truncated to an int and clamped to the max value of the Picture. Neighbours that fall outside
+ * of the Picture are left out of the sum. The alpha value of a pixel is never changed.
+ *
+ * <p>The result is written to a new raster, so every pixel is computed from the original pixels
+ * around it and never from neighbours that were already filtered. Each row of the source is
+ * split into separate red, green and blue arrays once, all three colors are summed in the same
+ * sweep, and the pixels far enough from the edges are summed without checking any bounds.</p>
+ *
+ * <p>A kernel whose weights are exactly a column of weights times a row of weights (like a
+ * Gaussian blur) is separable. It is applied as a horizontal pass with the row followed by a
+ * vertical pass with the column, which costs two times the width of the kernel per pixel instead
+ * of the width squared. Other kernels can be replaced by a close separable kernel, or a sum of a
+ * few of them, with {@link #approximate(double)}.</p>
+ *
+ * <p>Large kernels are applied with fast Fourier transforms instead. The image is cut into
+ * square blocks, each block is transformed, multiplied by the transformed kernel and transformed
+ * back, which costs about the same no matter how large the kernel is. A simple cost model picks
+ * whichever of the direct, separable or transformed ways should be the fastest for the size of
+ * the kernel and the image. Transforms are not exact, so a value that lands right next to a
+ * whole number can come out one higher or lower than with the other ways.</p>
+ *
+ * <p>When {@link FixedPoint fixed point} math is on, a kernel whose weights are small enough is
+ * applied directly with its weights scaled to whole numbers, summing colors with ints. The cost
+ * model counts a whole number weight as cheaper than a double one, and still picks separable
+ * passes or transforms when those are cheaper. A value can then come out one higher or
+ * lower.</p>
+ */
+public final class Convolution {
+  // Number of steps used to find each separable part of an approximated kernel
+  private static final int POWER_ITERATIONS = 100;
+  // Cost of one butterfly of a transform compared to applying one weight to one pixel
+  private static final double BUTTERFLY_COST = 2;
+  // Width of block past which the cost of a butterfly grows, as blocks stop fitting in the cache
+  private static final int CACHED_FFT_SIZE = 256;
+  // Smallest and largest blocks used for transforms
+  private static final int MIN_FFT_SIZE = 32;
+  private static final int MAX_FFT_SIZE = 1024;
+  // Added to transformed results before truncating so tiny errors do not drop a whole value
+  private static final double FFT_ROUNDING = 1e-8;
+  // Cost of applying one whole number weight to one pixel compared to a double weight
+  private static final double FIXED_TAP_COST = 0.75;
+
+  private final double[] weights;
+  private final int radius;
+  private final int size;
+  // The separable parts of this kernel, null if it is applied directly
+  private final double[][] columns;
+  private final double[][] rows;
+  // The weights scaled for fixed point math and the bits after their point, null if too large
+  private final int[] fixedWeights;
+  private final int fixedBits;
+
+  /**
+   * Creates a kernel from its weights.
+   *
+   * @param weights The weights of the kernel, row by row
+   * @param radius  The number of pixels the kernel reaches out from its center
+   * @param columns The column of each separable part of the kernel, or null
+   * @param rows    The row of each separable part of the kernel, or null
+   */
+  private Convolution(double[] weights, int radius, double[][] columns, double[][] rows) {
+    this.weights = weights;
+    this.radius = radius;
+    this.size = 2 * radius + 1;
+    this.columns = columns;
+    this.rows = rows;
+    this.fixedBits = FixedPoint.fractionBits(weights, 0);
+    this.fixedWeights = (this.fixedBits < 0) ? null : FixedPoint.scale(weights, this.fixedBits);
+  }
+
+  /**
+   * Creates a kernel from its weights given row by row. A radius of 1 is a 3x3 kernel, a radius
+   * of 2 is a 5x5 kernel and so on. If the weights are exactly separable the kernel is applied
+   * as two passes.
+   *
+   * @param weights The weights of the kernel, the top row first
+   * @param radius  The number of pixels the kernel reaches out from its center
+   * @return the kernel
+   * @throws IllegalArgumentException if the radius is negative, or if the number of weights does
+   *                                  not match the radius or any weight is not finite
+   */
+  public static Convolution of(double[] weights, int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("A kernel cannot have a negative radius!");
+    }
+    int size = 2 * radius + 1;
+    if ((weights == null) || (weights.length != size * size)) {
+      throw new IllegalArgumentException("A kernel with a radius of " + radius + " needs exactly "
+              + (size * size) + " values!");
+    }
+    checkFinite(weights);
+    double[] copy = weights.clone();
+    double[][] parts = separate(copy, size);
+    if (parts == null) {
+      return new Convolution(copy, radius, null, null);
+    }
+    return new Convolution(copy, radius, new double[][] {parts[0]}, new double[][] {parts[1]});
+  }
+
+  /**
+   * Creates a separable kernel from a column of weights and a row of weights. The weight of the
+   * kernel at each location is the weight of its row in the column times the weight of its
+   * column in the row.
+   *
+   * @param column The vertical weights, from top to bottom
+   * @param row    The horizontal weights, from left to right
+   * @return the kernel
+   * @throws IllegalArgumentException if the column and row do not have the same odd number of
+   *                                  weights or any weight is not finite
+   */
+  public static Convolution separable(double[] column, double[] row)
+          throws IllegalArgumentException {
+    if ((column == null) || (row == null) || (column.length != row.length)
+            || (column.length % 2 == 0)) {
+      throw new IllegalArgumentException("A separable kernel needs a column and a row with the "
+              + "same odd number of values!");
+    }
+    checkFinite(column);
+    checkFinite(row);
+    int size = column.length;
+    double[][] columns = {column.clone()};
+    double[][] rows = {row.clone()};
+    return new Convolution(combine(columns, rows, size), size / 2, columns, rows);
+  }
+
+  /**
+   * Creates a kernel from the values given to {@link IPicture#filter(List, int)}.
+   *
+   * @param values The weights of the kernel, row by row
+   * @param radius The number of pixels the kernel reaches out from its center
+   * @return the kernel
+   * @throws IllegalArgumentException if the values are null or do not make a valid kernel
+   */
+  public static Convolution fromList(List<Double> values, int radius)
+          throws IllegalArgumentException {
+    if (values == null) {
+      throw new IllegalArgumentException("Cannot make a kernel from null values!");
+    }
+    double[] weights = new double[values.size()];
+    for (int i = 0; i < weights.length; i++) {
+      if (values.get(i) == null) {
+        throw new IllegalArgumentException("Cannot make a kernel from null values!");
+      }
+      weights[i] = values.get(i);
+    }
+    return of(weights, radius);
+  }
+
+  /**
+   * Checks that every weight is a finite number.
+   *
+   * @param weights The weights to check
+   * @throws IllegalArgumentException if any weight is not finite
+   */
+  private static void checkFinite(double[] weights) throws IllegalArgumentException {
+    for (double weight : weights) {
+      if (!Double.isFinite(weight)) {
+        throw new IllegalArgumentException("A kernel cannot hold infinite values!");
+      }
+    }
+  }
+
+  /**
+   * Splits a kernel into a column and a row whose product gives back exactly the same weights.
+   * If such a split exists, the row and column through the largest weight give it.
+   *
+   * @param weights The weights of the kernel, row by row
+   * @param size    The width of the kernel
+   * @return the column and the row, or null if the kernel is not exactly separable
+   */
+  private static double[][] separate(double[] weights, int size) {
+    int pivot = 0;
+    for (int i = 1; i < weights.length; i++) {
+      if (Math.abs(weights[i]) > Math.abs(weights[pivot])) {
+        pivot = i;
+      }
+    }
+    double[] column = new double[size];
+    double[] row = new double[size];
+    if (weights[pivot] != 0) {
+      int pivotRow = pivot / size;
+      int pivotCol = pivot % size;
+      for (int i = 0; i < size; i++) {
+        column[i] = weights[i * size + pivotCol];
+        row[i] = weights[pivotRow * size + i] / weights[pivot];
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (column[i] * row[j] != weights[i * size + j]) {
+          return null;
+        }
+      }
+    }
+    return new double[][] {column, row};
+  }
+
+  /**
+   * Adds up the products of each column and row into the weights of a kernel.
+   *
+   * @param columns The column of each separable part
+   * @param rows    The row of each separable part
+   * @param size    The width of the kernel
+   * @return the weights of the kernel, row by row
+   */
+  private static double[] combine(double[][] columns, double[][] rows, int size) {
+    double[] weights = new double[size * size];
+    for (int t = 0; t < columns.length; t++) {
+      for (int i = 0; i < size; i++) {
+        for (int j = 0; j < size; j++) {
+          weights[i * size + j] += columns[t][i] * rows[t][j];
+        }
+      }
+    }
+    return weights;
+  }
+
+  /**
+   * Creates a kernel close to this one made up of as few separable parts as needed for every
+   * weight to be within the given tolerance of this kernel's weight. The parts are the largest
+   * singular values of the kernel, found one at a time. If this kernel is already separable, or
+   * the parts needed would not be cheaper than applying this kernel directly, this kernel is
+   * returned as it is.
+   *
+   * @param tolerance The largest difference allowed for any weight
+   * @return a kernel made of separable parts, or this kernel
+   * @throws IllegalArgumentException if the tolerance is negative or not a number
+   */
+  public Convolution approximate(double tolerance) throws IllegalArgumentException {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("The tolerance cannot be negative!");
+    }
+    if (this.columns != null) {
+      return this;
+    }
+    // Each part costs two passes, so it is only worth it while that is less than the width
+    int maxParts = (this.size - 1) / 2;
+    double[] residual = this.weights.clone();
+    List<double[]> partColumns = new ArrayList<>();
+    List<double[]> partRows = new ArrayList<>();
+    while (largest(residual) > tolerance) {
+      if (partColumns.size() == maxParts) {
+        return this;
+      }
+      double[][] part = this.largestPart(residual);
+      partColumns.add(part[0]);
+      partRows.add(part[1]);
+      for (int i = 0; i < this.size; i++) {
+        for (int j = 0; j < this.size; j++) {
+          residual[i * this.size + j] -= part[0][i] * part[1][j];
+        }
+      }
+    }
+    if (partColumns.isEmpty()) {
+      return this;
+    }
+    double[][] columns = partColumns.toArray(new double[0][]);
+    double[][] rows = partRows.toArray(new double[0][]);
+    return new Convolution(combine(columns, rows, this.size), this.radius, columns, rows);
+  }
+
+  /**
+   * Returns the largest absolute value in an array.
+   *
+   * @param values The values to check
+   * @return the largest absolute value
+   */
+  private static double largest(double[] values) {
+    double largest = 0;
+    for (double value : values) {
+      largest = Math.max(largest, Math.abs(value));
+    }
+    return largest;
+  }
+
+  /**
+   * Finds the column and row whose product is closest to the given weights, using power
+   * iteration starting from the row with the largest weight.
+   *
+   * @param weights The weights of a kernel the size of this one, row by row
+   * @return the column and the row
+   */
+  private double[][] largestPart(double[] weights) {
+    int start = 0;
+    for (int i = 1; i < weights.length; i++) {
+      if (Math.abs(weights[i]) > Math.abs(weights[start])) {
+        start = i;
+      }
+    }
+    double[] row = Arrays.copyOfRange(weights, (start / this.size) * this.size,
+            (start / this.size + 1) * this.size);
+    double[] column = new double[this.size];
+    for (int step = 0; step < POWER_ITERATIONS; step++) {
+      // The column is the unit vector the row maps to, and the row is what the column maps back
+      double norm = 0;
+      for (int i = 0; i < this.size; i++) {
+        double total = 0;
+        for (int j = 0; j < this.size; j++) {
+          total += weights[i * this.size + j] * row[j];
+        }
+        column[i] = total;
+        norm += total * total;
+      }
+      norm = Math.sqrt(norm);
+      for (int i = 0; i < this.size; i++) {
+        column[i] /= norm;
+      }
+      for (int j = 0; j < this.size; j++) {
+        double total = 0;
+        for (int i = 0; i < this.size; i++) {
+          total += weights[i * this.size + j] * column[i];
+        }
+        row[j] = total;
+      }
+    }
+    return new double[][] {column, row};
+  }
+
+  /**
+   * Returns the number of pixels this kernel reaches out from its center.
+   *
+   * @return the radius of this kernel
+   */
+  public int getRadius() {
+    return this.radius;
+  }
+
+  /**
+   * Checks if this kernel is applied as separate horizontal and vertical passes.
+   *
+   * @return true if this kernel is made of separable parts
+   */
+  public boolean isSeparable() {
+    return this.columns != null;
+  }
+
+  /**
+   * Returns the weights of this kernel row by row. For an approximated kernel these are the
+   * weights it actually applies.
+   *
+   * @return a copy of the weights
+   */
+  public double[] getWeights() {
+    return this.weights.clone();
+  }
+
+  /**
+   * Filters every pixel of a raster with this kernel and stores the results in a new raster of
+   * the same kind. The given raster is only read, never written to.
+   *
+   * @param source   The pixels to filter
+   * @param maxValue The max value of a color value
+   * @return a new raster holding the filtered pixels
+   */
+  public PixelRaster apply(PixelRaster source, int maxValue) {
+    PixelRaster result = source.create(source.getWidth(), source.getHeight());
+    int fftSize = this.fftSize(source.getWidth(), source.getHeight());
+    if (fftSize > 0) {
+      this.applyFft(source, result, fftSize, maxValue);
+      return result;
+    }
+    boolean fixed = this.usesFixedPoint();
+    Parallelism.forEachBand(source.getHeight(), (start, end) -> {
+      if (fixed) {
+        this.applyFixedBand(source, result, start, end, maxValue);
+      } else if (this.columns == null) {
+        this.applyBand(source, result, start, end, maxValue);
+      } else {
+        this.applySeparableBand(source, result, start, end, maxValue);
+      }
+    }, source, result);
+    return result;
+  }
+
+  /**
+   * Returns the cost of filtering one pixel without transforms, counted in weights applied.
+   *
+   * @return the cost per pixel of applying this kernel directly or as separable passes
+   */
+  private double directCost() {
+    if (this.usesFixedPoint()) {
+      return this.size * this.size * FIXED_TAP_COST;
+    }
+    return (this.columns == null) ? this.size * this.size : 2.0 * this.size * this.columns.length;
+  }
+
+  /**
+   * Checks if this kernel should be applied directly with fixed point math, which needs fixed
+   * point to be on and the weights to be small enough. A separable kernel only is if that is
+   * cheaper than its separable passes.
+   *
+   * @return true if the kernel is applied with whole number weights
+   */
+  private boolean usesFixedPoint() {
+    if ((this.fixedWeights == null) || !FixedPoint.isEnabled()) {
+      return false;
+    }
+    return (this.columns == null)
+            || (this.size * this.size * FIXED_TAP_COST < 2.0 * this.size * this.columns.length);
+  }
+
+  /**
+   * Picks the width of the blocks to use for fast Fourier transforms, if transforms are cheaper
+   * than applying this kernel directly (or as separable passes) to an image of the given size.
+   * Larger blocks waste less work on the overlap between blocks but cost more per pixel, so every
+   * width from the smallest that fits the kernel up to the one that holds the whole image is
+   * compared.
+   *
+   * @param width  The width of the image
+   * @param height The height of the image
+   * @return the width of the blocks, or 0 if transforms are not worth it
+   */
+  private int fftSize(int width, int height) {
+    long pixels = (long) width * height;
+    double best = pixels * this.directCost();
+    int bestSize = 0;
+    int smallest = Math.max(MIN_FFT_SIZE, Integer.highestOneBit(2 * this.size - 1) * 2);
+    for (int n = smallest; n <= MAX_FFT_SIZE; n *= 2) {
+      int block = n - 2 * this.radius;
+      long blocks = (long) ((height + block - 1) / block) * ((width + block - 1) / block);
+      // Two forward and two inverse transforms per block, each n * n * log(n) butterflies
+      double cost = blocks * 4.0 * n * n * Integer.numberOfTrailingZeros(n) * BUTTERFLY_COST
+              * (1 + (double) n / CACHED_FFT_SIZE);
+      if (cost < best) {
+        best = cost;
+        bestSize = n;
+      }
+      if ((block >= width) && (block >= height)) {
+        break;
+      }
+    }
+    return bestSize;
+  }
+
+  /**
+   * Filters a raster with fast Fourier transforms. The output is cut into square blocks, each
+   * one read together with the border of pixels around it that the kernel reaches (outside of the
+   * image these are zero). The red and green values of a block are transformed together as the
+   * real and imaginary parts of one transform, and the blue values as another. Multiplying by
+   * the transformed kernel and transforming back gives the filtered block, and since the kernel
+   * is real the red and green results come back apart. Rows of blocks are split between threads.
+   *
+   * @param source   The pixels to filter
+   * @param result   The raster to store the filtered pixels in
+   * @param n        The width of the transformed blocks, a power of two
+   * @param maxValue The max value of a color value
+   */
+  private void applyFft(PixelRaster source, PixelRaster result, int n, int maxValue) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int block = n - 2 * this.radius;
+    Fft fft = new Fft(n);
+
+    // The kernel is placed so that the transformed product sums each pixel with the neighbours
+    // below and to the right of it, which puts each result at the top left corner of its window
+    double[] kernelRe = new double[n * n];
+    double[] kernelIm = new double[n * n];
+    for (int ky = 0; ky < this.size; ky++) {
+      for (int kx = 0; kx < this.size; kx++) {
+        kernelRe[((n - ky) % n) * n + (n - kx) % n] = this.weights[ky * this.size + kx];
+      }
+    }
+    fft.transform2d(kernelRe, kernelIm, false);
+
+    int blockRows = (height + block - 1) / block;
+    Parallelism.forEachBand(blockRows, 1, (start, end) -> {
+      double[] redGreenRe = new double[n * n];
+      double[] redGreenIm = new double[n * n];
+      double[] blueRe = new double[n * n];
+      double[] blueIm = new double[n * n];
+      int[][] packed = new int[n][width];
+      int[][] out = new int[block][width];
+      for (int b = start; b < end; b++) {
+        int top = b * block;
+        int rowsOut = Math.min(block, height - top);
+        // Read every source row the blocks of this row need, including the border
+        int firstRow = Math.max(0, top - this.radius);
+        int lastRow = Math.min(height, top - this.radius + n);
+        for (int row = firstRow; row < lastRow; row++) {
+          source.getRow(row, packed[row - (top - this.radius)]);
+        }
+        for (int left = 0; left < width; left += block) {
+          int colsOut = Math.min(block, width - left);
+          Arrays.fill(redGreenRe, 0);
+          Arrays.fill(redGreenIm, 0);
+          Arrays.fill(blueRe, 0);
+          Arrays.fill(blueIm, 0);
+          int firstCol = Math.max(0, left - this.radius);
+          int lastCol = Math.min(width, left - this.radius + n);
+          for (int row = firstRow; row < lastRow; row++) {
+            int[] pixels = packed[row - (top - this.radius)];
+            int base = (row - (top - this.radius)) * n - (left - this.radius);
+            for (int col = firstCol; col < lastCol; col++) {
+              int argb = pixels[col];
+              redGreenRe[base + col] = (argb >> 16) & 0xFF;
+              redGreenIm[base + col] = (argb >> 8) & 0xFF;
+              blueRe[base + col] = argb & 0xFF;
+            }
+          }
+          fft.transform2d(redGreenRe, redGreenIm, false);
+          fft.transform2d(blueRe, blueIm, false);
+          multiply(redGreenRe, redGreenIm, kernelRe, kernelIm);
+          multiply(blueRe, blueIm, kernelRe, kernelIm);
+          fft.transform2d(redGreenRe, redGreenIm, true);
+          fft.transform2d(blueRe, blueIm, true);
+          for (int u = 0; u < rowsOut; u++) {
+            int[] center = packed[u + this.radius];
+            for (int v = 0; v < colsOut; v++) {
+              int index = u * n + v;
+              out[u][left + v] = PixelRaster.pack(
+                      ChannelLut.clamp((int) (redGreenRe[index] + FFT_ROUNDING), maxValue),
+                      ChannelLut.clamp((int) (redGreenIm[index] + FFT_ROUNDING), maxValue),
+                      ChannelLut.clamp((int) (blueRe[index] + FFT_ROUNDING), maxValue),
+                      PixelRaster.alpha(center[left + v]));
+            }
+          }
+        }
+        for (int u = 0; u < rowsOut; u++) {
+          result.setRow(top + u, out[u]);
+        }
+      }
+    }, source, result);
+  }
+
+  /**
+   * Multiplies a block of complex values by another block in place.
+   *
+   * @param re      The real parts to multiply and store the product in
+   * @param im      The imaginary parts to multiply and store the product in
+   * @param otherRe The real parts to multiply by
+   * @param otherIm The imaginary parts to multiply by
+   */
+  private static void multiply(double[] re, double[] im, double[] otherRe, double[] otherIm) {
+    for (int i = 0; i < re.length; i++) {
+      double r = re[i] * otherRe[i] - im[i] * otherIm[i];
+      im[i] = re[i] * otherIm[i] + im[i] * otherRe[i];
+      re[i] = r;
+    }
+  }
+
+  /**
+   * Filters the rows of a band. The source rows the kernel covers are kept in a ring that holds
+   * one row for each row of the kernel, so every source row is only read and split into colors
+   * once per band.
+   *
+   * @param source   The pixels to filter
+   * @param result   The raster to store the filtered rows in
+   * @param start    The first row of the band
+   * @param end      The row after the last row of the band
+   * @param maxValue The max value of a color value
+   */
+  private void applyBand(PixelRaster source, PixelRaster result, int start, int end,
+                         int maxValue) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[][] packed = new int[this.size][width];
+    double[][] reds = new double[this.size][width];
+    double[][] greens = new double[this.size][width];
+    double[][] blues = new double[this.size][width];
+    int[] loaded = new int[this.size];
+    Arrays.fill(loaded, -1);
+
+    double[] sumRed = new double[width];
+    double[] sumGreen = new double[width];
+    double[] sumBlue = new double[width];
+    int[] out = new int[width];
+
+    for (int i = start; i < end; i++) {
+      Arrays.fill(sumRed, 0);
+      Arrays.fill(sumGreen, 0);
+      Arrays.fill(sumBlue, 0);
+      // Rows of the kernel above or below the Picture are left out
+      int firstRow = Math.max(0, this.radius - i);
+      int lastRow = Math.min(this.size - 1, height - 1 - i + this.radius);
+      for (int ky = firstRow; ky <= lastRow; ky++) {
+        int sourceRow = i - this.radius + ky;
+        int slot = sourceRow % this.size;
+        if (loaded[slot] != sourceRow) {
+          source.getRow(sourceRow, packed[slot]);
+          split(packed[slot], reds[slot], greens[slot], blues[slot], width);
+          loaded[slot] = sourceRow;
+        }
+        this.sumRow(this.weights, ky * this.size, width, reds[slot], greens[slot], blues[slot],
+                sumRed, sumGreen, sumBlue);
+      }
+      pack(packed[i % this.size], sumRed, sumGreen, sumBlue, out, width, maxValue);
+      result.setRow(i, out);
+    }
+  }
+
+  /**
+   * Filters the rows of a band with the separable parts of this kernel. Every source row the
+   * kernel covers is summed horizontally with the row of each part once per band and kept in a
+   * ring, and each new row is then the vertical sum of the rows in the ring.
+   *
+   * @param source   The pixels to filter
+   * @param result   The raster to store the filtered rows in
+   * @param start    The first row of the band
+   * @param end      The row after the last row of the band
+   * @param maxValue The max value of a color value
+   */
+  private void applySeparableBand(PixelRaster source, PixelRaster result, int start, int end,
+                                  int maxValue) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int parts = this.columns.length;
+    int[][] packed = new int[this.size][width];
+    // Horizontal sums of each color, indexed by part and then by slot in the ring
+    double[][][] reds = new double[parts][this.size][width];
+    double[][][] greens = new double[parts][this.size][width];
+    double[][][] blues = new double[parts][this.size][width];
+    int[] loaded = new int[this.size];
+    Arrays.fill(loaded, -1);
+
+    double[] red = new double[width];
+    double[] green = new double[width];
+    double[] blue = new double[width];
+    double[] sumRed = new double[width];
+    double[] sumGreen = new double[width];
+    double[] sumBlue = new double[width];
+    int[] out = new int[width];
+
+    for (int i = start; i < end; i++) {
+      Arrays.fill(sumRed, 0);
+      Arrays.fill(sumGreen, 0);
+      Arrays.fill(sumBlue, 0);
+      int firstRow = Math.max(0, this.radius - i);
+      int lastRow = Math.min(this.size - 1, height - 1 - i + this.radius);
+      for (int ky = firstRow; ky <= lastRow; ky++) {
+        int sourceRow = i - this.radius + ky;
+        int slot = sourceRow % this.size;
+        if (loaded[slot] != sourceRow) {
+          source.getRow(sourceRow, packed[slot]);
+          split(packed[slot], red, green, blue, width);
+          for (int t = 0; t < parts; t++) {
+            Arrays.fill(reds[t][slot], 0);
+            Arrays.fill(greens[t][slot], 0);
+            Arrays.fill(blues[t][slot], 0);
+            this.sumRow(this.rows[t], 0, width, red, green, blue,
+                    reds[t][slot], greens[t][slot], blues[t][slot]);
+          }
+          loaded[slot] = sourceRow;
+        }
+        for (int t = 0; t < parts; t++) {
+          double weight = this.columns[t][ky];
+          addScaled(weight, reds[t][slot], sumRed, width);
+          addScaled(weight, greens[t][slot], sumGreen, width);
+          addScaled(weight, blues[t][slot], sumBlue, width);
+        }
+      }
+      pack(packed[i % this.size], sumRed, sumGreen, sumBlue, out, width, maxValue);
+      result.setRow(i, out);
+    }
+  }
+
+  /**
+   * Filters the rows of a band the same way as {@link #applyBand}, but with the weights scaled to
+   * whole numbers. The colors of each source row are kept as ints and every sum is an int, and
+   * the extra bits are shifted off once a sum is done.
+   *
+   * @param source   The pixels to filter
+   * @param result   The raster to store the filtered rows in
+   * @param start    The first row of the band
+   * @param end      The row after the last row of the band
+   * @param maxValue The max value of a color value
+   */
+  private void applyFixedBand(PixelRaster source, PixelRaster result, int start, int end,
+                              int maxValue) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[][] packed = new int[this.size][width];
+    int[][] reds = new int[this.size][width];
+    int[][] greens = new int[this.size][width];
+    int[][] blues = new int[this.size][width];
+    int[] loaded = new int[this.size];
+    Arrays.fill(loaded, -1);
+
+    int[] sumRed = new int[width];
+    int[] sumGreen = new int[width];
+    int[] sumBlue = new int[width];
+    int[] out = new int[width];
+
+    for (int i = start; i < end; i++) {
+      Arrays.fill(sumRed, 0);
+      Arrays.fill(sumGreen, 0);
+      Arrays.fill(sumBlue, 0);
+      int firstRow = Math.max(0, this.radius - i);
+      int lastRow = Math.min(this.size - 1, height - 1 - i + this.radius);
+      for (int ky = firstRow; ky <= lastRow; ky++) {
+        int sourceRow = i - this.radius + ky;
+        int slot = sourceRow % this.size;
+        if (loaded[slot] != sourceRow) {
+          source.getRow(sourceRow, packed[slot]);
+          splitFixed(packed[slot], reds[slot], greens[slot], blues[slot], width);
+          loaded[slot] = sourceRow;
+        }
+        this.sumRowFixed(ky * this.size, width, reds[slot], greens[slot], blues[slot],
+                sumRed, sumGreen, sumBlue);
+      }
+      int[] center = packed[i % this.size];
+      for (int j = 0; j < width; j++) {
+        out[j] = (center[j] & 0xFF000000)
+                | (FixedPoint.clamp(sumRed[j] >> this.fixedBits, maxValue) << 16)
+                | (FixedPoint.clamp(sumGreen[j] >> this.fixedBits, maxValue) << 8)
+                | FixedPoint.clamp(sumBlue[j] >> this.fixedBits, maxValue);
+      }
+      result.setRow(i, out);
+    }
+  }
+
+  /**
+   * Splits a row of packed pixels into separate arrays of red, green and blue values as ints.
+   *
+   * @param packed The packed pixels
+   * @param red    The array to store the red values in
+   * @param green  The array to store the green values in
+   * @param blue   The array to store the blue values in
+   * @param width  The number of pixels in the row
+   */
+  private static void splitFixed(int[] packed, int[] red, int[] green, int[] blue, int width) {
+    for (int j = 0; j < width; j++) {
+      int argb = packed[j];
+      red[j] = (argb >> 16) & 0xFF;
+      green[j] = (argb >> 8) & 0xFF;
+      blue[j] = argb & 0xFF;
+    }
+  }
+
+  /**
+   * Adds one row of whole number weights times a row of colors to the sums of every column, the
+   * same way as {@link #sumRow}.
+   *
+   * @param offset   The index of the first weight of the row in the scaled weights
+   * @param width    The number of pixels in the row
+   * @param red      The red values of the source row
+   * @param green    The green values of the source row
+   * @param blue     The blue values of the source row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   */
+  private void sumRowFixed(int offset, int width, int[] red, int[] green, int[] blue,
+                           int[] sumRed, int[] sumGreen, int[] sumBlue) {
+    int interiorStart = Math.min(this.radius, width);
+    int interiorEnd = Math.max(interiorStart, width - this.radius);
+    for (int kx = 0; kx < this.size; kx++) {
+      int weight = this.fixedWeights[offset + kx];
+      int shift = kx - this.radius;
+      for (int j = interiorStart; j < interiorEnd; j++) {
+        sumRed[j] += weight * red[j + shift];
+      }
+      for (int j = interiorStart; j < interiorEnd; j++) {
+        sumGreen[j] += weight * green[j + shift];
+      }
+      for (int j = interiorStart; j < interiorEnd; j++) {
+        sumBlue[j] += weight * blue[j + shift];
+      }
+    }
+    for (int j = 0; j < interiorStart; j++) {
+      this.sumBorderFixed(offset, j, width, red, green, blue, sumRed, sumGreen, sumBlue);
+    }
+    for (int j = interiorEnd; j < width; j++) {
+      this.sumBorderFixed(offset, j, width, red, green, blue, sumRed, sumGreen, sumBlue);
+    }
+  }
+
+  /**
+   * Adds one row of whole number weights to the sums of a column near the left or right edge,
+   * leaving out the weights that fall outside of the row.
+   *
+   * @param offset   The index of the first weight of the row in the scaled weights
+   * @param col      The column to add to
+   * @param width    The number of pixels in the row
+   * @param red      The red values of the source row
+   * @param green    The green values of the source row
+   * @param blue     The blue values of the source row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   */
+  private void sumBorderFixed(int offset, int col, int width, int[] red, int[] green,
+                              int[] blue, int[] sumRed, int[] sumGreen, int[] sumBlue) {
+    int first = col - this.radius;
+    int startTap = Math.max(0, -first);
+    int endTap = Math.min(this.size, width - first);
+    for (int kx = startTap; kx < endTap; kx++) {
+      int weight = this.fixedWeights[offset + kx];
+      sumRed[col] += weight * red[first + kx];
+      sumGreen[col] += weight * green[first + kx];
+      sumBlue[col] += weight * blue[first + kx];
+    }
+  }
+
+  /**
+   * Adds a row of values times a weight to a row of sums.
+   *
+   * @param weight The weight to multiply by
+   * @param values The values to add
+   * @param sums   The sums to add to
+   * @param width  The number of values in the row
+   */
+  private static void addScaled(double weight, double[] values, double[] sums, int width) {
+    for (int j = 0; j < width; j++) {
+      sums[j] += weight * values[j];
+    }
+  }
+
+  /**
+   * Turns the sums of each color into packed pixels, truncating and clamping each sum and keeping
+   * the alpha value of the original pixel.
+   *
+   * @param center   The original packed pixels of the row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   * @param out      The array to store the packed pixels in
+   * @param width    The number of pixels in the row
+   * @param maxValue The max value of a color value
+   */
+  private static void pack(int[] center, double[] sumRed, double[] sumGreen, double[] sumBlue,
+                           int[] out, int width, int maxValue) {
+    for (int j = 0; j < width; j++) {
+      out[j] = PixelRaster.pack(ChannelLut.clamp((int) sumRed[j], maxValue),
+              ChannelLut.clamp((int) sumGreen[j], maxValue),
+              ChannelLut.clamp((int) sumBlue[j], maxValue), PixelRaster.alpha(center[j]));
+    }
+  }
+
+  /**
+   * Splits a row of packed pixels into separate arrays of red, green and blue values.
+   *
+   * @param packed The packed pixels
+   * @param red    The array to store the red values in
+   * @param green  The array to store the green values in
+   * @param blue   The array to store the blue values in
+   * @param width  The number of pixels in the row
+   */
+  private static void split(int[] packed, double[] red, double[] green, double[] blue,
+                            int width) {
+    for (int j = 0; j < width; j++) {
+      int argb = packed[j];
+      red[j] = (argb >> 16) & 0xFF;
+      green[j] = (argb >> 8) & 0xFF;
+      blue[j] = argb & 0xFF;
+    }
+  }
+
+  /**
+   * Adds one row of weights times a row of colors to the sums of every column. The columns near
+   * the left and right edges leave out the weights that fall outside of the row, and the columns
+   * in between are summed without checking any bounds.
+   *
+   * @param taps     The array holding the row of weights
+   * @param offset   The index of the first weight of the row in the array
+   * @param width    The number of pixels in the row
+   * @param red      The red values of the source row
+   * @param green    The green values of the source row
+   * @param blue     The blue values of the source row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   */
+  private void sumRow(double[] taps, int offset, int width, double[] red, double[] green,
+                      double[] blue, double[] sumRed, double[] sumGreen, double[] sumBlue) {
+    // The columns whose kernel fits entirely inside the row
+    int interiorStart = Math.min(this.radius, width);
+    int interiorEnd = Math.max(interiorStart, width - this.radius);
+    for (int j = 0; j < interiorStart; j++) {
+      this.sumBorder(taps, offset, j, width, red, green, blue, sumRed, sumGreen, sumBlue);
+    }
+    this.sumInterior(taps, offset, interiorStart, interiorEnd, red, green, blue,
+            sumRed, sumGreen, sumBlue);
+    for (int j = interiorEnd; j < width; j++) {
+      this.sumBorder(taps, offset, j, width, red, green, blue, sumRed, sumGreen, sumBlue);
+    }
+  }
+
+  /**
+   * Adds one row of weights to the sums of the columns whose kernel fits entirely inside the
+   * row, so none of the pixels read need to be checked.
+   *
+   * @param taps     The array holding the row of weights
+   * @param offset   The index of the first weight of the row in the array
+   * @param start    The first column to add to
+   * @param end      The column after the last column to add to
+   * @param red      The red values of the source row
+   * @param green    The green values of the source row
+   * @param blue     The blue values of the source row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   */
+  private void sumInterior(double[] taps, int offset, int start, int end, double[] red,
+                           double[] green, double[] blue, double[] sumRed, double[] sumGreen,
+                           double[] sumBlue) {
+    // Each weight is added to the whole range of columns at once, which keeps the loops long
+    // and simple, while every sum still adds its terms in the same order as the kernel
+    for (int kx = 0; kx < this.size; kx++) {
+      double weight = taps[offset + kx];
+      int shift = kx - this.radius;
+      for (int j = start; j < end; j++) {
+        sumRed[j] += weight * red[j + shift];
+      }
+      for (int j = start; j < end; j++) {
+        sumGreen[j] += weight * green[j + shift];
+      }
+      for (int j = start; j < end; j++) {
+        sumBlue[j] += weight * blue[j + shift];
+      }
+    }
+  }
+
+  /**
+   * Adds one row of weights to the sums of a column near the left or right edge, leaving out
+   * the weights that fall outside of the row.
+   *
+   * @param taps     The array holding the row of weights
+   * @param offset   The index of the first weight of the row in the array
+   * @param col      The column to add to
+   * @param width    The number of pixels in the row
+   * @param red      The red values of the source row
+   * @param green    The green values of the source row
+   * @param blue     The blue values of the source row
+   * @param sumRed   The red sums of each column
+   * @param sumGreen The green sums of each column
+   * @param sumBlue  The blue sums of each column
+   */
+  private void sumBorder(double[] taps, int offset, int col, int width, double[] red,
+                         double[] green, double[] blue, double[] sumRed, double[] sumGreen,
+                         double[] sumBlue) {
+    int first = col - this.radius;
+    int startTap = Math.max(0, -first);
+    int endTap = Math.min(this.size, width - first);
+    for (int kx = startTap; kx < endTap; kx++) {
+      double weight = taps[offset + kx];
+      sumRed[col] += weight * red[first + kx];
+      sumGreen[col] += weight * green[first + kx];
+      sumBlue[col] += weight * blue[first + kx];
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Convolution)) {
+      return false;
+    }
+    Convolution that = (Convolution) other;
+    return (this.radius == that.radius) && Arrays.equals(this.weights, that.weights);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(this.weights) * 31 + this.radius;
+  }
+}
@@ -0,0 +1,177 @@
+package model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Represents a raster whose pixels are stored outside of the Java heap in direct buffers. The
+ * garbage collector never has to copy or scan the pixel data, so the heap used by a Picture
+ * stored this way stays small no matter how large the image is. Since a single direct buffer
+ * can hold at most 2GB, the rows are split across as many buffers as needed.
+ *
+ * <p>The memory of a direct raster is freed as soon as {@link #release()} is called, instead of
+ * whenever the garbage collector gets to it. A released raster cannot be read or written.</p>
+ */
+public final class DirectRaster extends PixelRaster {
+  private static final long MAX_CHUNK_BYTES = 1L << 30;
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    // The cleaner of a direct buffer can only be run early through sun.misc.Unsafe. If it is not
+    // available the buffers are left to the garbage collector when they are released.
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private final int rowsPerChunk;
+  private ByteBuffer[] chunks;
+  private IntBuffer[] chunkPixels;
+
+  /**
+   * Creates a new raster of the given size stored outside of the Java heap. Every pixel is
+   * fully transparent black.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @throws IllegalArgumentException if the width or height is negative, or a single row is too
+   *                                  large to store in a direct buffer
+   */
+  public DirectRaster(int width, int height) throws IllegalArgumentException {
+    super(width, height);
+    long rowBytes = Math.max(1L, (long) width * Integer.BYTES);
+    if (rowBytes > MAX_CHUNK_BYTES) {
+      throw new IllegalArgumentException("A single row of the raster is too large to store!");
+    }
+    this.rowsPerChunk = (int) Math.max(1, Math.min(height, MAX_CHUNK_BYTES / rowBytes));
+    int chunkCount = (height + this.rowsPerChunk - 1) / this.rowsPerChunk;
+    this.chunks = new ByteBuffer[chunkCount];
+    this.chunkPixels = new IntBuffer[chunkCount];
+    for (int i = 0; i < chunkCount; i++) {
+      int rows = Math.min(this.rowsPerChunk, height - i * this.rowsPerChunk);
+      this.chunks[i] = ByteBuffer.allocateDirect(rows * width * Integer.BYTES)
+              .order(ByteOrder.nativeOrder());
+      this.chunkPixels[i] = this.chunks[i].asIntBuffer();
+    }
+  }
+
+  /**
+   * Returns the buffer that holds the given row.
+   *
+   * @param row The row to find
+   * @return the buffer holding the row
+   * @throws IllegalStateException if this raster has been released
+   */
+  private IntBuffer chunkOf(int row) throws IllegalStateException {
+    if (this.chunkPixels == null) {
+      throw new IllegalStateException("The raster has already been released!");
+    }
+    return this.chunkPixels[row / this.rowsPerChunk];
+  }
+
+  /**
+   * Returns the index of the first pixel of a row within the buffer that holds it.
+   *
+   * @param row The row to find
+   * @return the index of the row in its buffer
+   */
+  private int offsetOf(int row) {
+    return (row % this.rowsPerChunk) * this.width;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return chunkOf(row).get(offsetOf(row) + col);
+  }
+
+  @Override
+  public void set(int row, int col, int argb) {
+    chunkOf(row).put(offsetOf(row) + col, argb);
+  }
+
+  @Override
+  public void getRow(int row, int[] dst) {
+    chunkOf(row).get(offsetOf(row), dst, 0, this.width);
+  }
+
+  @Override
+  public void setRow(int row, int[] src) {
+    chunkOf(row).put(offsetOf(row), src, 0, this.width);
+  }
+
+  @Override
+  public DirectRaster copy() {
+    if (this.chunks == null) {
+      throw new IllegalStateException("The raster has already been released!");
+    }
+    DirectRaster copy = new DirectRaster(this.width, this.height);
+    for (int i = 0; i < this.chunks.length; i++) {
+      copy.chunks[i].put(0, this.chunks[i], 0, this.chunks[i].capacity());
+    }
+    return copy;
+  }
+
+  @Override
+  public DirectRaster create(int width, int height) {
+    return new DirectRaster(width, height);
+  }
+
+  /**
+   * Copies every pixel of another raster into a new raster stored outside of the Java heap.
+   *
+   * @param source The raster to copy
+   * @return a direct raster holding the same pixels as the source
+   */
+  public static DirectRaster copyOf(PixelRaster source) {
+    DirectRaster copy = new DirectRaster(source.getWidth(), source.getHeight());
+    int[] row = new int[source.getWidth()];
+    for (int i = 0; i < source.getHeight(); i++) {
+      source.getRow(i, row);
+      copy.setRow(i, row);
+    }
+    return copy;
+  }
+
+  @Override
+  public void release() {
+    if (this.chunks == null) {
+      return;
+    }
+    ByteBuffer[] released = this.chunks;
+    this.chunks = null;
+    this.chunkPixels = null;
+    if (INVOKE_CLEANER != null) {
+      for (ByteBuffer chunk : released) {
+        try {
+          INVOKE_CLEANER.invoke(UNSAFE, chunk);
+        } catch (ReflectiveOperationException e) {
+          // Leave the buffer to the garbage collector
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks if this raster has been released and can no longer be used.
+   *
+   * @return true if the memory of this raster has been freed
+   */
+  public boolean isReleased() {
+    return this.chunks == null;
+  }
+}
@@ -0,0 +1,142 @@
+package model;
+
+/**
+ * Computes fast Fourier transforms of square blocks of complex values whose width is a power of
+ * two. The real and imaginary parts are kept in separate arrays, row by row. A two dimensional
+ * transform is done as a transform of every row, a transpose, and another transform of every row,
+ * so the result is left transposed. Doing the same in the inverse direction undoes this, so
+ * blocks can be transformed, multiplied together and transformed back without transposing them
+ * again.
+ */
+final class Fft {
+  private final int size;
+  private final int[] reversed;
+  private final double[] cos;
+  private final double[] sin;
+
+  /**
+   * Prepares the tables for transforms of the given width.
+   *
+   * @param size The width of a block, a power of two
+   * @throws IllegalArgumentException if the width is not a power of two
+   */
+  Fft(int size) throws IllegalArgumentException {
+    if ((size < 1) || (Integer.bitCount(size) != 1)) {
+      throw new IllegalArgumentException("The size of a transform must be a power of two!");
+    }
+    this.size = size;
+    this.reversed = new int[size];
+    int bits = Integer.numberOfTrailingZeros(size);
+    for (int i = 0; i < size; i++) {
+      this.reversed[i] = (bits == 0) ? 0 : Integer.reverse(i) >>> (32 - bits);
+    }
+    this.cos = new double[size / 2];
+    this.sin = new double[size / 2];
+    for (int i = 0; i < size / 2; i++) {
+      double angle = -2 * Math.PI * i / size;
+      this.cos[i] = Math.cos(angle);
+      this.sin[i] = Math.sin(angle);
+    }
+  }
+
+  /**
+   * Returns the width of the blocks this transforms.
+   *
+   * @return the width of a block
+   */
+  int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Transforms a square block in two dimensions, leaving the result transposed.
+   *
+   * @param re      The real parts, row by row
+   * @param im      The imaginary parts, row by row
+   * @param inverse true to compute the inverse transform (including the scaling)
+   */
+  void transform2d(double[] re, double[] im, boolean inverse) {
+    this.transformRows(re, im, inverse);
+    transpose(re, this.size);
+    transpose(im, this.size);
+    this.transformRows(re, im, inverse);
+  }
+
+  /**
+   * Transforms every row of a square block.
+   *
+   * @param re      The real parts, row by row
+   * @param im      The imaginary parts, row by row
+   * @param inverse true to compute the inverse transform (including the scaling)
+   */
+  private void transformRows(double[] re, double[] im, boolean inverse) {
+    for (int row = 0; row < this.size; row++) {
+      this.transform(re, im, row * this.size, inverse);
+    }
+  }
+
+  /**
+   * Transforms a single row in place with the iterative radix 2 algorithm.
+   *
+   * @param re      The real parts
+   * @param im      The imaginary parts
+   * @param offset  The index of the first value of the row
+   * @param inverse true to compute the inverse transform (including the scaling)
+   */
+  private void transform(double[] re, double[] im, int offset, boolean inverse) {
+    int n = this.size;
+    for (int i = 0; i < n; i++) {
+      int j = this.reversed[i];
+      if (i < j) {
+        double temp = re[offset + i];
+        re[offset + i] = re[offset + j];
+        re[offset + j] = temp;
+        temp = im[offset + i];
+        im[offset + i] = im[offset + j];
+        im[offset + j] = temp;
+      }
+    }
+    double direction = inverse ? -1 : 1;
+    for (int length = 2; length <= n; length <<= 1) {
+      int half = length >> 1;
+      int step = n / length;
+      for (int start = offset; start < offset + n; start += length) {
+        for (int k = 0; k < half; k++) {
+          double wr = this.cos[k * step];
+          double wi = direction * this.sin[k * step];
+          int even = start + k;
+          int odd = even + half;
+          double tr = re[odd] * wr - im[odd] * wi;
+          double ti = re[odd] * wi + im[odd] * wr;
+          re[odd] = re[even] - tr;
+          im[odd] = im[even] - ti;
+          re[even] += tr;
+          im[even] += ti;
+        }
+      }
+    }
+    if (inverse) {
+      double scale = 1.0 / n;
+      for (int i = offset; i < offset + n; i++) {
+        re[i] *= scale;
+        im[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Transposes a square block in place.
+   *
+   * @param values The values, row by row
+   * @param size   The width of the block
+   */
+  private static void transpose(double[] values, int size) {
+    for (int i = 0; i < size; i++) {
+      for (int j = i + 1; j < size; j++) {
+        double temp = values[i * size + j];
+        values[i * size + j] = values[j * size + i];
+        values[j * size + i] = temp;
+      }
+    }
+  }
+}
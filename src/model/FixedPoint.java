@@ -0,0 +1,98 @@
+package model;
+
+/**
+ * Controls whether color matrices and kernels are applied with whole number (fixed point) math
+ * instead of doubles. In fixed point every weight is multiplied by a power of two and rounded to
+ * an int once, each new color is summed with ints and the extra bits are shifted off at the
+ * end. This avoids turning doubles back into ints for every color, and the loops can be run on
+ * several pixels at once with vector instructions.
+ *
+ * <p>Rounding the weights makes each sum slightly off, so a color can come out one higher or
+ * lower than with doubles when the exact value lands right next to a whole number. Weights that
+ * could be off by a whole value (or overflow an int) once they are rounded are always applied
+ * with doubles. Fixed point is off by default, so results match the saved examples exactly.</p>
+ */
+public final class FixedPoint {
+  // Number of bits after the point used for the weights of color matrices and small kernels
+  public static final int FRACTION_BITS = 16;
+
+  private static volatile boolean enabled = false;
+
+  private FixedPoint() {
+    // Only holds static settings
+  }
+
+  /**
+   * Turns fixed point math on or off for every color matrix and kernel applied after this.
+   *
+   * @param on true to use fixed point math
+   */
+  public static void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  /**
+   * Returns whether color matrices and kernels are applied with fixed point math.
+   *
+   * @return true if fixed point math is on
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Picks how many bits after the point the given weights can use without a sum ever overflowing
+   * an int, and checks that the rounded weights cannot move a sum by a whole value. Every weight
+   * (and the offset) is rounded by at most half of the last bit, so the error of a sum is at most
+   * the number of weights times the largest color, plus one, times half of the last bit.
+   *
+   * @param weights The weights that are summed together with colors of up to 255
+   * @param offset  A constant added to the sum
+   * @return the number of bits after the point, or -1 if the weights need doubles
+   */
+  static int fractionBits(double[] weights, double offset) {
+    double largest = Math.abs(offset);
+    for (double weight : weights) {
+      largest += Math.abs(weight) * 255;
+    }
+    int bits = FRACTION_BITS;
+    // Rounding can make each scaled weight larger by up to a half
+    double rounding = weights.length * 128.0 + 1;
+    while ((bits >= 0) && (largest * (1L << bits) + rounding >= Integer.MAX_VALUE)) {
+      bits--;
+    }
+    if ((bits < 0) || ((weights.length * 255.0 + 1) / (1L << (bits + 1)) >= 1)) {
+      return -1;
+    }
+    return bits;
+  }
+
+  /**
+   * Rounds weights to whole numbers after multiplying them by two to the given power.
+   *
+   * @param weights The weights to scale
+   * @param bits    The number of bits after the point
+   * @return the scaled weights
+   */
+  static int[] scale(double[] weights, int bits) {
+    int[] scaled = new int[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      scaled[i] = (int) Math.round(weights[i] * (1L << bits));
+    }
+    return scaled;
+  }
+
+  /**
+   * Clamps a value between 0 and the max value without branching, so loops using it can still
+   * be turned into vector instructions.
+   *
+   * @param value    The value to clamp
+   * @param maxValue The largest value allowed
+   * @return the clamped value
+   */
+  static int clamp(int value, int maxValue) {
+    int positive = value & ~(value >> 31);
+    int over = positive - maxValue;
+    return positive - (over & ~(over >> 31));
+  }
+}
@@ -0,0 +1,165 @@
+package model;
+
+/**
+ * Represents a flipped view of another raster. Flipping a Picture only wraps its raster in this
+ * view, so no pixels are moved; every read and write is mapped to the matching location of the
+ * raster underneath instead. Flipping the view again toggles the direction, and two flips in the
+ * same direction cancel out and give back the original raster.
+ *
+ * <p>A view in both directions is the same as rotating the raster by 180 degrees.</p>
+ */
+final class FlippedRaster extends PixelRaster {
+  private final PixelRaster source;
+  private final boolean flipRows;
+  private final boolean flipCols;
+
+  /**
+   * Creates a view of a raster flipped in the given directions.
+   *
+   * @param source   The raster holding the pixels
+   * @param flipRows true if the rows are in reverse order (a vertical flip)
+   * @param flipCols true if every row is in reverse order (a horizontal flip)
+   */
+  private FlippedRaster(PixelRaster source, boolean flipRows, boolean flipCols) {
+    super(source.getWidth(), source.getHeight());
+    this.source = source;
+    this.flipRows = flipRows;
+    this.flipCols = flipCols;
+  }
+
+  /**
+   * Flips a raster in the given directions without moving any pixels. If the raster is already
+   * a flipped view, the directions are combined with the existing ones, and if they all cancel
+   * out the raster underneath is returned as it is.
+   *
+   * @param raster   The raster to flip
+   * @param vertical true to flip the order of the rows
+   * @param horizontal true to flip the order of the columns
+   * @return a raster holding the flipped pixels
+   */
+  static PixelRaster flip(PixelRaster raster, boolean vertical, boolean horizontal) {
+    PixelRaster source = raster;
+    boolean flipRows = vertical;
+    boolean flipCols = horizontal;
+    if (raster instanceof FlippedRaster) {
+      FlippedRaster view = (FlippedRaster) raster;
+      source = view.source;
+      flipRows = flipRows != view.flipRows;
+      flipCols = flipCols != view.flipCols;
+    }
+    if (!flipRows && !flipCols) {
+      return source;
+    }
+    return new FlippedRaster(source, flipRows, flipCols);
+  }
+
+  /**
+   * Maps a row of this view to the row of the raster underneath.
+   *
+   * @param row The row of this view
+   * @return the row that holds its pixels
+   */
+  private int sourceRow(int row) {
+    return this.flipRows ? this.height - 1 - row : row;
+  }
+
+  /**
+   * Maps a column of this view to the column of the raster underneath.
+   *
+   * @param col The column of this view
+   * @return the column that holds its pixel
+   */
+  private int sourceCol(int col) {
+    return this.flipCols ? this.width - 1 - col : col;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return this.source.get(sourceRow(row), sourceCol(col));
+  }
+
+  @Override
+  public void set(int row, int col, int argb) {
+    this.source.set(sourceRow(row), sourceCol(col), argb);
+  }
+
+  @Override
+  public void getRow(int row, int[] dst) {
+    this.source.getRow(sourceRow(row), dst);
+    if (this.flipCols) {
+      reverse(dst, this.width);
+    }
+  }
+
+  @Override
+  public void setRow(int row, int[] src) {
+    if (this.flipCols) {
+      // Reverse a copy so the caller's array is left as it was
+      int[] reversed = new int[this.width];
+      System.arraycopy(src, 0, reversed, 0, this.width);
+      reverse(reversed, this.width);
+      this.source.setRow(sourceRow(row), reversed);
+    } else {
+      this.source.setRow(sourceRow(row), src);
+    }
+  }
+
+  /**
+   * Reverses the first values of an array in place.
+   *
+   * @param values The array to reverse
+   * @param length The number of values to reverse
+   */
+  private static void reverse(int[] values, int length) {
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      int temp = values[i];
+      values[i] = values[j];
+      values[j] = temp;
+    }
+  }
+
+  /**
+   * Creates a copy of this view over a copy of the raster underneath, so the copy is flipped the
+   * same way without moving any pixels.
+   *
+   * @return a copy of this view
+   */
+  @Override
+  public PixelRaster copy() {
+    return new FlippedRaster(this.source.copy(), this.flipRows, this.flipCols);
+  }
+
+  @Override
+  public PixelRaster create(int width, int height) {
+    return this.source.create(width, height);
+  }
+
+  @Override
+  public PixelRaster storage() {
+    return this.source;
+  }
+
+  @Override
+  public boolean supportsParallelRows() {
+    return this.source.supportsParallelRows();
+  }
+
+  @Override
+  public PixelRaster materialize() {
+    PixelRaster flat = this.source.create(this.width, this.height);
+    Parallelism.forEachBand(this.height, (start, end) -> {
+      int[] row = new int[this.width];
+      for (int i = start; i < end; i++) {
+        getRow(i, row);
+        flat.setRow(i, row);
+      }
+    }, this, flat);
+    this.source.release();
+    return flat;
+  }
+
+  @Override
+  public void release() {
+    this.source.release();
+  }
+}
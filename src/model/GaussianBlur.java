@@ -0,0 +1,258 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a blur of any strength that approximates a Gaussian blur with three box blurs
+ * applied one after another. A box blur replaces each pixel with the average of the pixels in a
+ * square around it, and is done as a horizontal pass and a vertical pass that each keep a
+ * running sum: moving to the next pixel adds the pixel entering the window and removes the one
+ * leaving it. Each pixel costs the same no matter how large the blur is.
+ *
+ * <p>Near the edges of the image only the pixels inside the image are averaged, so the edges do
+ * not darken. Every average is rounded to the nearest whole number and the alpha value of a
+ * pixel is never changed.</p>
+ *
+ * <p>A box at least as wide as the image averages each whole row or column, so wider boxes give
+ * the same result. Each radius is therefore capped at {@link #MAX_RADIUS}, which keeps the reach
+ * of any blur in an int, and is capped again at the size of the image when it is applied.</p>
+ */
+public final class GaussianBlur {
+  // Number of box blurs that make up the blur
+  private static final int PASSES = 3;
+
+  /**
+   * The widest radius a single box blur is given, so that the radii of all of them add up to no
+   * more than the largest int.
+   */
+  public static final int MAX_RADIUS = Integer.MAX_VALUE / PASSES;
+
+  private final double sigma;
+  private final int[] radii;
+
+  /**
+   * Creates a blur with the given box radii.
+   *
+   * @param sigma The standard deviation of the Gaussian blur approximated
+   * @param radii The radius of each box blur
+   */
+  private GaussianBlur(double sigma, int[] radii) {
+    this.sigma = sigma;
+    this.radii = radii;
+  }
+
+  /**
+   * Creates a blur that approximates a Gaussian blur with the given standard deviation. The
+   * widths of the boxes are picked so that the three of them together spread each pixel as much
+   * as the Gaussian would.
+   *
+   * @param sigma The standard deviation of the Gaussian blur, in pixels
+   * @return the blur
+   * @throws IllegalArgumentException if the standard deviation is not a positive number
+   */
+  public static GaussianBlur of(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("The strength of a blur must be a positive number!");
+    }
+    // The widest odd box that is not too wide, with some of the boxes two pixels wider. The
+    // widths are worked out in long and double, as a large blur would overflow an int
+    double variance = 12 * sigma * sigma;
+    double ideal = Math.sqrt(variance / PASSES + 1);
+    int[] radii = new int[PASSES];
+    if (ideal >= 2.0 * MAX_RADIUS + 1) {
+      Arrays.fill(radii, MAX_RADIUS);
+      return new GaussianBlur(sigma, radii);
+    }
+    long lower = (long) Math.floor(ideal);
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    long wider = Math.round((variance - (double) PASSES * lower * lower - 4.0 * PASSES * lower
+            - 3 * PASSES) / (-4.0 * lower - 4));
+    for (int i = 0; i < PASSES; i++) {
+      long width = (i < wider) ? lower : lower + 2;
+      radii[i] = (int) Math.min(MAX_RADIUS, (width - 1) / 2);
+    }
+    return new GaussianBlur(sigma, radii);
+  }
+
+  /**
+   * Returns the standard deviation of the Gaussian blur this approximates.
+   *
+   * @return the strength of this blur
+   */
+  public double getSigma() {
+    return this.sigma;
+  }
+
+  /**
+   * Returns how far away a pixel can be and still change a pixel when blurred, which is the sum
+   * of the radii of the box blurs. This is never more than the largest int.
+   *
+   * @return the reach of this blur, in pixels
+   */
+  public int getReach() {
+    int reach = 0;
+    for (int radius : this.radii) {
+      reach += radius;
+    }
+    return reach;
+  }
+
+  /**
+   * Blurs every pixel of a raster and stores the results in a new raster of the same kind. The
+   * given raster is only read, never written to.
+   *
+   * @param source The pixels to blur
+   * @return a new raster holding the blurred pixels
+   */
+  public PixelRaster apply(PixelRaster source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    // Every pass goes between the same two rasters, starting from the source
+    PixelRaster across = source.create(width, height);
+    PixelRaster result = source.create(width, height);
+    PixelRaster current = source;
+    for (int radius : this.radii) {
+      PixelRaster from = current;
+      // A box wider than the image averages the same pixels as one just as wide as it
+      int acrossRadius = Math.min(radius, Math.max(0, width - 1));
+      int downRadius = Math.min(radius, Math.max(0, height - 1));
+      Parallelism.forEachBand(height,
+          (start, end) -> horizontal(from, across, acrossRadius, start, end), from, across);
+      Parallelism.forEachBand(height,
+          (start, end) -> vertical(across, result, downRadius, start, end), across, result);
+      current = result;
+    }
+    across.release();
+    return result;
+  }
+
+  /**
+   * Averages every pixel of the given rows with the pixels to its left and right.
+   *
+   * @param source The pixels to average
+   * @param target The raster to store the averages in
+   * @param radius The number of pixels on each side to average with, less than the width
+   * @param start  The first row of the band
+   * @param end    The row after the last row of the band
+   */
+  private static void horizontal(PixelRaster source, PixelRaster target, int radius, int start,
+                                 int end) {
+    int width = source.getWidth();
+    int[] row = new int[width];
+    int[] out = new int[width];
+    for (int i = start; i < end; i++) {
+      source.getRow(i, row);
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      int count = Math.min(radius, width - 1) + 1;
+      for (int j = 0; j < count; j++) {
+        red += (row[j] >> 16) & 0xFF;
+        green += (row[j] >> 8) & 0xFF;
+        blue += row[j] & 0xFF;
+      }
+      for (int j = 0; j < width; j++) {
+        out[j] = pack(red, green, blue, count, row[j]);
+        // Compared without adding to the radius, which could overflow on a very wide row
+        if (j < width - 1 - radius) {
+          int entering = j + radius + 1;
+          red += (row[entering] >> 16) & 0xFF;
+          green += (row[entering] >> 8) & 0xFF;
+          blue += row[entering] & 0xFF;
+          count++;
+        }
+        int leaving = j - radius;
+        if (leaving >= 0) {
+          red -= (row[leaving] >> 16) & 0xFF;
+          green -= (row[leaving] >> 8) & 0xFF;
+          blue -= row[leaving] & 0xFF;
+          count--;
+        }
+      }
+      target.setRow(i, out);
+    }
+  }
+
+  /**
+   * Averages every pixel of the given rows with the pixels above and below it. Each column keeps
+   * its own running sum, which starts from the rows around the first row of the band.
+   *
+   * @param source The pixels to average
+   * @param target The raster to store the averages in
+   * @param radius The number of pixels on each side to average with, less than the height
+   * @param start  The first row of the band
+   * @param end    The row after the last row of the band
+   */
+  private static void vertical(PixelRaster source, PixelRaster target, int radius, int start,
+                               int end) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] red = new int[width];
+    int[] green = new int[width];
+    int[] blue = new int[width];
+    int[] row = new int[width];
+    int[] center = new int[width];
+    int[] out = new int[width];
+    int first = Math.max(0, start - radius);
+    int last = (start < height - 1 - radius) ? start + radius : height - 1;
+    for (int k = first; k <= last; k++) {
+      source.getRow(k, row);
+      addRow(row, red, green, blue, 1);
+    }
+    int count = last - first + 1;
+    for (int i = start; i < end; i++) {
+      source.getRow(i, center);
+      for (int j = 0; j < width; j++) {
+        out[j] = pack(red[j], green[j], blue[j], count, center[j]);
+      }
+      target.setRow(i, out);
+      if (i < height - 1 - radius) {
+        source.getRow(i + radius + 1, row);
+        addRow(row, red, green, blue, 1);
+        count++;
+      }
+      int leaving = i - radius;
+      if (leaving >= 0) {
+        source.getRow(leaving, row);
+        addRow(row, red, green, blue, -1);
+        count--;
+      }
+    }
+  }
+
+  /**
+   * Adds (or removes) the colors of a row of pixels to the running sums of each column.
+   *
+   * @param row   The packed pixels of the row
+   * @param red   The red sum of each column
+   * @param green The green sum of each column
+   * @param blue  The blue sum of each column
+   * @param sign  1 to add the row, -1 to remove it
+   */
+  private static void addRow(int[] row, int[] red, int[] green, int[] blue, int sign) {
+    for (int j = 0; j < row.length; j++) {
+      int argb = row[j];
+      red[j] += sign * ((argb >> 16) & 0xFF);
+      green[j] += sign * ((argb >> 8) & 0xFF);
+      blue[j] += sign * (argb & 0xFF);
+    }
+  }
+
+  /**
+   * Packs the rounded averages of the given sums, keeping the alpha value of the original pixel.
+   *
+   * @param red   The sum of the red values
+   * @param green The sum of the green values
+   * @param blue  The sum of the blue values
+   * @param count The number of pixels summed
+   * @param argb  The packed value of the original pixel
+   * @return the packed averages
+   */
+  private static int pack(int red, int green, int blue, int count, int argb) {
+    int half = count / 2;
+    return PixelRaster.pack((red + half) / count, (green + half) / count, (blue + half) / count,
+            PixelRaster.alpha(argb));
+  }
+}
@@ -0,0 +1,50 @@
+package model;
+
+/**
+ * Represents the different greyscale conversions a pixel or picture can perform. The type is
+ * resolved from its name once, so the conversion of each pixel only needs to switch on this enum.
+ */
+public enum GreyscaleType {
+  VALUE("value"),
+  INTENSITY("intensity"),
+  LUMA("luma"),
+  RED("red"),
+  GREEN("green"),
+  BLUE("blue");
+
+  private final String name;
+
+  /**
+   * Creates a greyscale type with the name used by the text commands.
+   *
+   * @param name The name of this greyscale type
+   */
+  GreyscaleType(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the lowercase name of this greyscale type.
+   *
+   * @return the name of this greyscale type
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Finds the greyscale type with the given name.
+   *
+   * @param name The name of the greyscale type
+   * @return the greyscale type with the given name
+   * @throws IllegalArgumentException if no greyscale type has the given name
+   */
+  public static GreyscaleType fromName(String name) throws IllegalArgumentException {
+    for (GreyscaleType type : GreyscaleType.values()) {
+      if (type.name.equals(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Invalid greyscale type!");
+  }
+}
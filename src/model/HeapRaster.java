@@ -0,0 +1,126 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a raster whose pixels are stored on the Java heap, with each row of packed ARGB
+ * values stored in its own contiguous array.
+ *
+ * <p>Copies of a heap raster are copy-on-write. {@link #copy()} only shares the row arrays
+ * between the original and the copy, and a row is duplicated the first time either raster writes
+ * to it. Cloning a Picture is therefore cheap, and an edit only pays for copying the rows it
+ * actually changes, while reading a shared raster (saving it, building a histogram) never copies
+ * any pixel data.</p>
+ */
+public final class HeapRaster extends PixelRaster {
+  private final int[][] rows;
+  // owned[i] is true when rows[i] is not shared with any other raster and can be written in place
+  private final boolean[] owned;
+
+  /**
+   * Creates a new raster of the given size where every pixel is fully transparent black.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @throws IllegalArgumentException if the width or height is negative
+   */
+  public HeapRaster(int width, int height) throws IllegalArgumentException {
+    super(width, height);
+    this.rows = new int[height][width];
+    this.owned = new boolean[height];
+    Arrays.fill(this.owned, true);
+  }
+
+  /**
+   * Creates a new raster holding the given array of packed ARGB values, where the first row is
+   * stored at the start followed by the rest of the rows.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @param pixels The packed ARGB values of every pixel ordered row by row
+   * @throws IllegalArgumentException if the array does not hold exactly width * height values
+   */
+  public HeapRaster(int width, int height, int[] pixels) throws IllegalArgumentException {
+    this(width, height);
+    if ((pixels == null) || (pixels.length != (long) width * height)) {
+      throw new IllegalArgumentException("The pixel data does not match the raster size!");
+    }
+    for (int i = 0; i < height; i++) {
+      System.arraycopy(pixels, i * width, this.rows[i], 0, width);
+    }
+  }
+
+  /**
+   * Creates a raster that shares the given row arrays with another raster. None of the rows
+   * are owned by the new raster.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @param rows   The row arrays to share
+   */
+  private HeapRaster(int width, int height, int[][] rows) {
+    super(width, height);
+    this.rows = rows;
+    this.owned = new boolean[height];
+  }
+
+  /**
+   * Returns the array of a row that can be written in place, copying the row first if it is
+   * still shared with another raster.
+   *
+   * @param row The row to write to
+   * @return an array holding the row that only this raster uses
+   */
+  private int[] writableRow(int row) {
+    if (!this.owned[row]) {
+      this.rows[row] = this.rows[row].clone();
+      this.owned[row] = true;
+    }
+    return this.rows[row];
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return this.rows[row][col];
+  }
+
+  @Override
+  public void set(int row, int col, int argb) {
+    this.writableRow(row)[col] = argb;
+  }
+
+  @Override
+  public void getRow(int row, int[] dst) {
+    System.arraycopy(this.rows[row], 0, dst, 0, this.width);
+  }
+
+  @Override
+  public void setRow(int row, int[] src) {
+    if (this.owned[row]) {
+      System.arraycopy(src, 0, this.rows[row], 0, this.width);
+    } else {
+      // The whole row is replaced, so there is no need to copy the shared values first
+      int[] newRow = new int[this.width];
+      System.arraycopy(src, 0, newRow, 0, this.width);
+      this.rows[row] = newRow;
+      this.owned[row] = true;
+    }
+  }
+
+  /**
+   * Creates a copy of this raster that shares every row with this raster. Neither raster owns
+   * the shared rows afterwards, so whichever raster writes to a row first copies it.
+   *
+   * @return a copy-on-write copy of this raster
+   */
+  @Override
+  public HeapRaster copy() {
+    Arrays.fill(this.owned, false);
+    return new HeapRaster(this.width, this.height, this.rows.clone());
+  }
+
+  @Override
+  public HeapRaster create(int width, int height) {
+    return new HeapRaster(width, height);
+  }
+}
@@ -2,6 +2,7 @@ package model;
 
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a Picture that a ImageProcessor model can store. This interface represents all the
@@ -28,7 +29,8 @@ public interface IPicture {
 
   /**
    * Clones a current IPicture and returns a copy with the exact same data including all the
-   * pixels in the IPixel array.
+   * pixel values. Editing the clone never changes this IPicture, but a clone may share its pixel
+   * storage with this IPicture until either of them is edited.
    *
    * @return A clone of this IPicture
    */
@@ -36,8 +38,8 @@ public interface IPicture {
 
   /**
    * Determines if a IPicture is equal to another IPicture. All the fields of a Picture must be
-   * equal to another, including all the IPixels in a Pictures 2D array. For an IPixel to be the
-   * same, equals checks if the red, green, blue, and alpha values are the same for all IPixels.
+   * equal to another, including every pixel of the Picture. For a pixel to be the same, equals
+   * checks if the red, green, blue, and alpha values are the same.
    * If there is no alpha value stored, it will compare it to the default of 255.
    *
    * @param other Object to compare equality to
@@ -55,12 +57,40 @@ public interface IPicture {
   int hashCode();
 
   /**
-   * Flips a Picture Vertically by mutating its 2D Array of Pixels.
+   * Returns the width of this IPicture in pixels.
+   *
+   * @return the width of this IPicture
+   */
+  int getWidth();
+
+  /**
+   * Returns the height of this IPicture in pixels.
+   *
+   * @return the height of this IPicture
+   */
+  int getHeight();
+
+  /**
+   * Returns the maximum value a single color value of this IPicture can have.
+   *
+   * @return the max color value of this IPicture
+   */
+  int getMaxValue();
+
+  /**
+   * Frees any memory this IPicture holds outside of the Java heap. After a picture is released
+   * it can no longer be used. Pictures stored on the heap are left to the garbage collector, so
+   * releasing them does nothing.
+   */
+  void release();
+
+  /**
+   * Flips a Picture Vertically by mutating its pixels.
    */
   void verticalFlip();
 
   /**
-   * Flips and image horizontally by mutating its 2D Array of Pixels.
+   * Flips and image horizontally by mutating its pixels.
    */
   void horizontalFlip();
 
@@ -78,6 +108,14 @@ public interface IPicture {
    */
   void greyScale(String type);
 
+  /**
+   * Updates the color values of this image to be changed to a greyscale of a type that has
+   * already been resolved, avoiding any comparison of type names while converting the pixels.
+   *
+   * @param type The type of greyscale conversion
+   */
+  void greyScale(GreyscaleType type);
+
   /**
    * Performs a color transformation based on the values of an array list representing a 3x3 matrix.
    *
@@ -86,34 +124,146 @@ public interface IPicture {
    */
   void colorTransform(List<Double> arrayValues) throws IllegalArgumentException;
 
+  /**
+   * Performs an affine color transformation: every pixel's red, green and blue values are mixed
+   * by the matrix and the offset of the matrix is added. Brightening is the same as a matrix
+   * that only has an offset. Consecutive color transformations are applied in a single pass,
+   * with exactly the same results as applying them one at a time.
+   *
+   * @param matrix The color matrix to apply
+   * @throws IllegalArgumentException if the matrix is null
+   */
+  void colorTransform(ColorMatrix matrix) throws IllegalArgumentException;
+
+  /**
+   * Replaces the red, green and blue values of every pixel with the values a lookup table gives
+   * for them. This is the cheapest way to apply any operation where each new color only depends
+   * on its old value, such as brightening, curves or gamma. Consecutive lookup tables are
+   * combined into a single table before they are applied.
+   *
+   * @param lut The lookup table to apply
+   * @throws IllegalArgumentException if the table is null
+   */
+  void applyLut(ChannelLut lut) throws IllegalArgumentException;
+
   /**
    * Filters an image by calculating a new value for each of the RGB colors by applying the values
    * of a kernel with a given radius to each pixel. If the bounds is 1, the kernel will span
    * one up, one down, one left, and one right from the center pixel making the kernel size
    * a 3x3, essentially making a border around the center pixel (2 bounds is 5x5 etc.). The given
    * list should order the kernel values by rows, from left to right, listing the second row
-   * after the first.
+   * after the first. Every new value is computed from the original pixels, and neighbours
+   * outside of the image are left out.
    *
    * @param filterValues The values of the kernel to apply
    * @param bounds       The size to expand the kernel relative to the starting point
+   * @throws IllegalArgumentException if the number of values does not match the bounds
    */
-  void filter(List<Double> filterValues, int bounds);
+  void filter(List<Double> filterValues, int bounds) throws IllegalArgumentException;
+
+  /**
+   * Filters an image with the given kernel, the same way as {@link #filter(List, int)}. Kernels
+   * that are separable, or were approximated by separable parts, are applied as a horizontal and
+   * a vertical pass.
+   *
+   * @param kernel The kernel to apply
+   * @throws IllegalArgumentException if the kernel is null
+   */
+  void filter(Convolution kernel) throws IllegalArgumentException;
+
+  /**
+   * Blurs an image by roughly the same amount as a Gaussian blur with the given standard
+   * deviation. The blur takes the same time for every strength, and pixels near the edges are
+   * averaged with only the pixels inside the image.
+   *
+   * @param sigma The standard deviation of the blur, in pixels
+   * @throws IllegalArgumentException if the standard deviation is not a positive number
+   */
+  void gaussianBlur(double sigma) throws IllegalArgumentException;
 
   /**
    * Produces a buffered Image with the current IPicture data. The buffered image is based on the
-   * size of the IPixel array, and each pixel is created with the current RGBA color values.
+   * size of this IPicture, and each pixel is created with the current RGBA color values.
    * @return A buffered Image represents the current IPicture data
    */
   BufferedImage getBufferedImage();
 
+  /**
+   * Returns a view of a single pixel of this IPicture. The returned IPixel reads and writes
+   * straight through to this picture's packed storage, so changes made to the pixel are
+   * reflected in this IPicture.
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @return A view of the pixel at the given location
+   * @throws IllegalArgumentException if the location is outside of this IPicture
+   */
+  IPixel getPixel(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Returns the value of a single color channel of the pixel at the given location.
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @param channel The color channel to return
+   * @return the value of the channel 0-255
+   * @throws IllegalArgumentException if the location is outside of this IPicture
+   */
+  int getChannel(int row, int col, Channel channel) throws IllegalArgumentException;
+
+  /**
+   * Returns the values of the pixel at the given location packed into a single ARGB int.
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @return the packed ARGB value of the pixel
+   * @throws IllegalArgumentException if the location is outside of this IPicture
+   */
+  int getARGB(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Replaces the pixel at the given location with a packed ARGB value. Each color value must
+   * be within 0 and the max value of this IPicture.
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @param argb The new packed ARGB value of the pixel
+   * @throws IllegalArgumentException if the location is outside of this IPicture
+   */
+  void setARGB(int row, int col, int argb) throws IllegalArgumentException;
+
   /**
    * Produces a list of integers that is composed of the frequency of each color value 0-255. The
    * type can be red, green, or blue, and this method will return how many pixels in this IPicture
    * have each color value from the range 0-255.
    * @param type The RGB color type to calculate
    * @return A list of integers based on the frequency of each color value
+   * @throws IllegalArgumentException if the type is not a color this IPicture stores
+   */
+  int[] colorValues(String type) throws IllegalArgumentException;
+
+  /**
+   * Produces the frequency of each value 0-255 of a single color channel in this IPicture.
+   * @param channel The color channel to calculate
+   * @return A list of integers based on the frequency of each color value
+   */
+  int[] colorValues(Channel channel);
+
+  /**
+   * Counts how many pixels in this IPicture have each value 0-255 of red, green, blue, alpha and
+   * intensity, all in a single pass. The histogram is kept until the pixel values change, so
+   * asking again for an unchanged IPicture does not go over the pixels again. This can be called
+   * from another thread while this IPicture is only being read.
+   * @return the histogram of this IPicture
+   */
+  ColorHistogram histogram();
+
+  /**
+   * Gives a histogram of this IPicture right away, estimated from about the given number of
+   * pixels spread evenly over the image. If the exact histogram is already known it is given
+   * instead (it may only have the colors, see {@link ColorHistogram#hasIntensity()}), and an
+   * image with no more pixels than samples is counted exactly.
+   * @param samples The number of pixels to estimate the histogram from
+   * @return the exact histogram if it is known, otherwise an estimate
+   * @throws IllegalArgumentException if the number of samples is less than one
    */
-  int[] colorValues(String type);
+  ColorHistogram approximateHistogram(int samples) throws IllegalArgumentException;
 
   /**
    * Downsizes this Image given a height and width ratio. Multiples the current height and width
@@ -125,7 +275,74 @@ public interface IPicture {
    */
   IPicture downSize(double heightRatio, double widthRatio);
 
-  void maskImage(IPicture maskedImage);
+  /**
+   * Gives a copy of this IPicture made larger or smaller to the given size. Each new pixel is a
+   * weighted sum of the pixels around the point it is taken from, weighed by the given filter,
+   * and when the image is made smaller every pixel of it is counted. Shrinking to half the size or
+   * less starts from the nearest level of the mipmap pyramid (see {@link #pyramidLevel(int)}).
+   * @param newWidth The width of the new image
+   * @param newHeight The height of the new image
+   * @param filter How the pixels around each point are weighed
+   * @return A new image of the given size
+   * @throws IllegalArgumentException if the filter is null or a size is less than one
+   */
+  IPicture resize(int newWidth, int newHeight, ResampleFilter filter)
+          throws IllegalArgumentException;
+
+  /**
+   * Counts the levels of the mipmap pyramid of this IPicture, from the image itself down to a
+   * single pixel. Each level is half as wide and tall as the one before it.
+   * @return the number of levels
+   */
+  int pyramidLevels();
 
+  /**
+   * Gives a copy of one level of the mipmap pyramid of this IPicture. Level 0 is the image
+   * itself and every other level is the area average of the level before it at half the width
+   * and height. The levels are kept until the pixels change, so asking again costs a copy.
+   * @param level The level of the pyramid
+   * @return A new image holding the level
+   * @throws IllegalArgumentException if the level is negative or past the last level
+   */
+  IPicture pyramidLevel(int level) throws IllegalArgumentException;
+
+  /**
+   * Brightens every pixel of this IPicture that is white in the given mask image by 50.
+   * @param maskedImage The mask image, at least as large as this IPicture
+   * @throws IllegalArgumentException if the mask image is smaller than this IPicture
+   */
+  void maskImage(IPicture maskedImage) throws IllegalArgumentException;
+
+  /**
+   * Calculates a 2D array of all the pixels that should be including in the masking effect.
+   * For a pixel to be included its RGB values must all be white.
+   * @return A 2D array of booleans, true represents a valid pixel
+   */
   boolean[][] validPixels();
+
+  /**
+   * Finds the white pixels of this IPicture (red, green and blue all 255) as a mask, stored as
+   * runs of white pixels in each row.
+   * @return the mask of the white pixels
+   */
+  Mask mask();
+
+  /**
+   * Applies an edit to only the pixels selected by a mask. The edit is given a smaller IPicture
+   * holding just the part of this IPicture it needs, so masked edits cost in proportion to the
+   * masked area. An edit with a reach of 0 changes each pixel based only on its own value
+   * (brighten, greyscale, color transforms) and is given the selected pixels packed together in
+   * rows. An edit that reads the pixels around each one (filters, blurs) is given the bounding
+   * box of the mask grown by its reach, so the selected pixels come out exactly as if the whole
+   * image had been edited.
+   * @param mask The pixels to edit, at least as large as this IPicture
+   * @param reach How far away a pixel can be and still change a pixel in the edit
+   * @param edit The edit, which returns the edited IPicture (it may change the one given to it)
+   *             without changing its size
+   * @throws IllegalArgumentException if the mask or edit is null, the mask is smaller than this
+   *                                  IPicture, the reach is negative or the edit changes the
+   *                                  size of the IPicture
+   */
+  void applyMasked(Mask mask, int reach, UnaryOperator<IPicture> edit)
+          throws IllegalArgumentException;
 }
@@ -55,6 +55,14 @@ public interface IPixel {
    */
   void greyScale(String type);
 
+  /**
+   * Updates the fields each of the pixel values by performing a greyscale image conversion
+   * of a given type that has already been resolved.
+   *
+   * @param type The type of greyscale conversion
+   */
+  void greyScale(GreyscaleType type);
+
   /**
    * Returns the value of a color component based on the color type given.
    * @param color the color component to return
@@ -63,6 +71,28 @@ public interface IPixel {
    */
   double getValue(String color) throws IllegalArgumentException;
 
+  /**
+   * Returns the value of a single color channel of this pixel. Pixels that do not store an alpha
+   * value return 255 for the alpha channel.
+   * @param channel the color channel to return
+   * @return the value of the channel
+   */
+  int getChannel(Channel channel);
+
+  /**
+   * Returns the values of this pixel packed into a single ARGB int, with alpha stored in the
+   * highest byte followed by red, green, and blue.
+   * @return the packed ARGB value of this pixel
+   */
+  int getARGB();
+
+  /**
+   * Sets all the values of this pixel from a single packed ARGB int. Pixels that do not store an
+   * alpha value ignore the alpha byte.
+   * @param argb the packed ARGB value to set this pixel to
+   */
+  void setARGB(int argb);
+
   /**
    * Sets an IPixel's RGB values to the given values. If the values are out of the bounds, it
    * will clamp them to 0 for the min or to the given max color value.
@@ -0,0 +1,305 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents which pixels of an image an edit is applied to. The selected pixels of each row are
+ * stored as spans, each the start and end column of a run of selected pixels, so a mask takes
+ * space in proportion to the edges of the selected region instead of the size of the image. The
+ * bounding box of the selected pixels and their number are found once when the mask is made.
+ */
+public final class Mask {
+  private static final int[] NO_SPANS = new int[0];
+
+  private final int width;
+  private final int height;
+  // The spans of row i are at rowStarts[i] (inclusive) to rowStarts[i + 1] (exclusive)
+  private final int[] rowStarts;
+  // The start (inclusive) and end (exclusive) column of every span, one span after another
+  private final int[] spans;
+  private final int top;
+  private final int bottom;
+  private final int left;
+  private final int right;
+  private final long area;
+
+  /**
+   * Creates a mask from the spans of each of its rows.
+   *
+   * @param width The width of the masked image
+   * @param rows  The start and end column of every span in each row, in order
+   */
+  private Mask(int width, int[][] rows) {
+    this.width = width;
+    this.height = rows.length;
+    this.rowStarts = new int[this.height + 1];
+    int total = 0;
+    for (int i = 0; i < this.height; i++) {
+      this.rowStarts[i] = total;
+      total += rows[i].length;
+    }
+    this.rowStarts[this.height] = total;
+    this.spans = new int[total];
+    int top = -1;
+    int bottom = 0;
+    int left = width;
+    int right = 0;
+    long area = 0;
+    for (int i = 0; i < this.height; i++) {
+      int[] row = rows[i];
+      System.arraycopy(row, 0, this.spans, this.rowStarts[i], row.length);
+      if (row.length == 0) {
+        continue;
+      }
+      if (top < 0) {
+        top = i;
+      }
+      bottom = i + 1;
+      left = Math.min(left, row[0]);
+      right = Math.max(right, row[row.length - 1]);
+      for (int k = 0; k < row.length; k += 2) {
+        area += row[k + 1] - row[k];
+      }
+    }
+    boolean empty = top < 0;
+    this.top = empty ? 0 : top;
+    this.bottom = bottom;
+    this.left = empty ? 0 : left;
+    this.right = right;
+    this.area = area;
+  }
+
+  /**
+   * Creates a mask that selects the pixels set to true in the given array.
+   *
+   * @param selected Whether each pixel is selected, row by row
+   * @return the mask of the selected pixels
+   * @throws IllegalArgumentException if the array is null or its rows are not all the same width
+   */
+  public static Mask of(boolean[][] selected) throws IllegalArgumentException {
+    if (selected == null) {
+      throw new IllegalArgumentException("Cannot make a mask from a null array!");
+    }
+    int width = (selected.length > 0) ? selected[0].length : 0;
+    int[][] rows = new int[selected.length][];
+    int[] buffer = new int[width + 1];
+    for (int i = 0; i < selected.length; i++) {
+      if ((selected[i] == null) || (selected[i].length != width)) {
+        throw new IllegalArgumentException("Every row of a mask must be the same width!");
+      }
+      int count = 0;
+      for (int j = 0; j < width; j++) {
+        if (selected[i][j] && ((j == 0) || !selected[i][j - 1])) {
+          buffer[count++] = j;
+        }
+        if (selected[i][j] && ((j == width - 1) || !selected[i][j + 1])) {
+          buffer[count++] = j + 1;
+        }
+      }
+      rows[i] = (count == 0) ? NO_SPANS : Arrays.copyOf(buffer, count);
+    }
+    return new Mask(width, rows);
+  }
+
+  /**
+   * Creates a mask that selects every white pixel of a raster, a pixel whose red, green and blue
+   * values are all 255. Each band of rows finds its own spans.
+   *
+   * @param pixels The pixels of the mask image
+   * @return the mask of the white pixels
+   */
+  static Mask white(PixelRaster pixels) {
+    int width = pixels.getWidth();
+    int[][] rows = new int[pixels.getHeight()][];
+    Parallelism.forEachBand(rows.length, (start, end) -> {
+      int[] row = new int[width];
+      int[] buffer = new int[width + 1];
+      for (int i = start; i < end; i++) {
+        pixels.getRow(i, row);
+        int count = 0;
+        boolean inside = false;
+        for (int j = 0; j < width; j++) {
+          boolean white = (row[j] & 0xFFFFFF) == 0xFFFFFF;
+          if (white != inside) {
+            buffer[count++] = j;
+            inside = white;
+          }
+        }
+        if (inside) {
+          buffer[count++] = width;
+        }
+        rows[i] = (count == 0) ? NO_SPANS : Arrays.copyOf(buffer, count);
+      }
+    }, pixels);
+    return new Mask(width, rows);
+  }
+
+  /**
+   * Gives the part of this mask that lies within an image of the given size.
+   *
+   * @param width  The width of the image
+   * @param height The height of the image
+   * @return this mask if it is already that size, otherwise the mask cut down to it
+   * @throws IllegalArgumentException if this mask is smaller than the image
+   */
+  Mask within(int width, int height) throws IllegalArgumentException {
+    if ((this.width < width) || (this.height < height)) {
+      throw new IllegalArgumentException("The mask is smaller than the picture!");
+    }
+    if ((this.width == width) && (this.height == height)) {
+      return this;
+    }
+    int[][] rows = new int[height][];
+    for (int i = 0; i < height; i++) {
+      int[] row = new int[this.spanCount(i) * 2];
+      int count = 0;
+      for (int k = 0; k < this.spanCount(i); k++) {
+        int start = this.spanStart(i, k);
+        if (start >= width) {
+          break;
+        }
+        row[count++] = start;
+        row[count++] = Math.min(this.spanEnd(i, k), width);
+      }
+      rows[i] = Arrays.copyOf(row, count);
+    }
+    return new Mask(width, rows);
+  }
+
+  /**
+   * Returns the width of the image this mask was made for.
+   *
+   * @return the width in pixels
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the height of the image this mask was made for.
+   *
+   * @return the height in pixels
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the number of selected pixels.
+   *
+   * @return the selected area, as a long since it is not limited by the size of an int
+   */
+  public long getArea() {
+    return this.area;
+  }
+
+  /**
+   * Returns about how many bytes of memory this mask takes, which grows with the number of rows
+   * and spans rather than the number of pixels.
+   *
+   * @return the size of this mask in bytes
+   */
+  public long memorySize() {
+    // The two arrays plus the fields and array headers
+    return 4L * (this.rowStarts.length + this.spans.length) + 96;
+  }
+
+  /**
+   * Checks if no pixel is selected.
+   *
+   * @return true if the mask is empty
+   */
+  public boolean isEmpty() {
+    return this.area == 0;
+  }
+
+  /**
+   * Returns the first row of the bounding box of the selected pixels.
+   *
+   * @return the top row, or 0 if the mask is empty
+   */
+  public int getTop() {
+    return this.top;
+  }
+
+  /**
+   * Returns the row after the last row of the bounding box of the selected pixels.
+   *
+   * @return the bottom row (exclusive), or 0 if the mask is empty
+   */
+  public int getBottom() {
+    return this.bottom;
+  }
+
+  /**
+   * Returns the first column of the bounding box of the selected pixels.
+   *
+   * @return the left column, or 0 if the mask is empty
+   */
+  public int getLeft() {
+    return this.left;
+  }
+
+  /**
+   * Returns the column after the last column of the bounding box of the selected pixels.
+   *
+   * @return the right column (exclusive), or 0 if the mask is empty
+   */
+  public int getRight() {
+    return this.right;
+  }
+
+  /**
+   * Returns the number of runs of selected pixels in a row.
+   *
+   * @param row The row to check
+   * @return the number of spans in the row
+   */
+  public int spanCount(int row) {
+    return (this.rowStarts[row + 1] - this.rowStarts[row]) / 2;
+  }
+
+  /**
+   * Returns the first column of a run of selected pixels.
+   *
+   * @param row  The row of the span
+   * @param span The index of the span within the row, from left to right
+   * @return the first selected column of the span
+   */
+  public int spanStart(int row, int span) {
+    return this.spans[this.rowStarts[row] + 2 * span];
+  }
+
+  /**
+   * Returns the column after the last column of a run of selected pixels.
+   *
+   * @param row  The row of the span
+   * @param span The index of the span within the row, from left to right
+   * @return the column after the span
+   */
+  public int spanEnd(int row, int span) {
+    return this.spans[this.rowStarts[row] + 2 * span + 1];
+  }
+
+  /**
+   * Checks if a pixel is selected by this mask.
+   *
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @return true if the pixel is selected
+   */
+  public boolean contains(int row, int col) {
+    if ((row < 0) || (row >= this.height)) {
+      return false;
+    }
+    for (int k = 0; k < this.spanCount(row); k++) {
+      if (col < this.spanStart(row, k)) {
+        return false;
+      }
+      if (col < this.spanEnd(row, k)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
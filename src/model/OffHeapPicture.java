@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * This class represents a Picture whose pixels are stored outside of the Java heap. It supports
+ * every operation of the other Pictures, including transparency, but only a small amount of
+ * heap memory is used no matter how large the image is. The memory of an OffHeapPicture is
+ * freed when it is released, so a picture must not be used after {@link #release()} is called.
+ */
+public class OffHeapPicture extends AbstractPicture {
+
+  /**
+   * Creates a Picture with a given width, height, max Color value, and the raster holding the
+   * packed RGBA values of every pixel in this image.
+   *
+   * @param width    Width of this image(in pixels)
+   * @param height   Height of this image(in pixels)
+   * @param maxValue The maximum color value of a single pixel field (R, G, B fields)
+   * @param raster   The packed ARGB values of every pixel in this image
+   */
+  public OffHeapPicture(int width, int height, int maxValue, DirectRaster raster) {
+    super(width, height, maxValue, raster);
+  }
+
+  /**
+   * Copies the pixels of any Picture into a new Picture stored outside of the Java heap.
+   *
+   * @param picture The Picture to copy
+   * @return an OffHeapPicture holding the same data as the given Picture
+   * @throws IllegalArgumentException if the picture is null
+   */
+  public static OffHeapPicture copyOf(IPicture picture) throws IllegalArgumentException {
+    if (picture == null) {
+      throw new IllegalArgumentException("Cannot copy a null picture!");
+    }
+    int width = picture.getWidth();
+    int height = picture.getHeight();
+    DirectRaster raster;
+    if (picture instanceof AbstractPicture) {
+      // Copy the pixels as they are and let the copy apply the same queued operations later
+      AbstractPicture source = (AbstractPicture) picture;
+      raster = DirectRaster.copyOf(source.raster);
+      return source.sharePending(new OffHeapPicture(width, height, source.maxValue, raster));
+    } else {
+      raster = new DirectRaster(width, height);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          raster.set(i, j, picture.getARGB(i, j));
+        }
+      }
+    }
+    return new OffHeapPicture(width, height, picture.getMaxValue(), raster);
+  }
+
+  /**
+   * Creates a Picture from a raster whose pixels are stored in a DirectRaster, such as a
+   * flipped view of one.
+   *
+   * @param width    Width of this image(in pixels)
+   * @param height   Height of this image(in pixels)
+   * @param maxValue The maximum color value of a single pixel field (R, G, B fields)
+   * @param raster   The packed ARGB values of every pixel in this image
+   */
+  private OffHeapPicture(int width, int height, int maxValue, PixelRaster raster) {
+    super(width, height, maxValue, raster);
+  }
+
+  @Override
+  public OffHeapPicture clone() {
+    return this.sharePending(new OffHeapPicture(this.width, this.height, this.maxValue,
+            this.raster.copy()));
+  }
+
+  @Override
+  protected IPicture createPicture(int width, int height, PixelRaster raster) {
+    if (raster.storage() instanceof DirectRaster) {
+      return new OffHeapPicture(width, height, this.maxValue, raster);
+    }
+    return new OffHeapPicture(width, height, this.maxValue, DirectRaster.copyOf(raster));
+  }
+}
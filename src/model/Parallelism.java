@@ -0,0 +1,146 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Controls how many threads the operations on a Picture can use. By default everything runs on
+ * the calling thread. Once the level is set above one, operations split the rows of an image
+ * into bands and work on the bands at the same time using a shared ForkJoinPool. Every band
+ * computes exactly what the sequential loop would for its rows, so the results are the same no
+ * matter how many threads are used.
+ */
+public final class Parallelism {
+  // Bands smaller than this are not worth handing to another thread
+  private static final int MIN_ROWS_PER_BAND = 16;
+
+  private static int level = 1;
+  private static ForkJoinPool pool = null;
+
+  /**
+   * Represents the work done on a band of rows.
+   */
+  @FunctionalInterface
+  public interface RowBand {
+
+    /**
+     * Works on the rows from start (inclusive) to end (exclusive).
+     *
+     * @param start The first row of the band
+     * @param end   The row after the last row of the band
+     */
+    void run(int start, int end);
+  }
+
+  private Parallelism() {
+    // Only holds static settings
+  }
+
+  /**
+   * Sets the number of threads operations may use. A level of one runs everything on the calling
+   * thread.
+   *
+   * @param threads The number of threads to use
+   * @throws IllegalArgumentException if the number of threads is less than one
+   */
+  public static synchronized void setLevel(int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed to run operations!");
+    }
+    if (threads == level) {
+      return;
+    }
+    if (pool != null) {
+      pool.shutdown();
+    }
+    pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+    level = threads;
+  }
+
+  /**
+   * Returns the number of threads operations may use.
+   *
+   * @return the current level of parallelism
+   */
+  public static synchronized int getLevel() {
+    return level;
+  }
+
+  /**
+   * Returns the pool to run bands in, or null if operations should run sequentially.
+   *
+   * @return the current pool
+   */
+  private static synchronized ForkJoinPool currentPool() {
+    return pool;
+  }
+
+  /**
+   * Runs the given work over every row from 0 up to the given number of rows. If the level is
+   * above one and every given raster can be used from several threads at once, the rows are
+   * split into bands that run in parallel, otherwise the whole range runs as one band on the
+   * calling thread. The bands never overlap, and this only returns once all of them are done.
+   *
+   * @param rows    The number of rows to go over
+   * @param band    The work to do for each band of rows
+   * @param rasters The rasters the work reads or writes
+   */
+  public static void forEachBand(int rows, RowBand band, PixelRaster... rasters) {
+    forEachBand(rows, MIN_ROWS_PER_BAND, band, rasters);
+  }
+
+  /**
+   * Runs the given work over every row from 0 up to the given number of rows, the same way as
+   * {@link #forEachBand(int, RowBand, PixelRaster...)}, but with the smallest band given. Work
+   * that goes over large blocks of pixels at a time can use a band of a single block.
+   *
+   * @param rows    The number of rows (or blocks) to go over
+   * @param minRows The fewest rows worth handing to another thread
+   * @param band    The work to do for each band of rows
+   * @param rasters The rasters the work reads or writes
+   */
+  public static void forEachBand(int rows, int minRows, RowBand band, PixelRaster... rasters) {
+    ForkJoinPool current = currentPool();
+    boolean parallel = (current != null) && (rows >= 2 * minRows);
+    for (PixelRaster raster : rasters) {
+      parallel = parallel && raster.supportsParallelRows();
+    }
+    if (!parallel) {
+      band.run(0, rows);
+      return;
+    }
+    // Aim for a few bands per thread so that uneven bands even out
+    int grain = Math.max(minRows, rows / (current.getParallelism() * 4));
+    current.invoke(new BandTask(band, 0, rows, grain));
+  }
+
+  /**
+   * Represents a range of rows that is split in half until it is small enough to run directly.
+   */
+  private static final class BandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RowBand band;
+    private final int start;
+    private final int end;
+    private final int grain;
+
+    private BandTask(RowBand band, int start, int end, int grain) {
+      this.band = band;
+      this.start = start;
+      this.end = end;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.end - this.start <= this.grain) {
+        this.band.run(this.start, this.end);
+        return;
+      }
+      int middle = (this.start + this.end) >>> 1;
+      invokeAll(new BandTask(this.band, this.start, middle, this.grain),
+              new BandTask(this.band, middle, this.end, this.grain));
+    }
+  }
+}
@@ -7,22 +7,38 @@ import java.util.Stack;
 /**
  * A model for the ImageProcessor. PictureStorage class represents a storage location for all
  * pictures loaded and created. It is able to store each Picture with an associated name,
- * and can check if an image is already added.
+ * and can check if an image is already added. The model can optionally keep the pixels of every
+ * stored Picture outside of the Java heap, in which case the memory of a Picture is freed as
+ * soon as it is replaced by another Picture with the same name.
  */
 public class PictureStorageModel implements ImageProcessorModel {
   private Map<String, IPicture> pictureList;
   private int count;
   private Stack<Integer> countStack;
   private Stack<Integer> redoStack;
+  private final boolean offHeap;
 
   /**
    * Creates a new PictureStorage object that has no Images added by default.
    */
   public PictureStorageModel() {
+    this(false);
+  }
+
+  /**
+   * Creates a new PictureStorage object that has no Images added by default. If offHeap is true,
+   * every Picture added is copied outside of the Java heap, so the heap used by this model stays
+   * the same no matter how large the stored images are. TiledPictures are already stored on disk
+   * and are kept as they are.
+   *
+   * @param offHeap true to store the pixels of each Picture outside of the Java heap
+   */
+  public PictureStorageModel(boolean offHeap) {
     this.pictureList = new HashMap<>();
     this.count = 0;
     this.countStack = new Stack<>();
     this.redoStack = new Stack<>();
+    this.offHeap = offHeap;
   }
 
   @Override
@@ -30,7 +46,17 @@ public class PictureStorageModel implements ImageProcessorModel {
     if ((pictureName == null) || (picture == null)) {
       throw new IllegalArgumentException("Need a non-null picture and name to add a Picture!");
     }
-    this.pictureList.put(pictureName, picture.clone());
+    IPicture stored;
+    if (this.offHeap && !(picture instanceof TiledPicture)) {
+      stored = OffHeapPicture.copyOf(picture);
+    } else {
+      stored = picture.clone();
+    }
+    IPicture replaced = this.pictureList.put(pictureName, stored);
+    // The replaced Picture can no longer be retrieved, so free any memory it holds
+    if (replaced != null) {
+      replaced.release();
+    }
     this.countStack.push(this.count);
     this.count++;
   }
@@ -69,6 +95,20 @@ public class PictureStorageModel implements ImageProcessorModel {
     this.count--;
   }
 
+  /**
+   * Frees the memory of every Picture stored in this model and removes them. The model can
+   * continue to be used and new pictures added after it is cleared.
+   */
+  public void clear() {
+    for (IPicture picture : this.pictureList.values()) {
+      picture.release();
+    }
+    this.pictureList.clear();
+    this.countStack.clear();
+    this.redoStack.clear();
+    this.count = 0;
+  }
+
   @Override
   public int[] colorValues(String type) {
     return this.getPicture(this.getLastCount()).colorValues(type);
@@ -0,0 +1,205 @@
+package model;
+
+/**
+ * Represents the pixel storage behind a Picture. Every pixel is packed into a single int in ARGB
+ * order (8 bits per component, alpha in the highest byte) and the pixels are addressed row by
+ * row. Pictures only read and write their pixels through this class, so the pixels can be kept
+ * in a heap array ({@link HeapRaster}) or in memory outside of the Java heap
+ * ({@link DirectRaster}) without the operations needing to know which.
+ */
+public abstract class PixelRaster {
+  protected final int width;
+  protected final int height;
+
+  /**
+   * Creates a raster of the given size.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @throws IllegalArgumentException if the width or height is negative
+   */
+  protected PixelRaster(int width, int height) throws IllegalArgumentException {
+    if ((width < 0) || (height < 0)) {
+      throw new IllegalArgumentException("A raster cannot have a negative size!");
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Returns the width of this raster in pixels.
+   *
+   * @return the width of this raster
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the height of this raster in pixels.
+   *
+   * @return the height of this raster
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the packed ARGB value of a single pixel.
+   *
+   * @param row The row of the pixel
+   * @param col The column of the pixel
+   * @return the packed ARGB value stored at the given location
+   */
+  public abstract int get(int row, int col);
+
+  /**
+   * Stores a packed ARGB value for a single pixel.
+   *
+   * @param row  The row of the pixel
+   * @param col  The column of the pixel
+   * @param argb The packed ARGB value to store
+   */
+  public abstract void set(int row, int col, int argb);
+
+  /**
+   * Copies a full row of packed ARGB values into the given array.
+   *
+   * @param row The row to copy
+   * @param dst The array to copy the row into, must hold at least width values
+   */
+  public abstract void getRow(int row, int[] dst);
+
+  /**
+   * Overwrites a full row of this raster with the packed ARGB values in the given array.
+   *
+   * @param row The row to overwrite
+   * @param src The array holding the new values, must hold at least width values
+   */
+  public abstract void setRow(int row, int[] src);
+
+  /**
+   * Creates a copy of this raster stored in the same kind of memory. Writing to the copy never
+   * changes this raster and writing to this raster never changes the copy, although a raster may
+   * share its data with the copy until one of them is written to.
+   *
+   * @return a copy of this raster
+   */
+  public abstract PixelRaster copy();
+
+  /**
+   * Creates a new raster of the given size stored in the same kind of memory as this raster.
+   * Every pixel of the new raster is fully transparent black.
+   *
+   * @param width  Width of the new raster
+   * @param height Height of the new raster
+   * @return an empty raster of the given size
+   */
+  public abstract PixelRaster create(int width, int height);
+
+  /**
+   * Returns the raster that actually stores the pixels of this raster. For a view that only
+   * rearranges the pixels of another raster, this is the raster underneath, which holds the same
+   * pixels in a different order. Operations that treat every pixel the same way regardless of
+   * its location can work on the storage directly. By default a raster stores its own pixels.
+   *
+   * @return the raster holding the pixels
+   */
+  public PixelRaster storage() {
+    return this;
+  }
+
+  /**
+   * Returns a raster holding the pixels of this raster in their actual order, copying them out
+   * of the storage first if this raster is a view that rearranges them. This raster must not be
+   * used afterwards. By default a raster is already in order and is returned as it is.
+   *
+   * @return a raster holding the same pixels in order
+   */
+  public PixelRaster materialize() {
+    return this;
+  }
+
+  /**
+   * Checks if different threads can read and write different rows of this raster at the same
+   * time. Rasters that keep every row in its own place in memory can, so this is true by default.
+   *
+   * @return true if separate rows can be used from several threads at once
+   */
+  public boolean supportsParallelRows() {
+    return true;
+  }
+
+  /**
+   * Frees any memory this raster holds outside of the Java heap. The raster cannot be used after
+   * it is released. Rasters stored on the heap are left to the garbage collector, so by default
+   * this does nothing.
+   */
+  public void release() {
+    // Heap memory is reclaimed by the garbage collector
+  }
+
+  /**
+   * Computes the number of pixels a raster of the given size holds, as a long since the size of
+   * a large raster does not fit in an int.
+   *
+   * @return the number of pixels in this raster
+   */
+  public long size() {
+    return (long) this.width * this.height;
+  }
+
+  /**
+   * Packs four color components into a single ARGB value. Each component must already be
+   * within 0-255.
+   *
+   * @param r The red component
+   * @param g The green component
+   * @param b The blue component
+   * @param a The alpha component
+   * @return the packed ARGB value
+   */
+  public static int pack(int r, int g, int b, int a) {
+    return (a << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Returns the red component of a packed ARGB value.
+   *
+   * @param argb The packed value
+   * @return the red component 0-255
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the green component of a packed ARGB value.
+   *
+   * @param argb The packed value
+   * @return the green component 0-255
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the blue component of a packed ARGB value.
+   *
+   * @param argb The packed value
+   * @return the blue component 0-255
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Returns the alpha component of a packed ARGB value.
+   *
+   * @param argb The packed value
+   * @return the alpha component 0-255
+   */
+  public static int alpha(int argb) {
+    return (argb >>> 24);
+  }
+}
@@ -0,0 +1,117 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * Represents a single pixel of a Picture as an IPixel. The view does not hold any color values
+ * itself, every read and write goes straight through to the packed value stored in the Picture.
+ * This keeps the older pixel based operations available on top of the packed storage.
+ */
+class PixelView implements IPixel {
+  private final IPicture picture;
+  private final int row;
+  private final int col;
+
+  /**
+   * Creates a view of the pixel at the given location of a Picture.
+   *
+   * @param picture The Picture the pixel belongs to
+   * @param row     The row of the pixel
+   * @param col     The column of the pixel
+   */
+  PixelView(IPicture picture, int row, int col) {
+    this.picture = picture;
+    this.row = row;
+    this.col = col;
+  }
+
+  /**
+   * Copies the current values of this view into a standalone pixel.
+   *
+   * @return a RGBA pixel holding the current values of this view
+   */
+  private RGBAPixel snapshot() {
+    int argb = picture.getARGB(row, col);
+    return new RGBAPixel(PixelRaster.red(argb), PixelRaster.green(argb),
+            PixelRaster.blue(argb), PixelRaster.alpha(argb));
+  }
+
+  /**
+   * Writes the values of a standalone pixel back into the Picture.
+   *
+   * @param pixel The pixel holding the new values of this view
+   */
+  private void store(IPixel pixel) {
+    picture.setARGB(row, col, pixel.getARGB());
+  }
+
+  @Override
+  public String toString() {
+    return this.snapshot().toString();
+  }
+
+  @Override
+  public IPixel clone() {
+    return this.snapshot();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this.snapshot().equals(other);
+  }
+
+  @Override
+  public int hashCode() {
+    int argb = picture.getARGB(row, col);
+    return Objects.hash(PixelRaster.red(argb), PixelRaster.green(argb), PixelRaster.blue(argb),
+            PixelRaster.alpha(argb));
+  }
+
+  @Override
+  public void brighten(int value, int maxValue) {
+    RGBAPixel pixel = this.snapshot();
+    pixel.brighten(value, Math.min(maxValue, this.picture.getMaxValue()));
+    this.store(pixel);
+  }
+
+  @Override
+  public void greyScale(String type) {
+    RGBAPixel pixel = this.snapshot();
+    pixel.greyScale(type);
+    this.store(pixel);
+  }
+
+  @Override
+  public void greyScale(GreyscaleType type) {
+    RGBAPixel pixel = this.snapshot();
+    pixel.greyScale(type);
+    this.store(pixel);
+  }
+
+  @Override
+  public double getValue(String color) throws IllegalArgumentException {
+    return this.getChannel(Channel.fromName(color));
+  }
+
+  @Override
+  public int getChannel(Channel channel) {
+    return channel.get(picture.getARGB(row, col));
+  }
+
+  @Override
+  public int getARGB() {
+    return picture.getARGB(row, col);
+  }
+
+  @Override
+  public void setARGB(int argb) {
+    picture.setARGB(row, col, argb);
+  }
+
+  @Override
+  public void set(int r, int g, int b, int maxValue) {
+    RGBAPixel pixel = this.snapshot();
+    pixel.set(r, g, b, Math.min(maxValue, this.picture.getMaxValue()));
+    this.store(pixel);
+  }
+}
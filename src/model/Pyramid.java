@@ -0,0 +1,165 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the mipmap pyramid of a Picture: the image itself, then a copy half as wide and
+ * tall, then a quarter, and so on down to a single pixel. Each level is the area average of the
+ * level before it. When both sides are even every pixel is the rounded average of a 2x2 block,
+ * found in one pass, and otherwise a box {@link Resampler} spreads the extra row or column over
+ * its neighbors. Levels are only made once something asks for them, and all of them together
+ * take a third of the memory of the image.
+ *
+ * <p>A pyramid belongs to one version of the pixels of its Picture, which throws it away once
+ * they change.</p>
+ */
+final class Pyramid {
+  private final PixelRaster base;
+  private final long version;
+  // Level 0 is the base raster, every other level was made by this pyramid
+  private final List<PixelRaster> levels = new ArrayList<>();
+
+  /**
+   * Creates the pyramid of the given pixels. No level is made until it is asked for.
+   *
+   * @param base    The pixels of the Picture, which stay owned by the Picture
+   * @param version The version of the pixels the pyramid belongs to
+   */
+  Pyramid(PixelRaster base, long version) {
+    this.base = base;
+    this.version = version;
+    this.levels.add(base);
+  }
+
+  /**
+   * Checks if this pyramid was made from the given pixels at the given version.
+   *
+   * @param raster  The current pixels of the Picture
+   * @param version The current version of the pixels
+   * @return true if this pyramid is still up to date
+   */
+  boolean isFor(PixelRaster raster, long version) {
+    return (this.base == raster) && (this.version == version);
+  }
+
+  /**
+   * Counts the levels of the pyramid of an image of the given size, from the image itself down
+   * to a single pixel.
+   *
+   * @param width  The width of the image
+   * @param height The height of the image
+   * @return the number of levels
+   */
+  static int depth(int width, int height) {
+    int levels = 1;
+    while ((width > 1) || (height > 1)) {
+      width = Math.max(1, width / 2);
+      height = Math.max(1, height / 2);
+      levels++;
+    }
+    return levels;
+  }
+
+  /**
+   * Gives the width (or height) a side of the image has at the given level.
+   *
+   * @param size  The size of the side in the image itself
+   * @param level The level of the pyramid
+   * @return the size of the side at that level, never less than one
+   */
+  static int sizeAt(int size, int level) {
+    return Math.max(1, size >> Math.min(level, 31));
+  }
+
+  /**
+   * Finds the smallest level that is still at least the given size on both sides, which is the
+   * best place to start making an image of that size from.
+   *
+   * @param width  The width wanted
+   * @param height The height wanted
+   * @return the level to start from, 0 if the image is not made at least twice as small
+   */
+  int nearest(int width, int height) {
+    int level = 0;
+    int deepest = depth(this.base.getWidth(), this.base.getHeight()) - 1;
+    while ((level < deepest) && (sizeAt(this.base.getWidth(), level + 1) >= width)
+            && (sizeAt(this.base.getHeight(), level + 1) >= height)) {
+      level++;
+    }
+    return level;
+  }
+
+  /**
+   * Gives the pixels of a level, making it and any level above it that is missing first. The
+   * raster given is kept by the pyramid and must only be read.
+   *
+   * @param level The level of the pyramid, 0 for the image itself
+   * @return the pixels of the level
+   * @throws IllegalArgumentException if the pyramid has no such level
+   */
+  synchronized PixelRaster level(int level) throws IllegalArgumentException {
+    if ((level < 0) || (level >= depth(this.base.getWidth(), this.base.getHeight()))) {
+      throw new IllegalArgumentException("The pyramid of this picture has no level " + level
+              + "!");
+    }
+    while (this.levels.size() <= level) {
+      PixelRaster above = this.levels.get(this.levels.size() - 1);
+      int width = Math.max(1, above.getWidth() / 2);
+      int height = Math.max(1, above.getHeight() / 2);
+      if ((above.getWidth() == 2 * width) && (above.getHeight() == 2 * height)) {
+        this.levels.add(halve(above));
+      } else {
+        this.levels.add(Resampler.of(ResampleFilter.BOX, above.getWidth(), above.getHeight(),
+                width, height).apply(above));
+      }
+    }
+    return this.levels.get(level);
+  }
+
+  /**
+   * Averages every 2x2 block of a raster with an even width and height into one pixel, rounding
+   * each of red, green, blue and alpha to the nearest whole number.
+   *
+   * @param source The pixels to halve
+   * @return a new raster of the same kind, half as wide and tall
+   */
+  private static PixelRaster halve(PixelRaster source) {
+    int width = source.getWidth() / 2;
+    int height = source.getHeight() / 2;
+    PixelRaster result = source.create(width, height);
+    Parallelism.forEachBand(height, (start, end) -> {
+      int[] top = new int[2 * width];
+      int[] bottom = new int[2 * width];
+      int[] out = new int[width];
+      for (int i = start; i < end; i++) {
+        source.getRow(2 * i, top);
+        source.getRow(2 * i + 1, bottom);
+        for (int j = 0; j < width; j++) {
+          int a = top[2 * j];
+          int b = top[2 * j + 1];
+          int c = bottom[2 * j];
+          int d = bottom[2 * j + 1];
+          // Two colors 16 bits apart are summed at once, and four of them never reach the other
+          int redBlue = (a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF)
+                  + 0x020002;
+          int alphaGreen = ((a >>> 8) & 0xFF00FF) + ((b >>> 8) & 0xFF00FF)
+                  + ((c >>> 8) & 0xFF00FF) + ((d >>> 8) & 0xFF00FF) + 0x020002;
+          out[j] = ((redBlue >>> 2) & 0xFF00FF) | (((alphaGreen >>> 2) & 0xFF00FF) << 8);
+        }
+        result.setRow(i, out);
+      }
+    }, source, result);
+    return result;
+  }
+
+  /**
+   * Frees the memory of every level this pyramid made. The base raster is left alone.
+   */
+  synchronized void release() {
+    for (int i = 1; i < this.levels.size(); i++) {
+      this.levels.get(i).release();
+    }
+    this.levels.subList(1, this.levels.size()).clear();
+  }
+}
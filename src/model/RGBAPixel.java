@@ -20,18 +20,13 @@ public class RGBAPixel extends AbstractPixel {
   }
 
   @Override
-  public double getValue(String color) throws IllegalArgumentException {
-    if (color.equals("red")) {
-      return this.red;
-    } else if (color.equals("green")) {
-      return this.green;
-    } else if (color.equals("blue")) {
-      return this.blue;
-    } else if (color.equals("alpha")) {
-      return this.alpha;
-    } else {
-      throw new IllegalArgumentException("A RGBA pixel does not store data of the given type!");
-    }
+  protected int getAlpha() {
+    return this.alpha;
+  }
+
+  @Override
+  protected void setAlpha(int alpha) {
+    this.alpha = alpha;
   }
 
   @Override
@@ -39,4 +34,3 @@ public class RGBAPixel extends AbstractPixel {
     return new RGBAPixel(this.red, this.green, this.blue, this.alpha);
   }
 }
-
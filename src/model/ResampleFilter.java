@@ -0,0 +1,104 @@
+package model;
+
+/**
+ * Represents how a {@link Resampler} weighs the pixels near the point each new pixel is taken
+ * from. A filter is a curve centered on that point that is zero past its support, given as a
+ * distance in source pixels. When an image is made smaller the curve is stretched by the same
+ * amount, so every source pixel still adds to the result instead of being skipped over.
+ */
+public enum ResampleFilter {
+  BOX("box", 0.5) {
+    @Override
+    double weight(double distance) {
+      // Half open so a pixel exactly between two others is only counted once
+      return ((distance >= -0.5) && (distance < 0.5)) ? 1 : 0;
+    }
+  },
+  BILINEAR("bilinear", 1) {
+    @Override
+    double weight(double distance) {
+      return Math.max(0, 1 - Math.abs(distance));
+    }
+  },
+  LANCZOS("lanczos", 3) {
+    @Override
+    double weight(double distance) {
+      if (Math.abs(distance) >= 3) {
+        return 0;
+      }
+      return sinc(distance) * sinc(distance / 3);
+    }
+  };
+
+  private final String name;
+  private final double support;
+
+  /**
+   * Creates a filter with the name used by the text commands and its support.
+   *
+   * @param name    The name of this filter
+   * @param support How far from the center the weights of this filter reach, in source pixels
+   */
+  ResampleFilter(String name, double support) {
+    this.name = name;
+    this.support = support;
+  }
+
+  /**
+   * Returns the lowercase name of this filter ("box", "bilinear", or "lanczos").
+   *
+   * @return the name of this filter
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns how far from the center the weights of this filter reach when the image is not made
+   * smaller.
+   *
+   * @return the support of this filter, in source pixels
+   */
+  public double getSupport() {
+    return this.support;
+  }
+
+  /**
+   * Gives the weight of a source pixel the given distance away from the point sampled. The
+   * weights are not scaled to add up to one.
+   *
+   * @param distance The distance of the pixel from the point, in source pixels
+   * @return the weight of the pixel
+   */
+  abstract double weight(double distance);
+
+  /**
+   * Computes sin(pi x) / (pi x), which is one at zero.
+   *
+   * @param x The value to compute it at
+   * @return the normalized sinc of the value
+   */
+  private static double sinc(double x) {
+    if (x == 0) {
+      return 1;
+    }
+    double angle = Math.PI * x;
+    return Math.sin(angle) / angle;
+  }
+
+  /**
+   * Finds the filter with the given name.
+   *
+   * @param name The name of the filter ("box", "bilinear", or "lanczos")
+   * @return the filter with the given name
+   * @throws IllegalArgumentException if no filter has the given name
+   */
+  public static ResampleFilter fromName(String name) throws IllegalArgumentException {
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      if (filter.name.equals(name)) {
+        return filter;
+      }
+    }
+    throw new IllegalArgumentException("Unknown resampling filter: " + name);
+  }
+}
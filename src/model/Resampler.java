@@ -0,0 +1,313 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a change of an image from one size to another, made larger or smaller. Each new
+ * pixel is a weighted sum of the source pixels near the point it is taken from, with the weights
+ * given by a {@link ResampleFilter}. The filter is applied across each row and then down each
+ * column, so a pixel costs as many reads as the filter is wide and tall added together instead
+ * of multiplied.
+ *
+ * <p>Along each axis, which source pixels every new column (or row) reads and their weights are
+ * worked out once when the resampler is made. The weights are stored as whole numbers with 16
+ * bits after the point and always add up to exactly one, so an image of a single color keeps
+ * that color. Both passes split their rows into bands that run at the same time. Red, green,
+ * blue and alpha are each resampled on their own and rounded to the nearest whole number, and
+ * values that the negative weights of Lanczos push past 0-255 are clamped.</p>
+ */
+public final class Resampler {
+  // Number of bits after the point of every weight
+  private static final int WEIGHT_BITS = 16;
+  private static final int ONE = 1 << WEIGHT_BITS;
+  private static final int HALF = 1 << (WEIGHT_BITS - 1);
+
+  private final ResampleFilter filter;
+  private final int sourceWidth;
+  private final int sourceHeight;
+  private final Axis columns;
+  private final Axis rows;
+
+  /**
+   * Represents which source pixels each pixel along one axis of the new image reads, and how much
+   * each of them counts.
+   */
+  private static final class Axis {
+    private final int size;
+    // The first source pixel read for each new pixel
+    private final int[] first;
+    // The number of source pixels read for each new pixel
+    private final int[] count;
+    // The weights of new pixel k are at k * stride to k * stride + count[k] (exclusive)
+    private final int[] weights;
+    private final int stride;
+
+    /**
+     * Works out the source pixels and weights of every pixel along an axis. The point new pixel k
+     * is taken from is the center of the span of the source it covers. When the axis gets
+     * smaller the filter is stretched to cover that span, and pixels past the edge are left out
+     * with the remaining weights scaled back up to one.
+     *
+     * @param filter     The filter giving the weights
+     * @param sourceSize The number of source pixels along the axis
+     * @param size       The number of new pixels along the axis
+     */
+    private Axis(ResampleFilter filter, int sourceSize, int size) {
+      this.size = size;
+      double scale = (double) sourceSize / size;
+      double stretch = Math.max(scale, 1);
+      double support = filter.getSupport() * stretch;
+      this.stride = (int) Math.ceil(support) * 2 + 1;
+      this.first = new int[size];
+      this.count = new int[size];
+      this.weights = new int[size * this.stride];
+      double[] exact = new double[this.stride];
+      for (int k = 0; k < size; k++) {
+        double center = (k + 0.5) * scale;
+        int low = Math.max(0, (int) (center - support + 0.5));
+        int high = Math.min(sourceSize, (int) (center + support + 0.5));
+        double total = 0;
+        for (int s = low; s < high; s++) {
+          if ((filter == ResampleFilter.BOX) && (stretch > 1)) {
+            // The part of the source pixel the new pixel covers, so this is an area average
+            exact[s - low] = Math.max(0,
+                    Math.min(s + 1, center + support) - Math.max(s, center - support));
+          } else {
+            exact[s - low] = filter.weight((s + 0.5 - center) / stretch);
+          }
+          total += exact[s - low];
+        }
+        if (total == 0) {
+          // Too narrow to reach any pixel, so the nearest one is taken
+          low = Math.min(sourceSize - 1, (int) center);
+          high = low + 1;
+          exact[0] = 1;
+          total = 1;
+        }
+        this.first[k] = low;
+        this.count[k] = high - low;
+        int offset = k * this.stride;
+        int sum = 0;
+        int largest = 0;
+        for (int s = 0; s < high - low; s++) {
+          int weight = (int) Math.round(exact[s] / total * ONE);
+          this.weights[offset + s] = weight;
+          sum += weight;
+          if (Math.abs(weight) > Math.abs(this.weights[offset + largest])) {
+            largest = s;
+          }
+        }
+        // Rounding each weight can leave the total a little off from one
+        this.weights[offset + largest] += ONE - sum;
+      }
+    }
+  }
+
+  /**
+   * Creates a resampler between the given sizes.
+   *
+   * @param filter       The filter giving the weights
+   * @param sourceWidth  The width of the images to resample
+   * @param sourceHeight The height of the images to resample
+   * @param width        The width of the new images
+   * @param height       The height of the new images
+   */
+  private Resampler(ResampleFilter filter, int sourceWidth, int sourceHeight, int width,
+                    int height) {
+    this.filter = filter;
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.columns = new Axis(filter, sourceWidth, width);
+    this.rows = new Axis(filter, sourceHeight, height);
+  }
+
+  /**
+   * Creates a resampler that changes images of one size into images of another, working out the
+   * weights of every row and column once so it can be applied to any number of images.
+   *
+   * @param filter       The filter giving the weights
+   * @param sourceWidth  The width of the images to resample
+   * @param sourceHeight The height of the images to resample
+   * @param width        The width of the new images
+   * @param height       The height of the new images
+   * @return the resampler
+   * @throws IllegalArgumentException if the filter is null or a size is less than one
+   */
+  public static Resampler of(ResampleFilter filter, int sourceWidth, int sourceHeight, int width,
+                             int height) throws IllegalArgumentException {
+    if (filter == null) {
+      throw new IllegalArgumentException("Cannot resample with a null filter!");
+    }
+    if ((sourceWidth < 1) || (sourceHeight < 1) || (width < 1) || (height < 1)) {
+      throw new IllegalArgumentException("An image must be at least one pixel wide and tall!");
+    }
+    return new Resampler(filter, sourceWidth, sourceHeight, width, height);
+  }
+
+  /**
+   * Returns the filter giving the weights of this resampler.
+   *
+   * @return the filter
+   */
+  public ResampleFilter getFilter() {
+    return this.filter;
+  }
+
+  /**
+   * Returns the width of the new images.
+   *
+   * @return the width in pixels
+   */
+  public int getWidth() {
+    return this.columns.size;
+  }
+
+  /**
+   * Returns the height of the new images.
+   *
+   * @return the height in pixels
+   */
+  public int getHeight() {
+    return this.rows.size;
+  }
+
+  /**
+   * Resamples a raster and stores the result in a new raster of the same kind. The given raster
+   * is only read, never written to. An axis that keeps its size is not resampled at all.
+   *
+   * @param source The pixels to resample
+   * @return a new raster holding the resampled pixels
+   * @throws IllegalArgumentException if the raster is not the size this resampler was made for
+   */
+  public PixelRaster apply(PixelRaster source) throws IllegalArgumentException {
+    if ((source.getWidth() != this.sourceWidth) || (source.getHeight() != this.sourceHeight)) {
+      throw new IllegalArgumentException("The raster is not the size this resampler was made "
+              + "for!");
+    }
+    int width = this.columns.size;
+    int height = this.rows.size;
+    if ((width == this.sourceWidth) && (height == this.sourceHeight)) {
+      PixelRaster result = source.create(width, height);
+      Parallelism.forEachBand(height, (start, end) -> {
+        int[] row = new int[width];
+        for (int i = start; i < end; i++) {
+          source.getRow(i, row);
+          result.setRow(i, row);
+        }
+      }, source, result);
+      return result;
+    }
+    PixelRaster across = source;
+    if (width != this.sourceWidth) {
+      PixelRaster target = source.create(width, this.sourceHeight);
+      Parallelism.forEachBand(this.sourceHeight,
+          (start, end) -> this.horizontal(source, target, start, end), source, target);
+      across = target;
+    }
+    if (height == this.sourceHeight) {
+      return across;
+    }
+    PixelRaster from = across;
+    PixelRaster result = source.create(width, height);
+    Parallelism.forEachBand(height,
+        (start, end) -> this.vertical(from, result, start, end), from, result);
+    if (from != source) {
+      from.release();
+    }
+    return result;
+  }
+
+  /**
+   * Resamples the given rows across their columns.
+   *
+   * @param source The pixels to resample
+   * @param target The raster to store the new rows in, as tall as the source
+   * @param start  The first row of the band
+   * @param end    The row after the last row of the band
+   */
+  private void horizontal(PixelRaster source, PixelRaster target, int start, int end) {
+    Axis axis = this.columns;
+    int[] row = new int[this.sourceWidth];
+    int[] out = new int[axis.size];
+    for (int i = start; i < end; i++) {
+      source.getRow(i, row);
+      for (int k = 0; k < axis.size; k++) {
+        int offset = k * axis.stride;
+        int first = axis.first[k];
+        int alpha = HALF;
+        int red = HALF;
+        int green = HALF;
+        int blue = HALF;
+        for (int s = 0; s < axis.count[k]; s++) {
+          int weight = axis.weights[offset + s];
+          int argb = row[first + s];
+          alpha += weight * (argb >>> 24);
+          red += weight * ((argb >> 16) & 0xFF);
+          green += weight * ((argb >> 8) & 0xFF);
+          blue += weight * (argb & 0xFF);
+        }
+        out[k] = pack(alpha, red, green, blue);
+      }
+      target.setRow(i, out);
+    }
+  }
+
+  /**
+   * Resamples the given rows of the new image down their columns. Each new row adds up the
+   * source rows it reads one at a time, with a running sum for every column.
+   *
+   * @param source The pixels to resample, as wide as the new image
+   * @param target The raster to store the new rows in
+   * @param start  The first row of the band
+   * @param end    The row after the last row of the band
+   */
+  private void vertical(PixelRaster source, PixelRaster target, int start, int end) {
+    Axis axis = this.rows;
+    int width = this.columns.size;
+    int[] row = new int[width];
+    int[] alpha = new int[width];
+    int[] red = new int[width];
+    int[] green = new int[width];
+    int[] blue = new int[width];
+    int[] out = new int[width];
+    for (int i = start; i < end; i++) {
+      Arrays.fill(alpha, HALF);
+      Arrays.fill(red, HALF);
+      Arrays.fill(green, HALF);
+      Arrays.fill(blue, HALF);
+      int offset = i * axis.stride;
+      for (int s = 0; s < axis.count[i]; s++) {
+        int weight = axis.weights[offset + s];
+        source.getRow(axis.first[i] + s, row);
+        for (int j = 0; j < width; j++) {
+          int argb = row[j];
+          alpha[j] += weight * (argb >>> 24);
+          red[j] += weight * ((argb >> 16) & 0xFF);
+          green[j] += weight * ((argb >> 8) & 0xFF);
+          blue[j] += weight * (argb & 0xFF);
+        }
+      }
+      for (int j = 0; j < width; j++) {
+        out[j] = pack(alpha[j], red[j], green[j], blue[j]);
+      }
+      target.setRow(i, out);
+    }
+  }
+
+  /**
+   * Packs weighted sums into a pixel, dropping the bits after the point and clamping each value
+   * to 0-255. The sums already hold a half so that dropping the bits rounds them.
+   *
+   * @param alpha The sum of the alpha values
+   * @param red   The sum of the red values
+   * @param green The sum of the green values
+   * @param blue  The sum of the blue values
+   * @return the packed pixel
+   */
+  private static int pack(int alpha, int red, int green, int blue) {
+    return (FixedPoint.clamp(alpha >> WEIGHT_BITS, 255) << 24)
+            | (FixedPoint.clamp(red >> WEIGHT_BITS, 255) << 16)
+            | (FixedPoint.clamp(green >> WEIGHT_BITS, 255) << 8)
+            | FixedPoint.clamp(blue >> WEIGHT_BITS, 255);
+  }
+}
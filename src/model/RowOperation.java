@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * Represents an operation that changes the pixels of a Picture one row at a time, where every
+ * new pixel only depends on the old value of the same pixel. Operations like this can be queued
+ * up and then run back to back on each row, so a chain of them only goes over the image once.
+ */
+interface RowOperation {
+
+  /**
+   * Applies this operation to a row of packed ARGB values in place.
+   *
+   * @param row    The index of the row being changed
+   * @param pixels The packed values of the row
+   */
+  void apply(int row, int[] pixels);
+}
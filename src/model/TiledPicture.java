@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * This class represents a Picture whose pixels are stored in tiles in a file on disk, with only
+ * the tiles currently in use kept in memory. It supports every operation of the other Pictures,
+ * including transparency, and is meant for images too large to fit in memory. The backing file
+ * of a TiledPicture is deleted when it is released, so a picture must not be used after
+ * {@link #release()} is called.
+ */
+public class TiledPicture extends AbstractPicture {
+
+  /**
+   * Creates a Picture with a given width, height, max Color value, and the tiled raster holding
+   * the packed RGBA values of every pixel in this image.
+   *
+   * @param width    Width of this image(in pixels)
+   * @param height   Height of this image(in pixels)
+   * @param maxValue The maximum color value of a single pixel field (R, G, B fields)
+   * @param raster   The packed ARGB values of every pixel in this image
+   */
+  public TiledPicture(int width, int height, int maxValue, TiledRaster raster) {
+    super(width, height, maxValue, raster);
+  }
+
+  /**
+   * Creates a Picture from a raster whose pixels are stored in a TiledRaster, such as a
+   * flipped view of one.
+   *
+   * @param width    Width of this image(in pixels)
+   * @param height   Height of this image(in pixels)
+   * @param maxValue The maximum color value of a single pixel field (R, G, B fields)
+   * @param raster   The packed ARGB values of every pixel in this image
+   */
+  private TiledPicture(int width, int height, int maxValue, PixelRaster raster) {
+    super(width, height, maxValue, raster);
+  }
+
+  @Override
+  public TiledPicture clone() {
+    return this.sharePending(new TiledPicture(this.width, this.height, this.maxValue,
+            this.raster.copy()));
+  }
+
+  @Override
+  protected IPicture createPicture(int width, int height, PixelRaster raster) {
+    if (raster.storage() instanceof TiledRaster) {
+      return new TiledPicture(width, height, this.maxValue, raster);
+    }
+    return new TiledPicture(width, height, this.maxValue, TiledRaster.copyOf(raster));
+  }
+}
@@ -0,0 +1,546 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a raster whose pixels are stored in a file on disk and split into square tiles.
+ * Only a limited number of tiles are kept in memory at once. A tile is read from the file the
+ * first time it is used, and the least recently used tile is written back (if it was changed)
+ * and dropped whenever the cache is full, so a raster can be far larger than the memory
+ * available to the program.
+ *
+ * <p>Every tile is stored in a slot of the file, found with long arithmetic, so the number of
+ * pixels in a raster is not limited to what fits in an int. The cache always has room for a full
+ * row of tiles, which means that going through the raster row by row reads every tile from disk
+ * exactly once.</p>
+ *
+ * <p>Copies of a tiled raster are copy-on-write, the same way as a {@link HeapRaster}. A copy
+ * shares the backing file and every slot of the original, and a tile only gets a slot of its own
+ * the first time either raster writes it back after changing it. Cloning a Picture larger than
+ * memory therefore costs nothing, and an edit only writes the tiles it actually changes.</p>
+ *
+ * <p>Every method that uses the tiles holds the lock of the raster, so a tiled raster can be read
+ * from another thread one access at a time, for example to count its histogram while it is being
+ * drawn.</p>
+ *
+ * <p>The slots of a raster are given back when it is released, or once the raster can no longer
+ * be reached if it is never released, and the backing file is deleted when neither the raster
+ * nor any of its copies use it anymore (or the program exits). A released raster cannot be read
+ * or written.</p>
+ */
+public final class TiledRaster extends PixelRaster {
+  public static final int DEFAULT_TILE_SIZE = 256;
+  public static final long DEFAULT_CACHE_BYTES = 256L << 20;
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final int tileSize;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private final long cacheBytes;
+  private final File directory;
+  private final TileStore store;
+  private final Handle handle;
+  private final Cleaner.Cleanable cleanable;
+  private final LinkedHashMap<Long, Tile> cache;
+  private final ByteBuffer transfer;
+  private Tile lastTile;
+  private boolean released;
+
+  /**
+   * Represents a single tile held in memory, along with whether it has changed since it was
+   * read from the file.
+   */
+  private static final class Tile {
+    private final long index;
+    private final int[] pixels;
+    private boolean dirty;
+
+    private Tile(long index, int[] pixels) {
+      this.index = index;
+      this.pixels = pixels;
+    }
+  }
+
+  /**
+   * Holds the open file the tiles of a raster and all of its copies are written to. The file is
+   * split into slots of one tile each, and the store counts how many tiles of the rasters using it
+   * are kept in each slot. A slot used by more than one tile is never written to, and slots that
+   * are no longer used are given to the next tile that needs one. The file is closed and deleted
+   * once no raster uses it anymore.
+   */
+  private static final class TileStore {
+    private final Path path;
+    private final FileChannel channel;
+    private final int tileBytes;
+    // The number of tiles kept in each slot, 0 for a slot that is free
+    private int[] uses = new int[16];
+    private int slotCount = 0;
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private int rasters = 0;
+
+    private TileStore(Path path, FileChannel channel, int tileBytes) {
+      this.path = path;
+      this.channel = channel;
+      this.tileBytes = tileBytes;
+    }
+
+    /**
+     * Creates a new empty file to store tiles in.
+     *
+     * @param directory The directory to create the file in, or null to use the default temporary
+     *                  directory
+     * @param tileBytes The number of bytes a single tile takes
+     * @return the store holding the file
+     * @throws IllegalArgumentException if the file cannot be created
+     */
+    private static TileStore create(File directory, int tileBytes)
+            throws IllegalArgumentException {
+      try {
+        Path path = (directory == null) ? Files.createTempFile("raster", ".tiles")
+                : Files.createTempFile(directory.toPath(), "raster", ".tiles");
+        // Files of rasters that are still in use when the program exits are removed on exit
+        path.toFile().deleteOnExit();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new TileStore(path, channel, tileBytes);
+      } catch (IOException | UnsupportedOperationException | SecurityException e) {
+        throw new IllegalArgumentException("Cannot create the backing file of a tiled raster!");
+      }
+    }
+
+    /**
+     * Records that another raster uses this file, along with every slot its tiles are kept in.
+     *
+     * @param slots The slot of each tile of the raster, -1 for a tile that was never written
+     */
+    private synchronized void retain(int[] slots) {
+      this.rasters++;
+      for (int slot : slots) {
+        if (slot >= 0) {
+          this.uses[slot]++;
+        }
+      }
+    }
+
+    /**
+     * Records that a raster no longer uses this file, freeing every slot only its tiles were kept
+     * in. The file is closed and deleted once the last raster is done with it.
+     *
+     * @param slots The slot of each tile of the raster, -1 for a tile that was never written
+     */
+    private synchronized void release(int[] slots) {
+      for (int slot : slots) {
+        if ((slot >= 0) && (--this.uses[slot] == 0)) {
+          this.free.push(slot);
+        }
+      }
+      this.rasters--;
+      if (this.rasters == 0) {
+        try {
+          this.channel.close();
+          Files.deleteIfExists(this.path);
+        } catch (IOException e) {
+          // The temporary file is left for the system to clean up
+        }
+      }
+    }
+
+    /**
+     * Reads the pixels of a tile kept in the given slot.
+     *
+     * @param slot The slot the tile is kept in
+     * @param data The buffer to read into, as large as a tile
+     * @throws IOException if the file cannot be read
+     */
+    private void read(int slot, ByteBuffer data) throws IOException {
+      long position = (long) slot * this.tileBytes;
+      while (data.hasRemaining()) {
+        if (this.channel.read(data, position + data.position()) < 0) {
+          break;
+        }
+      }
+    }
+
+    /**
+     * Writes the pixels of a tile to its slot, first giving the tile a slot of its own if it has
+     * none or shares its slot with a tile of another raster.
+     *
+     * @param slots The slot of each tile of the raster the tile belongs to
+     * @param tile  The index of the tile
+     * @param data  The pixels of the tile, as large as a tile
+     * @throws IOException if the file cannot be written
+     */
+    private synchronized void write(int[] slots, int tile, ByteBuffer data) throws IOException {
+      int slot = slots[tile];
+      if ((slot < 0) || (this.uses[slot] > 1)) {
+        if (slot >= 0) {
+          this.uses[slot]--;
+        }
+        slot = this.allocate();
+        slots[tile] = slot;
+      }
+      long position = (long) slot * this.tileBytes;
+      while (data.hasRemaining()) {
+        this.channel.write(data, position + data.position());
+      }
+    }
+
+    /**
+     * Finds a slot no tile is kept in, adding one at the end of the file if every slot is used.
+     *
+     * @return the slot, now used by one tile
+     */
+    private int allocate() {
+      int slot;
+      if (!this.free.isEmpty()) {
+        slot = this.free.pop();
+      } else {
+        if (this.slotCount == this.uses.length) {
+          this.uses = Arrays.copyOf(this.uses, this.uses.length * 2);
+        }
+        slot = this.slotCount++;
+      }
+      this.uses[slot] = 1;
+      return slot;
+    }
+  }
+
+  /**
+   * Holds the slot of every tile of a raster. This is kept separate from the raster so its slots
+   * can still be given back to the file after the raster itself is garbage collected.
+   */
+  private static final class Handle implements Runnable {
+    private final TileStore store;
+    // The slot each tile is kept in, -1 for a tile that was never written
+    private final int[] slots;
+
+    private Handle(TileStore store, int[] slots) {
+      this.store = store;
+      this.slots = slots;
+      store.retain(slots);
+    }
+
+    @Override
+    public void run() {
+      this.store.release(this.slots);
+    }
+  }
+
+  /**
+   * Creates a new raster of the given size using 256x256 tiles, up to 256MB of cached tiles and
+   * a backing file in the default temporary directory. Every pixel is fully transparent black.
+   *
+   * @param width  Width of this raster (in pixels)
+   * @param height Height of this raster (in pixels)
+   * @throws IllegalArgumentException if the width or height is negative, or the backing file
+   *                                  cannot be created
+   */
+  public TiledRaster(int width, int height) throws IllegalArgumentException {
+    this(width, height, DEFAULT_TILE_SIZE, DEFAULT_CACHE_BYTES, null);
+  }
+
+  /**
+   * Creates a new raster of the given size stored in tiles of the given size. Every pixel is
+   * fully transparent black.
+   *
+   * @param width      Width of this raster (in pixels)
+   * @param height     Height of this raster (in pixels)
+   * @param tileSize   Width and height of a single tile (in pixels)
+   * @param cacheBytes The number of bytes of tiles to keep in memory, at least a full row of
+   *                   tiles is always kept
+   * @param directory  The directory to create the backing file in, or null to use the default
+   *                   temporary directory
+   * @throws IllegalArgumentException if the width or height is negative, the tile size or cache
+   *                                  size is not positive, there are too many tiles to keep track
+   *                                  of, or the backing file cannot be created
+   */
+  public TiledRaster(int width, int height, int tileSize, long cacheBytes, File directory)
+          throws IllegalArgumentException {
+    this(width, height, tileSize, cacheBytes, directory, null);
+  }
+
+  /**
+   * Creates a copy of a raster that shares its backing file and every tile it has written back.
+   *
+   * @param original The raster to copy, with no changed tiles left in its cache
+   */
+  private TiledRaster(TiledRaster original) {
+    this(original.width, original.height, original.tileSize, original.cacheBytes,
+            original.directory, original.handle);
+  }
+
+  /**
+   * Creates a raster of the given size, either with a new backing file or sharing the file and
+   * tiles of another raster.
+   *
+   * @param width      Width of this raster (in pixels)
+   * @param height     Height of this raster (in pixels)
+   * @param tileSize   Width and height of a single tile (in pixels)
+   * @param cacheBytes The number of bytes of tiles to keep in memory
+   * @param directory  The directory to create the backing file in, or null to use the default
+   *                   temporary directory
+   * @param shared     The tiles of the raster this is a copy of, or null for a new raster
+   * @throws IllegalArgumentException if the width or height is negative, the tile size or cache
+   *                                  size is not positive, there are too many tiles to keep track
+   *                                  of, or the backing file cannot be created
+   */
+  private TiledRaster(int width, int height, int tileSize, long cacheBytes, File directory,
+                      Handle shared) throws IllegalArgumentException {
+    super(width, height);
+    if ((tileSize <= 0) || (tileSize > 4096) || (cacheBytes <= 0)) {
+      throw new IllegalArgumentException("Invalid tile or cache size for a tiled raster!");
+    }
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.tilesDown = (height + tileSize - 1) / tileSize;
+    this.cacheBytes = cacheBytes;
+    this.directory = directory;
+    if (this.tileCount() > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("A tiled raster cannot have that many tiles!");
+    }
+    int tileBytes = tileSize * tileSize * Integer.BYTES;
+    int maxTiles = (int) Math.max(this.tilesAcross + 1L,
+            Math.min(Integer.MAX_VALUE, cacheBytes / tileBytes));
+
+    if (shared == null) {
+      this.store = TileStore.create(directory, tileBytes);
+      int[] slots = new int[(int) this.tileCount()];
+      Arrays.fill(slots, -1);
+      this.handle = new Handle(this.store, slots);
+    } else {
+      this.store = shared.store;
+      this.handle = new Handle(this.store, shared.slots.clone());
+    }
+    this.cleanable = CLEANER.register(this, this.handle);
+    this.transfer = ByteBuffer.allocate(tileBytes).order(ByteOrder.nativeOrder());
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+        if (size() > maxTiles) {
+          writeBack(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the width and height of a single tile of this raster.
+   *
+   * @return the tile size in pixels
+   */
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  /**
+   * Returns the tile holding the given pixel, reading it from the file if it is not cached.
+   *
+   * @param row The row of a pixel in the tile
+   * @param col The column of a pixel in the tile
+   * @return the cached tile
+   * @throws IllegalStateException if this raster has been released or the tile cannot be read
+   */
+  private Tile tileAt(int row, int col) throws IllegalStateException {
+    if (this.released) {
+      throw new IllegalStateException("The raster has already been released!");
+    }
+    long index = (long) (row / this.tileSize) * this.tilesAcross + (col / this.tileSize);
+    Tile tile = this.lastTile;
+    if ((tile != null) && (tile.index == index)) {
+      return tile;
+    }
+    tile = this.cache.get(index);
+    if (tile == null) {
+      tile = new Tile(index, new int[this.tileSize * this.tileSize]);
+      readTile(tile);
+      this.cache.put(index, tile);
+    }
+    this.lastTile = tile;
+    return tile;
+  }
+
+  /**
+   * Reads the pixels of a tile from the backing file. Tiles that were never written read as
+   * zeros, so new tiles start out fully transparent black.
+   *
+   * @param tile The tile to fill
+   * @throws IllegalStateException if the file cannot be read
+   */
+  private void readTile(Tile tile) throws IllegalStateException {
+    this.transfer.clear();
+    int slot = this.handle.slots[(int) tile.index];
+    try {
+      if (slot >= 0) {
+        this.store.read(slot, this.transfer);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read a tile of the raster!");
+    }
+    while (this.transfer.hasRemaining()) {
+      this.transfer.put((byte) 0);
+    }
+    this.transfer.flip();
+    this.transfer.asIntBuffer().get(tile.pixels);
+  }
+
+  /**
+   * Writes the pixels of a tile back to the backing file if they changed since it was read. A
+   * tile that still shares its slot with a copy of this raster is given a new slot first.
+   *
+   * @param tile The tile to write
+   * @throws IllegalStateException if the file cannot be written
+   */
+  private void writeBack(Tile tile) throws IllegalStateException {
+    if (!tile.dirty) {
+      return;
+    }
+    this.transfer.clear();
+    this.transfer.asIntBuffer().put(tile.pixels);
+    try {
+      this.store.write(this.handle.slots, (int) tile.index, this.transfer);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot write a tile of the raster!");
+    }
+    tile.dirty = false;
+  }
+
+  /**
+   * Writes every changed tile in the cache back to the backing file.
+   *
+   * @throws IllegalStateException if this raster has been released or the file cannot be written
+   */
+  public synchronized void flush() throws IllegalStateException {
+    if (this.released) {
+      throw new IllegalStateException("The raster has already been released!");
+    }
+    for (Tile tile : this.cache.values()) {
+      writeBack(tile);
+    }
+  }
+
+  @Override
+  public synchronized int get(int row, int col) {
+    return tileAt(row, col).pixels[(row % this.tileSize) * this.tileSize + (col % this.tileSize)];
+  }
+
+  @Override
+  public synchronized void set(int row, int col, int argb) {
+    Tile tile = tileAt(row, col);
+    tile.pixels[(row % this.tileSize) * this.tileSize + (col % this.tileSize)] = argb;
+    tile.dirty = true;
+  }
+
+  @Override
+  public synchronized void getRow(int row, int[] dst) {
+    int offset = (row % this.tileSize) * this.tileSize;
+    for (int col = 0; col < this.width; col += this.tileSize) {
+      Tile tile = tileAt(row, col);
+      System.arraycopy(tile.pixels, offset, dst, col, Math.min(this.tileSize, this.width - col));
+    }
+  }
+
+  @Override
+  public synchronized void setRow(int row, int[] src) {
+    int offset = (row % this.tileSize) * this.tileSize;
+    for (int col = 0; col < this.width; col += this.tileSize) {
+      Tile tile = tileAt(row, col);
+      System.arraycopy(src, col, tile.pixels, offset, Math.min(this.tileSize, this.width - col));
+      tile.dirty = true;
+    }
+  }
+
+  /**
+   * Creates a copy of this raster that shares its backing file and every tile with it. The
+   * changed tiles of this raster are written back first, and from then on whichever raster writes
+   * a shared tile back first gives it a slot of its own, so no pixels are read or written to make
+   * the copy.
+   *
+   * @return a copy-on-write copy of this raster
+   * @throws IllegalStateException if this raster has been released or the file cannot be written
+   */
+  @Override
+  public synchronized TiledRaster copy() throws IllegalStateException {
+    flush();
+    return new TiledRaster(this);
+  }
+
+  @Override
+  public TiledRaster create(int width, int height) {
+    return new TiledRaster(width, height, this.tileSize, this.cacheBytes, this.directory);
+  }
+
+  /**
+   * Copies every pixel of another raster into a new tiled raster with the default settings.
+   *
+   * @param source The raster to copy
+   * @return a tiled raster holding the same pixels as the source
+   */
+  public static TiledRaster copyOf(PixelRaster source) {
+    TiledRaster copy = new TiledRaster(source.getWidth(), source.getHeight());
+    int[] row = new int[source.getWidth()];
+    for (int i = 0; i < source.getHeight(); i++) {
+      source.getRow(i, row);
+      copy.setRow(i, row);
+    }
+    return copy;
+  }
+
+  /**
+   * Tiles are shared between the rows they hold and the cache of tiles is shared between all
+   * rows, so only one thread can use a tiled raster at a time and bands of rows cannot run in
+   * parallel.
+   *
+   * @return false
+   */
+  @Override
+  public boolean supportsParallelRows() {
+    return false;
+  }
+
+  /**
+   * Drops every cached tile and frees the slots of the backing file only this raster uses. The
+   * file is deleted once no copy of this raster uses it either.
+   */
+  @Override
+  public synchronized void release() {
+    if (this.released) {
+      return;
+    }
+    this.released = true;
+    this.lastTile = null;
+    this.cache.clear();
+    this.cleanable.clean();
+  }
+
+  /**
+   * Returns the number of tiles this raster is split into.
+   *
+   * @return the number of tiles, as a long since it is not limited by the size of an int
+   */
+  public long tileCount() {
+    return (long) this.tilesAcross * this.tilesDown;
+  }
+
+  /**
+   * Checks if this raster has been released and can no longer be used.
+   *
+   * @return true if this raster has given up its tiles
+   */
+  public boolean isReleased() {
+    return this.released;
+  }
+}
@@ -46,6 +46,9 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
   private JButton brightenApplyButton;
   private JSlider brightnessSlider;
 
+  private JButton gaussianApplyButton;
+  private JSlider gaussianSlider;
+
   private JButton greyscaleApplyButton;
   private JComboBox greyScaleBoxOptions;
 
@@ -56,6 +59,8 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
 
   private JButton downScaleButton;
 
+  private JComboBox<String> zoomBoxOptions;
+
   /**
    * Constructs the default GUI view for the Image Processor. Opens with Border layout, with
    * an empty center where the picture is displayed. The left panel has an empty histogram and the
@@ -69,6 +74,7 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     JScrollPane imageScroll;
     JPanel editButtons;
     JPanel brightenSection;
+    JPanel gaussianSection;
     JPanel greyscaleSection;
     JPanel colorTransSection;
     JPanel downScaleSection;
@@ -113,6 +119,12 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     undoButton.setActionCommand("Undo Last");
     optionBoxes.add(undoButton);
 
+    // Zoom box set up, each level halves the size the image is shown at
+    String[] zoomLevels = {"100%", "50%", "25%", "12.5%", "6.25%"};
+    optionBoxes.add(new JLabel("Zoom"));
+    zoomBoxOptions = new JComboBox<>(zoomLevels);
+    optionBoxes.add(zoomBoxOptions);
+
     // Set up JLabel to store current image, add scroll Pane with it
     imageLabel = new JLabel();
     imageLabel.setMinimumSize(new Dimension(500, 500));
@@ -183,6 +195,25 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     c.gridy = 2;
     editButtons.add(brightenSection, c);
 
+    // Adding Gaussian blur with its own panel section, the slider picks the strength of the blur
+    gaussianSection = new JPanel();
+    gaussianSection.setBorder(BorderFactory.createTitledBorder("Blur Strength"));
+    gaussianSlider = new JSlider(JSlider.HORIZONTAL, 1, 25, 1);
+    gaussianSlider.setMajorTickSpacing(4);
+    gaussianSlider.setMinorTickSpacing(1);
+    gaussianSlider.setPaintTicks(true);
+    gaussianSlider.setPaintLabels(true);
+    gaussianSection.add(gaussianSlider);
+    // Add button under slider
+    gaussianApplyButton = new JButton("Apply Blur");
+    gaussianApplyButton.setActionCommand("Apply Gaussian Blur");
+    gaussianSection.add(gaussianApplyButton);
+    c.fill = GridBagConstraints.HORIZONTAL;
+    c.gridwidth = 2;
+    c.gridx = 0;
+    c.gridy = 3;
+    editButtons.add(gaussianSection, c);
+
     // Adding Greyscale section with its own panel to the Right panel
     greyscaleSection = new JPanel();
     greyscaleSection.setBorder(BorderFactory.createTitledBorder("Greyscale"));
@@ -196,7 +227,7 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     c.fill = GridBagConstraints.HORIZONTAL;
     c.gridwidth = 2;
     c.gridx = 0;
-    c.gridy = 3;
+    c.gridy = 4;
     editButtons.add(greyscaleSection, c);
 
     // Adding Color Transformation section
@@ -212,7 +243,7 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     c.fill = GridBagConstraints.HORIZONTAL;
     c.gridwidth = 2;
     c.gridx = 0;
-    c.gridy = 4;
+    c.gridy = 5;
     editButtons.add(colorTransSection, c);
 
     // Adding downscale button to right panel
@@ -226,7 +257,7 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     c.fill = GridBagConstraints.HORIZONTAL;
     c.gridwidth = 2;
     c.gridx = 0;
-    c.gridy = 5;
+    c.gridy = 6;
     editButtons.add(downScaleSection, c);
 
     add(editButtons, BorderLayout.EAST);
@@ -253,10 +284,13 @@ public class GUIView extends JFrame implements ImageProcessorGUIView {
     undoButton.addActionListener(evt -> features.undo());
     blurButton.addActionListener(evt -> features.filter("blur"));
     sharpenButton.addActionListener(evt -> features.filter("sharpen"));
+    gaussianApplyButton.addActionListener(evt ->
+            features.gaussianBlur(gaussianSlider.getValue()));
     greyscaleApplyButton.addActionListener(evt ->
             features.greyscale((String)greyScaleBoxOptions.getSelectedItem()));
     colorApplyButton.addActionListener(evt ->
             features.colorTransform((String)colorTransBoxOptions.getSelectedItem()));
+    zoomBoxOptions.addActionListener(evt -> features.zoom(zoomBoxOptions.getSelectedIndex()));
     downScaleButton.addActionListener(evt ->
             features.downscaleImage(entryBox("Please enter height ratio (as decimal): "),
             entryBox("Please enter width ratio(as decimal): ")));
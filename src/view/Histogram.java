@@ -2,7 +2,8 @@ package view;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.ArrayList;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
 
 import javax.swing.JPanel;
 
@@ -10,19 +11,24 @@ import javax.swing.JPanel;
  * This class draws a Histogram of the current model's data passed to the view by the controller.
  * The graphics draw a histogram that is 255x255 pixels, drawing the frequencies of each
  * pixel color value in the current image.
+ *
+ * <p>The lines are built once whenever new values are set, as one polyline per color. Repainting
+ * (which happens on every resize or scroll) only draws the finished lines and labels, without
+ * going over the values again. The lines are kept as shapes rather than a picture of them so
+ * they stay sharp on scaled displays.</p>
  */
 public class Histogram extends JPanel {
-  private int[] redValues;
-  private int[] greenValues;
-  private int[] blueValues;
+  // Colors of the red, blue, green and intensity lines, in the order they are drawn
+  private static final Color[] LINE_COLORS = {Color.RED, Color.BLUE, Color.GREEN, Color.BLACK};
+
+  private Path2D[] lines;
+  private int max;
 
   /**
    * Creates a new Histogram will all the array data empty to begin.
    */
   public Histogram() {
-    this.redValues = new int[0];
-    this.greenValues = new int[0];
-    this.blueValues = new int[0];
+    this.setValues(new int[0], new int[0], new int[0]);
   }
 
   @Override
@@ -42,14 +48,26 @@ public class Histogram extends JPanel {
     g.drawString("200", 225, 265);
     g.drawString("250", 275, 265);
 
-    // Colors to be drawn
-    Color[] colors = new Color[4];
-    colors[0] = Color.RED;
-    colors[1] = Color.BLUE;
-    colors[2] = Color.GREEN;
-    colors[3] = Color.BLACK;
-    double max = 1;
+    // Drawing histogram y-axis unit labels using max value
+    g.drawString(String.valueOf(this.max), 10, 10);
+    g.drawString(String.valueOf(this.max / 2), 10, 120);
+    g.drawString("0", 20, 255);
 
+    // The lines were built when the values were set
+    Graphics2D g2 = (Graphics2D) g;
+    for (int j = 0; j < this.lines.length; j++) {
+      g2.setColor(LINE_COLORS[j]);
+      g2.draw(this.lines[j]);
+    }
+  }
+
+  /**
+   * Updates the values of this Histogram to those the controller has passed to the view.
+   * @param redValues The red values of the current models pixel data.
+   * @param greenValues The green values of the current models pixel data.
+   * @param blueValues The blue values of the current models pixel data.
+   */
+  public void setValues(int[] redValues, int[] greenValues, int[] blueValues) {
     // Calculate Intensity
     int[] intensityValues = new int[256];
     for (int i = 0; i < redValues.length - 1; i++) {
@@ -57,53 +75,40 @@ public class Histogram extends JPanel {
     }
 
     // Array normalization and setup, get max frequency to normalize all values with
+    double max = 1;
     for (int i = 0; i < redValues.length - 1; i++) {
       int currMax = Math.max(Math.max(redValues[i], greenValues[i]), blueValues[i]);
       if (max < currMax) {
         max = currMax;
       }
     }
+    this.max = (int) max;
 
-    // Drawing histogram y-axis unit labels using max value
-    g.setColor(Color.BLACK);
-    g.drawString(String.valueOf((int) max), 10, 10);
-    g.drawString(String.valueOf((int) max / 2), 10, 120);
-    g.drawString("0", 20, 255);
-
-
-    max = 255 / max; // calculated value to normalize arrays for frequency display
-
-    // Array setup
-    ArrayList<int[]> values = new ArrayList();
-    values.add(redValues);
-    values.add(greenValues);
-    values.add(blueValues);
-    values.add(intensityValues);
-
-    // For each of the four colors, set the line color and draw the line histogram
-    // connecting each point from color value 0 - 255
-    for (int j = 0; j < 4; j++) {
-      g.setColor(colors[j]);
-      int currX = 40;
-      int[] currValues = values.get(j);
-
-      for (int i = 0; i < redValues.length - 1; i++) {
-        g.drawLine(currX, (int) (255 - (currValues[i] * max)),
-                currX + 1, (int) (255 - (currValues[i + 1] * max)));
-        currX++;
-      }
+    double scale = 255 / max; // calculated value to normalize arrays for frequency display
+    int[][] values = {redValues, blueValues, greenValues, intensityValues};
+    this.lines = new Path2D[values.length];
+    for (int j = 0; j < values.length; j++) {
+      this.lines[j] = line(values[j], redValues.length, scale);
     }
   }
 
   /**
-   * Updates the values of this Histogram to those the controller has passed to the view.
-   * @param redValues The red values of the current models pixel data.
-   * @param greenValues The green values of the current models pixel data.
-   * @param blueValues The blue values of the current models pixel data.
+   * Builds the line of one color, connecting each point from color value 0 - 255.
+   * @param values The frequency of each color value
+   * @param count The number of color values to connect
+   * @param scale The number to multiply each frequency by to fit it in the histogram
+   * @return the line connecting every point
    */
-  public void setValues(int[] redValues, int[] greenValues, int[] blueValues) {
-    this.redValues = redValues;
-    this.greenValues = greenValues;
-    this.blueValues = blueValues;
+  private static Path2D line(int[] values, int count, double scale) {
+    Path2D.Float line = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(count, 1));
+    for (int i = 0; i < count; i++) {
+      float y = (int) (255 - (values[i] * scale));
+      if (i == 0) {
+        line.moveTo(40, y);
+      } else {
+        line.lineTo(40 + i, y);
+      }
+    }
+    return line;
   }
 }
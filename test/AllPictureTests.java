@@ -1,5 +1,7 @@
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -7,12 +9,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.imageio.ImageIO;
 
 import controllers.ImageUtil;
 import model.AllPicture;
+import model.Channel;
+import model.ChannelLut;
+import model.ColorHistogram;
 import model.IPicture;
+import model.Mask;
+import model.Parallelism;
+import model.PixelRaster;
+import model.ResampleFilter;
+import model.TiledPicture;
+import model.TiledRaster;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -21,6 +33,9 @@ import static org.junit.Assert.assertFalse;
  * Tests the methods and constructors for the Picture class.
  */
 public class AllPictureTests {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   private AllPicture squareImage;
 
   @Before
@@ -235,4 +250,781 @@ public class AllPictureTests {
     assertEquals(5, blueResults[153]);
     assertEquals(1, blueResults[154]);
   }
+
+  @Test
+  public void testHistogram() {
+    // For results see text above
+    ColorHistogram histogram = squareImage.histogram();
+    assertEquals(true, Arrays.equals(squareImage.colorValues("red"),
+            histogram.get(Channel.RED)));
+    assertEquals(true, Arrays.equals(squareImage.colorValues("green"),
+            histogram.get(Channel.GREEN)));
+    assertEquals(true, Arrays.equals(squareImage.colorValues("blue"),
+            histogram.get(Channel.BLUE)));
+    // Every pixel of a PPM is opaque
+    assertEquals(9, histogram.get(Channel.ALPHA)[255]);
+
+    int[] intensity = histogram.getIntensity();
+    assertEquals(256, intensity.length);
+    assertEquals(1, intensity[102]); // (51 + 102 + 153) / 3
+    assertEquals(1, intensity[195]); // (204 + 230 + 153) / 3, rounded down
+    assertEquals(1, intensity[59]);  // (25 + 127 + 25) / 3
+    assertEquals(0, intensity[0]);
+  }
+
+  @Test
+  public void testHistogramPastIntCounts() {
+    // Each of the 2^32 pixels has the same color, more than an int can count
+    int side = 1 << 16;
+    IPicture huge = new AllPicture(side, side, 255, new SameColorRaster(side, side, 0xFF336699));
+    ColorHistogram histogram = huge.approximateHistogram(1);
+
+    assertEquals(1L << 32, histogram.getCounts(Channel.RED)[0x33]);
+    assertEquals(1L << 32, histogram.getCounts(Channel.GREEN)[0x66]);
+    assertEquals(1L << 32, histogram.getCounts(Channel.BLUE)[0x99]);
+    assertEquals(1L << 32, histogram.getIntensityCounts()[102]);
+    // The int counts stop at the largest int instead of wrapping around
+    assertEquals(Integer.MAX_VALUE, histogram.get(Channel.RED)[0x33]);
+    assertEquals(Integer.MAX_VALUE, histogram.getIntensity()[102]);
+    assertEquals(0, histogram.get(Channel.RED)[0x34]);
+  }
+
+  @Test
+  public void testHistogramCached() {
+    ColorHistogram histogram = squareImage.histogram();
+    // Nothing changed, so the same counts are given back
+    assertEquals(true, histogram == squareImage.histogram());
+    // Flipping moves pixels around but keeps the counts
+    squareImage.horizontalFlip();
+    assertEquals(true, histogram == squareImage.histogram());
+    // A clone holds the same pixels
+    IPicture copy = squareImage.clone();
+    assertEquals(true, histogram == copy.histogram());
+
+    squareImage.brightenImage(1);
+    ColorHistogram brightened = squareImage.histogram();
+    assertEquals(false, histogram == brightened);
+    assertEquals(2, brightened.get(Channel.RED)[205]);
+    assertEquals(0, brightened.get(Channel.RED)[204]);
+    // The clone was not brightened
+    assertEquals(2, copy.histogram().get(Channel.RED)[204]);
+
+    squareImage.setARGB(0, 0, 0xFF000000);
+    assertEquals(1, squareImage.histogram().get(Channel.RED)[0]);
+  }
+
+  @Test
+  public void testHistogramCarriedThroughLut() {
+    squareImage.histogram();
+    // Every value moves by 10 without reaching 255, so the intensities move by 10 as well
+    squareImage.brightenImage(10);
+    AllPicture fresh = ImageUtil.readPPM("res/square.ppm");
+    fresh.brightenImage(10);
+    assertHistogramsEqual(fresh.histogram(), squareImage.histogram());
+
+    // Some values reach 255, so the intensities have to be counted again
+    squareImage.brightenImage(40);
+    fresh.brightenImage(40);
+    for (Channel channel : Channel.values()) {
+      assertEquals(true, Arrays.equals(fresh.colorValues(channel),
+              squareImage.colorValues(channel)));
+    }
+    assertHistogramsEqual(fresh.histogram(), squareImage.histogram());
+
+    // Any table works for the colors, even one that reverses them
+    int[] invert = new int[256];
+    for (int i = 0; i < invert.length; i++) {
+      invert[i] = 255 - i;
+    }
+    squareImage.applyLut(ChannelLut.of(invert));
+    fresh.applyLut(ChannelLut.of(invert));
+    assertHistogramsEqual(fresh.histogram(), squareImage.histogram());
+  }
+
+  @Test
+  public void testChainedLutsMatchOneAtATime() {
+    // Brightening past the max and then darkening clamps in between, which the combined table
+    // has to keep
+    ChannelLut up = ChannelLut.brighten(100, 255);
+    ChannelLut down = ChannelLut.brighten(-150, 255);
+    ChannelLut combined = up.then(down);
+    for (Channel channel : new Channel[] {Channel.RED, Channel.GREEN, Channel.BLUE}) {
+      for (int value = 0; value <= 255; value++) {
+        int expected = Math.max(0, Math.min(255, value + 100) - 150);
+        assertEquals(expected, down.get(channel, up.get(channel, value)));
+        assertEquals(expected, combined.get(channel, value));
+      }
+    }
+    assertEquals(false, combined.equals(ChannelLut.brighten(-50, 255)));
+
+    IPicture queued = ImageUtil.readAll("res/dog_half.jpg");
+    IPicture forced = queued.clone();
+    int[] invert = new int[256];
+    for (int i = 0; i < invert.length; i++) {
+      invert[i] = 255 - i;
+    }
+    queued.brightenImage(100);
+    queued.brightenImage(-150);
+    queued.applyLut(ChannelLut.of(invert));
+    queued.brightenImage(30);
+    // Reading a pixel applies everything queued so far
+    forced.brightenImage(100);
+    forced.getARGB(0, 0);
+    forced.brightenImage(-150);
+    forced.getARGB(0, 0);
+    forced.applyLut(ChannelLut.of(invert));
+    forced.getARGB(0, 0);
+    forced.brightenImage(30);
+    assertPixels(pixelsOf(forced), queued);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutTooShort() {
+    ChannelLut.of(new int[255]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutTooLong() {
+    ChannelLut.of(new int[256], new int[256], new int[257]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutNull() {
+    ChannelLut.of(new int[256], null, new int[256]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutValueTooLarge() {
+    int[] table = new int[256];
+    table[17] = 256;
+    ChannelLut.of(table);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutValueNegative() {
+    int[] table = new int[256];
+    table[255] = -1;
+    ChannelLut.of(new int[256], table, new int[256]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyNullLut() {
+    squareImage.applyLut(null);
+  }
+
+  @Test
+  public void testApproximateHistogram() {
+    // An image with no more pixels than samples is counted exactly
+    ColorHistogram exact = squareImage.approximateHistogram(9);
+    assertEquals(true, exact.isExact());
+    assertEquals(0, exact.getErrorBound(), 0);
+    assertHistogramsEqual(squareImage.histogram(), exact);
+
+    AllPicture sampledImage = ImageUtil.readPPM("res/square.ppm");
+    ColorHistogram estimate = sampledImage.approximateHistogram(4);
+    assertEquals(false, estimate.isExact());
+    assertEquals(0.49, estimate.getErrorBound(), 1e-9);
+    // Every sample counts for its whole cell, so there are still 9 pixels in total
+    assertEquals(9, Arrays.stream(estimate.get(Channel.RED)).sum());
+    assertEquals(9, Arrays.stream(estimate.getIntensity()).sum());
+    assertEquals(9, estimate.get(Channel.ALPHA)[255]);
+
+    // Once the exact histogram is known it is given right away
+    ColorHistogram counted = sampledImage.histogram();
+    assertEquals(true, counted == sampledImage.approximateHistogram(4));
+  }
+
+  @Test
+  public void testApproximateHistogramWithinBound() throws IOException {
+    BufferedImage dog = ImageIO.read(new File("res/dog_half.jpg"));
+    IPicture picture = ImageUtil.readAll("res/dog_half.jpg");
+    int samples = ColorHistogram.samplesFor(0.01);
+    assertEquals(9604, samples);
+    ColorHistogram estimate = picture.approximateHistogram(samples);
+    assertEquals(false, estimate.isExact());
+    assertEquals(true, estimate.getErrorBound() <= 0.0101);
+
+    double pixels = dog.getWidth() * dog.getHeight();
+    ColorHistogram exact = picture.histogram();
+    for (Channel channel : Channel.values()) {
+      int[] expected = exact.get(channel);
+      int[] actual = estimate.get(channel);
+      for (int i = 0; i < 256; i++) {
+        assertEquals(expected[i] / pixels, actual[i] / pixels, estimate.getErrorBound());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApproximateHistogramNoSamples() {
+    squareImage.approximateHistogram(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSamplesForNoError() {
+    ColorHistogram.samplesFor(0);
+  }
+
+  @Test
+  public void testMask() {
+    Mask mask = Mask.of(new boolean[][] {
+        {false, true, true, false, true},
+        {false, false, false, false, false},
+        {true, true, false, false, false}});
+    assertEquals(2, mask.spanCount(0));
+    assertEquals(1, mask.spanStart(0, 0));
+    assertEquals(3, mask.spanEnd(0, 0));
+    assertEquals(4, mask.spanStart(0, 1));
+    assertEquals(5, mask.spanEnd(0, 1));
+    assertEquals(0, mask.spanCount(1));
+    assertEquals(5, mask.getArea());
+    // The bounding box holds every selected pixel
+    assertEquals(0, mask.getTop());
+    assertEquals(3, mask.getBottom());
+    assertEquals(0, mask.getLeft());
+    assertEquals(5, mask.getRight());
+    assertEquals(true, mask.contains(0, 4));
+    assertEquals(false, mask.contains(0, 3));
+    assertEquals(false, mask.contains(1, 1));
+    assertEquals(true, Mask.of(new boolean[2][2]).isEmpty());
+  }
+
+  @Test
+  public void testMaskOfWhitePixels() {
+    // Only the pixel with 255 in every color is white
+    squareImage.setARGB(1, 1, 0xFFFFFFFF);
+    squareImage.setARGB(2, 0, 0xFFFFFFFE);
+    Mask mask = squareImage.mask();
+    assertEquals(1, mask.getArea());
+    assertEquals(true, mask.contains(1, 1));
+    boolean[][] valid = squareImage.validPixels();
+    assertEquals(true, valid[1][1]);
+    assertEquals(false, valid[2][0]);
+  }
+
+  @Test
+  public void testApplyMasked() {
+    Mask mask = Mask.of(new boolean[][] {
+        {true, false, false},
+        {false, false, true},
+        {false, true, true}});
+    IPicture masked = squareImage.clone();
+    masked.applyMasked(mask, 0, region -> {
+      // The four selected pixels are packed into rows as wide as the bounding box
+      assertEquals(3, region.getWidth());
+      assertEquals(2, region.getHeight());
+      region.greyScale("red");
+      return region;
+    });
+    IPicture whole = squareImage.clone();
+    whole.greyScale("red");
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        IPicture expected = mask.contains(i, j) ? whole : squareImage;
+        assertEquals(expected.getARGB(i, j), masked.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyMaskedSmallMask() {
+    squareImage.applyMasked(Mask.of(new boolean[2][3]), 0, region -> region);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyMaskedChangesSize() {
+    Mask mask = Mask.of(new boolean[][] {{true, true, true}, {true, true, true}, {true, true,
+        true}});
+    squareImage.applyMasked(mask, 1, region -> region.downSize(0.5, 0.5));
+  }
+
+  @Test
+  public void testResizeSameSize() {
+    IPicture same = squareImage.resize(3, 3, ResampleFilter.LANCZOS);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(squareImage.getARGB(i, j), same.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testResizeBoxAverages() {
+    IPicture average = squareImage.resize(1, 1, ResampleFilter.BOX);
+    int[] sums = new int[3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        int argb = squareImage.getARGB(i, j);
+        sums[0] += (argb >> 16) & 0xFF;
+        sums[1] += (argb >> 8) & 0xFF;
+        sums[2] += argb & 0xFF;
+      }
+    }
+    int argb = average.getARGB(0, 0);
+    assertEquals(Math.round(sums[0] / 9.0), (argb >> 16) & 0xFF);
+    assertEquals(Math.round(sums[1] / 9.0), (argb >> 8) & 0xFF);
+    assertEquals(Math.round(sums[2] / 9.0), argb & 0xFF);
+    assertEquals(255, argb >>> 24);
+  }
+
+  @Test
+  public void testResizeBoxUpscaleRepeats() {
+    IPicture larger = squareImage.resize(6, 9, ResampleFilter.BOX);
+    assertEquals(6, larger.getWidth());
+    assertEquals(9, larger.getHeight());
+    for (int i = 0; i < 9; i++) {
+      for (int j = 0; j < 6; j++) {
+        assertEquals(squareImage.getARGB(i / 3, j / 2), larger.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testResizeKeepsSolidColor() {
+    IPicture solid = squareImage.resize(1, 1, ResampleFilter.BILINEAR);
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      IPicture larger = solid.resize(7, 5, filter);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 7; j++) {
+          assertEquals(solid.getARGB(0, 0), larger.getARGB(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResizeFlipped() {
+    IPicture flipped = squareImage.clone();
+    flipped.horizontalFlip();
+    IPicture resized = flipped.resize(2, 2, ResampleFilter.LANCZOS);
+    IPicture expected = squareImage.resize(2, 2, ResampleFilter.LANCZOS);
+    expected.horizontalFlip();
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 2; j++) {
+        assertEquals(expected.getARGB(i, j), resized.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeNullFilter() {
+    squareImage.resize(2, 2, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeEmpty() {
+    squareImage.resize(0, 2, ResampleFilter.BOX);
+  }
+
+  @Test
+  public void testPyramidLevels() {
+    assertEquals(2, squareImage.pyramidLevels());
+    // Both sides are even, so the first level is found from 2x2 blocks
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg").resize(320, 212, ResampleFilter.BOX);
+    IPicture half = dog.pyramidLevel(1);
+    assertEquals(dog.getWidth() / 2, half.getWidth());
+    assertEquals(dog.getHeight() / 2, half.getHeight());
+    for (int shift = 0; shift < 24; shift += 8) {
+      int sum = 0;
+      for (int i = 2; i < 4; i++) {
+        for (int j = 4; j < 6; j++) {
+          sum += (dog.getARGB(i, j) >> shift) & 0xFF;
+        }
+      }
+      assertEquals((sum + 2) / 4, (half.getARGB(1, 2) >> shift) & 0xFF);
+    }
+    IPicture last = dog.pyramidLevel(dog.pyramidLevels() - 1);
+    assertEquals(1, last.getWidth());
+    assertEquals(1, last.getHeight());
+  }
+
+  @Test
+  public void testResizeStartsFromPyramid() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    int width = dog.getWidth() / 5;
+    int height = dog.getHeight() / 5;
+    IPicture resized = dog.resize(width, height, ResampleFilter.LANCZOS);
+    // A fifth of the size is at least as large as the quarter sized level
+    IPicture expected = dog.pyramidLevel(2).resize(width, height, ResampleFilter.LANCZOS);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(expected.getARGB(i, j), resized.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testPyramidFollowsEdits() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    IPicture level = dog.pyramidLevel(1);
+    dog.horizontalFlip();
+    IPicture flipped = dog.pyramidLevel(1);
+    int width = flipped.getWidth();
+    for (int j = 0; j < width; j++) {
+      assertEquals(level.getARGB(5, width - 1 - j), flipped.getARGB(5, j));
+    }
+    dog.brightenImage(-255);
+    assertEquals(0xFF000000, dog.pyramidLevel(1).getARGB(5, 5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPyramidPastLastLevel() {
+    squareImage.pyramidLevel(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownResampleFilter() {
+    ResampleFilter.fromName("cubic");
+  }
+
+  @Test
+  public void testEditedCloneLeavesOriginal() {
+    int[][] before = pixelsOf(squareImage);
+    IPicture copy = squareImage.clone();
+    // Only the middle row of the clone is written, so the other two rows are still shared
+    copy.setARGB(1, 1, 0xFF010203);
+    int[][] edited = pixelsOf(squareImage);
+    edited[1][1] = 0xFF010203;
+    assertPixels(before, squareImage);
+    assertPixels(edited, copy);
+
+    // Writing a row the clone still shares must not reach the clone
+    squareImage.setARGB(0, 2, 0xFF040506);
+    before[0][2] = 0xFF040506;
+    assertPixels(before, squareImage);
+    assertPixels(edited, copy);
+  }
+
+  @Test
+  public void testEditedOriginalLeavesClone() {
+    int[][] before = pixelsOf(squareImage);
+    IPicture copy = squareImage.clone();
+    IPicture copyOfCopy = copy.clone();
+    squareImage.brightenImage(50);
+    int[][] brightened = new int[3][3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        int argb = before[i][j];
+        brightened[i][j] = 0xFF000000 | (Math.min(255, ((argb >> 16) & 0xFF) + 50) << 16)
+                | (Math.min(255, ((argb >> 8) & 0xFF) + 50) << 8)
+                | Math.min(255, (argb & 0xFF) + 50);
+      }
+    }
+    assertPixels(brightened, squareImage);
+    assertPixels(before, copy);
+    assertPixels(before, copyOfCopy);
+
+    // A clone made while the brightening is still queued applies it to its own rows only once
+    IPicture queued = copy.clone();
+    copy.brightenImage(50);
+    IPicture queuedClone = copy.clone();
+    queuedClone.setARGB(2, 2, 0xFF000000);
+    assertPixels(brightened, copy);
+    brightened[2][2] = 0xFF000000;
+    assertPixels(brightened, queuedClone);
+    assertPixels(before, queued);
+    assertPixels(before, copyOfCopy);
+  }
+
+  @Test
+  public void testTiledCloneSharesTiles() {
+    // Tiles of 2x2 pixels and a cache of four tiles, so tiles are written back all the time
+    TiledRaster raster = new TiledRaster(5, 4, 2, 64, folder.getRoot());
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 5; j++) {
+        raster.set(i, j, 0xFF000000 | (i << 16) | (j << 8) | 200);
+      }
+    }
+    IPicture picture = new TiledPicture(5, 4, 255, raster);
+    int[][] before = pixelsOf(picture);
+    IPicture copy = picture.clone();
+    // The clone shares the backing file instead of copying it
+    assertEquals(1, folder.getRoot().list().length);
+
+    copy.setARGB(3, 4, 0xFF010203);
+    int[][] edited = pixelsOf(picture);
+    edited[3][4] = 0xFF010203;
+    assertPixels(before, picture);
+    assertPixels(edited, copy);
+
+    picture.brightenImage(-255);
+    for (int[] row : before) {
+      Arrays.fill(row, 0xFF000000);
+    }
+    assertPixels(before, picture);
+    assertPixels(edited, copy);
+
+    // The file is only deleted once neither picture uses it
+    picture.release();
+    assertPixels(edited, copy);
+    assertEquals(1, folder.getRoot().list().length);
+    copy.release();
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testDoubleFlipGivesBackOriginal() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    int[][] before = pixelsOf(dog);
+    dog.verticalFlip();
+    dog.verticalFlip();
+    assertPixels(before, dog);
+    dog.horizontalFlip();
+    dog.horizontalFlip();
+    assertPixels(before, dog);
+    dog.horizontalFlip();
+    dog.verticalFlip();
+    dog.horizontalFlip();
+    dog.verticalFlip();
+    assertPixels(before, dog);
+  }
+
+  @Test
+  public void testReadThroughFlippedView() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    int[][] before = pixelsOf(dog);
+    boolean[][] directions = {{true, false}, {false, true}, {true, true}};
+    for (boolean[] direction : directions) {
+      IPicture flipped = dog.clone();
+      if (direction[0]) {
+        flipped.verticalFlip();
+      }
+      if (direction[1]) {
+        flipped.horizontalFlip();
+      }
+      int[][] expected = flipped(before, direction[0], direction[1]);
+      // Single pixels, whole rows and pixel views all read through the flip
+      assertPixels(expected, flipped);
+      BufferedImage image = flipped.getBufferedImage();
+      for (int i = 0; i < expected.length; i++) {
+        for (int j = 0; j < expected[i].length; j++) {
+          assertEquals(expected[i][j], image.getRGB(j, i));
+        }
+      }
+      int row = expected.length - 2;
+      assertEquals((expected[row][3] >> 8) & 0xFF, flipped.getChannel(row, 3, Channel.GREEN));
+      assertEquals((expected[row][3] >> 16) & 0xFF,
+              (int) flipped.getPixel(row, 3).getValue("red"));
+    }
+  }
+
+  @Test
+  public void testFlipsThenBrightenThenSave() throws IOException {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    int[][] expected = flipped(pixelsOf(dog), true, true);
+    for (int[] row : expected) {
+      for (int j = 0; j < row.length; j++) {
+        int argb = row[j];
+        row[j] = 0xFF000000 | (Math.min(255, ((argb >> 16) & 0xFF) + 50) << 16)
+                | (Math.min(255, ((argb >> 8) & 0xFF) + 50) << 8)
+                | Math.min(255, (argb & 0xFF) + 50);
+      }
+    }
+    dog.horizontalFlip();
+    dog.verticalFlip();
+    dog.brightenImage(50);
+    String file = folder.newFile("flipped.ppm").getPath();
+    dog.save(file);
+    assertPixels(expected, ImageUtil.readPPM(file));
+    assertPixels(expected, dog);
+  }
+
+  @Test
+  public void testQueuedEditsMatchEditsOneAtATime() {
+    List<Double> sepia = Arrays.asList(0.3930, .3490, .2720, .7690, .6860, .5340, .1890, .1680,
+            .131);
+    IPicture queued = ImageUtil.readAll("res/dog_half.jpg");
+    IPicture forced = queued.clone();
+    queued.brightenImage(30);
+    queued.greyScale("luma");
+    queued.colorTransform(sepia);
+    // Reading a pixel applies everything queued so far
+    forced.brightenImage(30);
+    forced.getARGB(0, 0);
+    forced.greyScale("luma");
+    forced.getARGB(0, 0);
+    forced.colorTransform(sepia);
+    // Luma and sepia run one after another while queued, truncating in between
+    assertPixels(pixelsOf(forced), queued);
+
+    // A longer chain with clamping in between gives exactly the same pixels too
+    queued = ImageUtil.readAll("res/dog_half.jpg");
+    forced = queued.clone();
+    queued.brightenImage(-40);
+    queued.greyScale("value");
+    queued.brightenImage(70);
+    queued.colorTransform(sepia);
+    queued.greyScale("intensity");
+    forced.brightenImage(-40);
+    forced.getARGB(0, 0);
+    forced.greyScale("value");
+    forced.getARGB(0, 0);
+    forced.brightenImage(70);
+    forced.getARGB(0, 0);
+    forced.colorTransform(sepia);
+    forced.getARGB(0, 0);
+    forced.greyScale("intensity");
+    assertPixels(pixelsOf(forced), queued);
+  }
+
+  @Test
+  public void testFilterOnAnyNumberOfThreads() {
+    Consumer<IPicture> filters = dog -> {
+      dog.filter(Arrays.asList(.0625, .125, .0625, .125, .25, .125, .0625, .125, .0625), 1);
+      dog.filter(Arrays.asList(
+              -.125, -.125, -.125, -.125, -.125,
+              -.125, .25, .25, .25, -.125,
+              -.125, .25, 1.0, .25, -.125,
+              -.125, .25, .25, .25, -.125,
+              -.125, -.125, -.125, -.125, -.125), 2);
+    };
+    assertPixels(pixelsOf(dogOnThreads(1, filters)), dogOnThreads(4, filters));
+  }
+
+  @Test
+  public void testColorTransformOnAnyNumberOfThreads() {
+    Consumer<IPicture> transforms = dog -> {
+      dog.colorTransform(Arrays.asList(0.3930, .3490, .2720, .7690, .6860, .5340, .1890, .1680,
+              .131));
+      dog.greyScale("intensity");
+    };
+    assertPixels(pixelsOf(dogOnThreads(1, transforms)), dogOnThreads(4, transforms));
+  }
+
+  @Test
+  public void testHistogramOnAnyNumberOfThreads() {
+    ColorHistogram[] histograms = new ColorHistogram[2];
+    dogOnThreads(1, dog -> histograms[0] = dog.histogram());
+    dogOnThreads(4, dog -> histograms[1] = dog.histogram());
+    assertHistogramsEqual(histograms[0], histograms[1]);
+  }
+
+  /**
+   * Checks that two histograms hold the same counts of every kind.
+   *
+   * @param expected The histogram counted from the pixels
+   * @param actual   The histogram to check
+   */
+  private void assertHistogramsEqual(ColorHistogram expected, ColorHistogram actual) {
+    for (Channel channel : Channel.values()) {
+      assertEquals(true, Arrays.equals(expected.get(channel), actual.get(channel)));
+    }
+    assertEquals(true, Arrays.equals(expected.getIntensity(), actual.getIntensity()));
+  }
+
+  /**
+   * Reads the packed value of every pixel of a picture.
+   *
+   * @param picture The picture to read
+   * @return the packed values, row by row
+   */
+  private static int[][] pixelsOf(IPicture picture) {
+    int[][] pixels = new int[picture.getHeight()][picture.getWidth()];
+    for (int i = 0; i < pixels.length; i++) {
+      for (int j = 0; j < pixels[i].length; j++) {
+        pixels[i][j] = picture.getARGB(i, j);
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Checks that a picture holds exactly the given pixels.
+   *
+   * @param expected The packed values every pixel should have, row by row
+   * @param actual   The picture to check
+   */
+  private static void assertPixels(int[][] expected, IPicture actual) {
+    assertEquals(expected.length, actual.getHeight());
+    assertEquals(expected[0].length, actual.getWidth());
+    for (int i = 0; i < expected.length; i++) {
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals("pixel " + i + ", " + j, expected[i][j], actual.getARGB(i, j));
+      }
+    }
+  }
+
+  /**
+   * Flips the packed values of a picture by moving every pixel, the way flips were done before
+   * they became views.
+   *
+   * @param pixels     The packed values, row by row
+   * @param vertical   true to reverse the order of the rows
+   * @param horizontal true to reverse the order of the columns
+   * @return a new array holding the flipped values
+   */
+  private static int[][] flipped(int[][] pixels, boolean vertical, boolean horizontal) {
+    int height = pixels.length;
+    int width = pixels[0].length;
+    int[][] result = new int[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        result[i][j] = pixels[vertical ? height - 1 - i : i][horizontal ? width - 1 - j : j];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Loads the dog image and edits it with the given number of threads, applying any queued edit
+   * before going back to a single thread.
+   *
+   * @param threads The number of threads to edit with
+   * @param edit    The edit to apply
+   * @return the edited image
+   */
+  private static IPicture dogOnThreads(int threads, Consumer<IPicture> edit) {
+    Parallelism.setLevel(threads);
+    try {
+      IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+      edit.accept(dog);
+      dog.getARGB(0, 0);
+      return dog;
+    } finally {
+      Parallelism.setLevel(1);
+    }
+  }
+
+  /**
+   * Represents a raster where every pixel has the same color, which takes no memory no matter
+   * how large it is.
+   */
+  private static final class SameColorRaster extends PixelRaster {
+    private final int argb;
+
+    private SameColorRaster(int width, int height, int argb) {
+      super(width, height);
+      this.argb = argb;
+    }
+
+    @Override
+    public int get(int row, int col) {
+      return this.argb;
+    }
+
+    @Override
+    public void set(int row, int col, int argb) {
+      throw new UnsupportedOperationException("This raster cannot be changed!");
+    }
+
+    @Override
+    public void getRow(int row, int[] dst) {
+      Arrays.fill(dst, 0, this.width, this.argb);
+    }
+
+    @Override
+    public void setRow(int row, int[] src) {
+      throw new UnsupportedOperationException("This raster cannot be changed!");
+    }
+
+    @Override
+    public PixelRaster copy() {
+      return this;
+    }
+
+    @Override
+    public PixelRaster create(int width, int height) {
+      throw new UnsupportedOperationException("This raster cannot be changed!");
+    }
+  }
 }
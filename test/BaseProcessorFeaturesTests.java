@@ -39,6 +39,7 @@ public class BaseProcessorFeaturesTests {
    */
   private class MockGUIView implements ImageProcessorGUIView {
     StringBuilder log;
+    BufferedImage lastImage;
 
     MockGUIView(StringBuilder log) {
       this.log = log;
@@ -51,6 +52,7 @@ public class BaseProcessorFeaturesTests {
 
     @Override
     public void setImage(BufferedImage image) {
+      lastImage = image;
       log.append("Received a new buffered image and updated view\n");
     }
 
@@ -133,6 +135,21 @@ public class BaseProcessorFeaturesTests {
             + "Received new histogram data and updated view\n", viewLog.toString());
   }
 
+  @Test
+  public void testGaussianBlur() {
+    // Check the controller calls the correct load method, and calls the correct view methods
+    assertEquals("Add features called\n", viewLog.toString());
+    baseFeatures.loadPicture("res/square.ppm");
+    baseFeatures.gaussianBlur(3);
+    // Checks the view received a new image simulating updating the view (blur)
+    // Check the view was told to update the histogram
+    assertEquals("Add features called\n"
+            + "Received a new buffered image and updated view\n"
+            + "Received new histogram data and updated view\n"
+            + "Received a new buffered image and updated view\n"
+            + "Received new histogram data and updated view\n", viewLog.toString());
+  }
+
   @Test
   public void testGreyscale() {
     assertEquals("Add features called\n", viewLog.toString());
@@ -277,4 +294,57 @@ public class BaseProcessorFeaturesTests {
             + "Received new histogram data and updated view\n", viewLog.toString());
   }
 
+  @Test
+  public void testLargeImageHistogramRefined() throws InterruptedException {
+    // With a single sample every image larger than 64 pixels is estimated first
+    StringBuilder log = new StringBuilder();
+    Features sampled = new BaseProcessorFeatures(new PictureStorageModel(),
+            new MockGUIView(log), 1);
+    sampled.loadPicture("res/dog_half.jpg");
+    String estimated = "Received a new buffered image and updated view\n"
+            + "Received new histogram data and updated view\n";
+    // The exact histogram is drawn once it has been counted in the background
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!log.toString().equals(estimated + "Received new histogram data and updated view\n")
+            && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(10);
+    }
+    assertEquals(estimated + "Received new histogram data and updated view\n", log.toString());
+  }
+
+  @Test
+  public void testZoom() {
+    StringBuilder log = new StringBuilder();
+    MockGUIView view = new MockGUIView(log);
+    Features zoomed = new BaseProcessorFeatures(new PictureStorageModel(), view);
+    // The level is kept until an image is loaded
+    zoomed.zoom(2);
+    assertEquals("", log.toString());
+    zoomed.loadPicture("res/dog_half.jpg");
+    assertEquals(80, view.lastImage.getWidth());
+    assertEquals(53, view.lastImage.getHeight());
+
+    zoomed.zoom(0);
+    assertEquals(320, view.lastImage.getWidth());
+    // Zooming past the smallest level shows a single pixel
+    zoomed.zoom(20);
+    assertEquals(1, view.lastImage.getWidth());
+    zoomed.flipPicture("vertical");
+    assertEquals(1, view.lastImage.getHeight());
+    assertEquals("Received a new buffered image and updated view\n"
+            + "Received new histogram data and updated view\n"
+            + "Received a new buffered image and updated view\n"
+            + "Received a new buffered image and updated view\n"
+            + "Received a new buffered image and updated view\n", log.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeZoom() {
+    baseFeatures.zoom(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoHistogramSamples() {
+    new BaseProcessorFeatures(new PictureStorageModel(), new MockGUIView(viewLog), 0);
+  }
 }
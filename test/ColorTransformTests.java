@@ -1,11 +1,16 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import commands.ColorTransform;
 import commands.Command;
 import controllers.ImageUtil;
 import model.IPicture;
 import model.AllPicture;
+import model.ColorMatrix;
+import model.FixedPoint;
 import model.ImageProcessorModel;
 import model.PictureStorageModel;
 
@@ -15,6 +20,9 @@ import static org.junit.Assert.assertEquals;
  * This class is responsible for testing the color transform commands.
  */
 public class ColorTransformTests {
+  private static final List<Double> SEPIA = Arrays.asList(0.393, 0.349, 0.272, 0.769, 0.686,
+          0.534, 0.189, 0.168, 0.131);
+
   private IPicture squareImage;
   private Command colorTransform;
   private ImageProcessorModel model;
@@ -74,6 +82,23 @@ public class ColorTransformTests {
     assertEquals(true, sepiaSquare.equals(correctImage));
   }
 
+  @Test
+  public void testExecuteSepiaFixedPoint() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    model.addPicture(dog, "dog");
+    colorTransform = new ColorTransform(model, dog, "sepia", "dog-sepia");
+    colorTransform.execute();
+    FixedPoint.setEnabled(true);
+    try {
+      colorTransform = new ColorTransform(model, dog, "sepia", "dog-sepia-fixed");
+      colorTransform.execute();
+      // Fixed point can only be off by one from the doubles
+      assertWithinOne(model.getPicture("dog-sepia"), model.getPicture("dog-sepia-fixed"));
+    } finally {
+      FixedPoint.setEnabled(false);
+    }
+  }
+
   @Test
   public void testOutputMessage() {
     colorTransform = new ColorTransform(model, squareImage, "sepia", "square2");
@@ -85,4 +110,109 @@ public class ColorTransformTests {
     output = colorTransform.outputMessage();
     assertEquals("Applied color transform other and saved as square3\n", output);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testLumaSepiaNotComposed() {
+    ColorMatrix luma = ColorMatrix.fromTransform(Arrays.asList(0.2126, 0.2126, 0.2126, 0.7152,
+            0.7152, 0.7152, 0.0722, 0.0722, 0.0722));
+    ColorMatrix sepia = ColorMatrix.fromTransform(SEPIA);
+    assertEquals(false, luma.composesWith(sepia));
+    ColorMatrix combined = luma.then(sepia);
+    // Blue, green and red from the lowest byte up, whose sepia weights add up to 0.937, 1.203
+    // and 1.351, rounded up
+    int[] bounds = {1, 2, 2};
+    int differences = 0;
+    for (int red = 0; red <= 255; red += 3) {
+      for (int green = 0; green <= 255; green += 3) {
+        for (int blue = 0; blue <= 255; blue += 3) {
+          int argb = 0xFF000000 | (red << 16) | (green << 8) | blue;
+          int oneAtATime = sepia.apply(luma.apply(argb, 255), 255);
+          int atOnce = combined.apply(argb, 255);
+          for (int k = 0; k < 3; k++) {
+            int difference = ((atOnce >> (8 * k)) & 0xFF) - ((oneAtATime >> (8 * k)) & 0xFF);
+            assertEquals(true, (difference >= 0) && (difference <= bounds[k]));
+            differences += (difference != 0) ? 1 : 0;
+          }
+        }
+      }
+    }
+    // Rounding once is not the same as rounding after each matrix, which is why they are kept
+    // apart
+    assertEquals(true, differences > 0);
+
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    IPicture queued = dog.clone();
+    queued.greyScale("luma");
+    queued.colorTransform(SEPIA);
+    dog.greyScale("luma");
+    dog.getARGB(0, 0);
+    dog.colorTransform(SEPIA);
+    assertEquals(true, dog.equals(queued));
+  }
+
+  @Test
+  public void testBrightenThenMatrixNotComposed() {
+    ColorMatrix sepia = ColorMatrix.fromTransform(SEPIA);
+    // A brightening clamps, so it is never combined with the matrix after it
+    assertEquals(false, ColorMatrix.offset(50).composesWith(sepia));
+    assertEquals(false, ColorMatrix.offset(-50).composesWith(sepia));
+
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    IPicture queued = dog.clone();
+    queued.brightenImage(50);
+    queued.colorTransform(SEPIA);
+    queued.brightenImage(-70);
+    queued.greyScale("luma");
+    dog.brightenImage(50);
+    dog.getARGB(0, 0);
+    dog.colorTransform(SEPIA);
+    dog.getARGB(0, 0);
+    dog.brightenImage(-70);
+    dog.getARGB(0, 0);
+    dog.greyScale("luma");
+    assertEquals(true, dog.equals(queued));
+  }
+
+  @Test
+  public void testSameDirectionOffsetsCompose() {
+    int[][] chains = {{30, 40}, {200, 100}, {-30, -80}, {0, -5}, {0, 0}};
+    for (int[] chain : chains) {
+      ColorMatrix first = ColorMatrix.offset(chain[0]);
+      ColorMatrix second = ColorMatrix.offset(chain[1]);
+      assertEquals(true, first.composesWith(second));
+      ColorMatrix combined = first.then(second);
+      for (int value = 0; value <= 255; value++) {
+        int argb = 0xFF000000 | (value << 16) | ((255 - value) << 8) | (value / 2);
+        assertEquals(second.apply(first.apply(argb, 255), 255), combined.apply(argb, 255));
+      }
+    }
+    // Opposite directions are not combined, since clamping in between changes the result
+    ColorMatrix up = ColorMatrix.offset(30);
+    ColorMatrix down = ColorMatrix.offset(-40);
+    assertEquals(false, up.composesWith(down));
+    assertEquals(false, up.then(down).apply(0xFFFAFAFA, 255)
+            == down.apply(up.apply(0xFFFAFAFA, 255), 255));
+  }
+
+  /**
+   * Checks that every color of two pictures of the same size is at most one apart, and that the
+   * alpha values are the same.
+   *
+   * @param expected The picture computed with doubles
+   * @param actual   The picture computed with fixed point math
+   */
+  private static void assertWithinOne(IPicture expected, IPicture actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        int expectedArgb = expected.getARGB(i, j);
+        int actualArgb = actual.getARGB(i, j);
+        assertEquals(expectedArgb >>> 24, actualArgb >>> 24);
+        for (int shift = 0; shift <= 16; shift += 8) {
+          assertEquals((expectedArgb >> shift) & 0xFF, (actualArgb >> shift) & 0xFF, 1);
+        }
+      }
+    }
+  }
+}
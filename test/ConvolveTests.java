@@ -0,0 +1,216 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import commands.Command;
+import commands.ConvolveImage;
+import controllers.ImageUtil;
+import model.Convolution;
+import model.IPicture;
+import model.ImageProcessorModel;
+import model.PictureStorageModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class is responsible for testing the convolve command class, which filters an image with
+ * a kernel given by the user.
+ */
+public class ConvolveTests {
+  private IPicture squareImage;
+  private Command convolveCommand;
+  private ImageProcessorModel model;
+
+  @Before
+  public void initData() {
+    squareImage = ImageUtil.readPPM("res/square.ppm");
+    model = new PictureStorageModel();
+    model.addPicture(squareImage, "square");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveModelNull() {
+    convolveCommand = new ConvolveImage(null, "0,0,0,0,1,0,0,0,0", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveKernelNull() {
+    convolveCommand = new ConvolveImage(model, null, squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolvePictureNull() {
+    convolveCommand = new ConvolveImage(model, "0,0,0,0,1,0,0,0,0", null, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveReturnNameNull() {
+    convolveCommand = new ConvolveImage(model, "0,0,0,0,1,0,0,0,0", squareImage, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveKernelNotSquare() {
+    convolveCommand = new ConvolveImage(model, "0,1,0", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveKernelEvenWidth() {
+    convolveCommand = new ConvolveImage(model, "0.25,0.25,0.25,0.25", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvolveKernelNotNumbers() {
+    convolveCommand = new ConvolveImage(model, "0,0,0,0,one,0,0,0,0", squareImage, "square2");
+  }
+
+  @Test
+  public void testExecuteIdentity() {
+    convolveCommand = new ConvolveImage(model, "0,0,0,0,1,0,0,0,0", squareImage, "square2");
+    convolveCommand.execute();
+
+    IPicture convolved = model.getPicture("square2");
+    assertEquals(true, convolved.equals(squareImage));
+  }
+
+  @Test
+  public void testExecuteMatchesFilter() {
+    convolveCommand = new ConvolveImage(model, "0.0625,0.125,0.0625,0.125,0.25,0.125,"
+            + "0.0625,0.125,0.0625", squareImage, "square-blur");
+    convolveCommand.execute();
+
+    IPicture blurred = squareImage.clone();
+    blurred.filter(Arrays.asList(.0625, .125, .0625, .125, .25, .125, .0625, .125, .0625), 1);
+    assertEquals(true, model.getPicture("square-blur").equals(blurred));
+  }
+
+  @Test
+  public void testExecuteLargeKernel() {
+    // A 31x31 kernel that only keeps the center pixel leaves the image as it was
+    double[] weights = new double[31 * 31];
+    weights[weights.length / 2] = 1;
+    StringBuilder kernel = new StringBuilder();
+    for (double weight : weights) {
+      kernel.append(weight).append(",");
+    }
+    convolveCommand = new ConvolveImage(model, kernel.toString(), squareImage, "square2");
+    convolveCommand.execute();
+
+    assertEquals(true, model.getPicture("square2").equals(squareImage));
+  }
+
+  @Test
+  public void testOutputMessage() {
+    convolveCommand = new ConvolveImage(model, "0,0,0,0,1,0,0,0,0", squareImage, "square2");
+    String output = convolveCommand.outputMessage();
+
+    assertEquals("Convolved picture with a 3x3 kernel and saved as square2\n", output);
+  }
+
+  @Test
+  public void testRankOneKernelDetected() {
+    double[][] kernels = {
+        {.0625, .125, .0625, .125, .25, .125, .0625, .125, .0625},
+        // A Sobel kernel, a column of 1 2 1 times a row of -1 0 1
+        {-1, 0, 1, -2, 0, 2, -1, 0, 1},
+        // Only the middle row has weights, so the largest weight is negative
+        {0, 0, 0, 1, -2, 1, 0, 0, 0},
+        {0, 0, 0, 0, 1, 0, 0, 0, 0},
+        new double[9]};
+    for (double[] weights : kernels) {
+      Convolution kernel = Convolution.of(weights, 1);
+      assertEquals(true, kernel.isSeparable());
+      // The two passes must give back exactly the weights that were asked for
+      assertEquals(true, Arrays.equals(weights, kernel.getWeights()));
+    }
+    double[] binomial = {1 / 16.0, 4 / 16.0, 6 / 16.0, 4 / 16.0, 1 / 16.0};
+    double[] row = {0.5, 0, -1, 0, 0.5};
+    assertEquals(true, Convolution.of(outer(binomial, row), 2).isSeparable());
+  }
+
+  @Test
+  public void testNonSeparableKernelRejected() {
+    double[][] kernels = {
+        {0, 1, 0, 1, 1, 1, 0, 1, 0},
+        // The blur kernel with one weight slightly off
+        {.0625, .125, .0625, .125, .25, .125, .0625, .125, .0626},
+        {1, 0, 0, 0, 1, 0, 0, 0, 1}};
+    for (double[] weights : kernels) {
+      assertEquals(false, Convolution.of(weights, 1).isSeparable());
+    }
+    assertEquals(false, Convolution.fromList(Arrays.asList(
+            -.125, -.125, -.125, -.125, -.125,
+            -.125, .25, .25, .25, -.125,
+            -.125, .25, 1.0, .25, -.125,
+            -.125, .25, .25, .25, -.125,
+            -.125, -.125, -.125, -.125, -.125), 2).isSeparable());
+  }
+
+  @Test
+  public void testSeparableMatchesDirect() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    // Weights that are sums of powers of two add up exactly in any order
+    double[] binomial = {1 / 16.0, 4 / 16.0, 6 / 16.0, 4 / 16.0, 1 / 16.0};
+    double[] edges = {-0.5, 0, 1, 0, 0.5};
+    assertFiltersLikeDirect(dog, outer(binomial, edges), 2, 0);
+    assertFiltersLikeDirect(dog, outer(new double[] {1, 2, 1}, new double[] {-1, 0, 1}), 1, 0);
+    // Other weights round differently in two passes, by at most one
+    assertFiltersLikeDirect(dog, outer(new double[] {0.25, 0.5, 0.25}, new double[] {0.2, 0.5,
+        0.3}), 1, 1);
+  }
+
+  /**
+   * Builds the weights of the kernel that is a column of weights times a row of weights.
+   *
+   * @param column The vertical weights
+   * @param row    The horizontal weights
+   * @return the weights of the kernel, row by row
+   */
+  private static double[] outer(double[] column, double[] row) {
+    double[] weights = new double[column.length * row.length];
+    for (int i = 0; i < column.length; i++) {
+      for (int j = 0; j < row.length; j++) {
+        weights[i * row.length + j] = column[i] * row[j];
+      }
+    }
+    return weights;
+  }
+
+  /**
+   * Filters a picture with a separable kernel and checks every pixel against the kernel applied
+   * directly, one weight at a time, leaving out the pixels outside the picture.
+   *
+   * @param picture   The picture to filter, left as it is
+   * @param weights   The weights of the kernel, row by row
+   * @param radius    How far the kernel reaches from its center
+   * @param tolerance The most a color may differ from the direct result
+   */
+  private static void assertFiltersLikeDirect(IPicture picture, double[] weights, int radius,
+                                              int tolerance) {
+    Convolution kernel = Convolution.of(weights, radius);
+    assertEquals(true, kernel.isSeparable());
+    IPicture filtered = picture.clone();
+    filtered.filter(kernel);
+    int height = picture.getHeight();
+    int width = picture.getWidth();
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int argb = filtered.getARGB(row, col);
+        for (int shift = 0; shift <= 16; shift += 8) {
+          double total = 0;
+          int count = 0;
+          for (int i = row - radius; i <= row + radius; i++) {
+            for (int j = col - radius; j <= col + radius; j++) {
+              if ((i >= 0) && (j >= 0) && (i < height) && (j < width)) {
+                total += weights[count] * ((picture.getARGB(i, j) >> shift) & 0xFF);
+              }
+              count++;
+            }
+          }
+          int direct = Math.max(0, Math.min(255, (int) total));
+          assertEquals(direct, (argb >> shift) & 0xFF, tolerance);
+        }
+      }
+    }
+  }
+}
@@ -1,11 +1,16 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import commands.Command;
 import commands.FilterImage;
 import controllers.ImageUtil;
 import model.IPicture;
 import model.AllPicture;
+import model.FixedPoint;
+import model.HeapRaster;
 import model.ImageProcessorModel;
 import model.PictureStorageModel;
 
@@ -16,6 +21,17 @@ import static org.junit.Assert.assertEquals;
  * such as blurring or sharpening.
  */
 public class FilterTests {
+  private static final List<Double> BLUR = Arrays.asList(
+          .0625, .125, .0625,
+          .125, .25, .125,
+          .0625, .125, .0625);
+  private static final List<Double> SHARPEN = Arrays.asList(
+          -.125, -.125, -.125, -.125, -.125,
+          -.125, .25, .25, .25, -.125,
+          -.125, .25, 1.0, .25, -.125,
+          -.125, .25, .25, .25, -.125,
+          -.125, -.125, -.125, -.125, -.125);
+
   private IPicture squareImage;
   private Command filterCommand;
   private ImageProcessorModel model;
@@ -77,6 +93,23 @@ public class FilterTests {
     assertEquals(true, valueSquare.equals(correctImage));
   }
 
+  @Test
+  public void testExecuteSharpenFixedPoint() {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    model.addPicture(dog, "dog");
+    filterCommand = new FilterImage(model, dog, "dog-sharp", "sharpen");
+    filterCommand.execute();
+    FixedPoint.setEnabled(true);
+    try {
+      filterCommand = new FilterImage(model, dog, "dog-sharp-fixed", "sharpen");
+      filterCommand.execute();
+      // Fixed point can only be off by one from the doubles
+      assertWithinOne(model.getPicture("dog-sharp"), model.getPicture("dog-sharp-fixed"));
+    } finally {
+      FixedPoint.setEnabled(false);
+    }
+  }
+
   @Test
   public void testOutputMessage() {
     filterCommand = new FilterImage(model, squareImage,"square-blur", "blur");
@@ -88,4 +121,115 @@ public class FilterTests {
     output = filterCommand.outputMessage();
     assertEquals("Filtered picture and saved as square-sharpen\n", output);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testBlurEdgesMatchBaseline() {
+    assertEdgesMatchBaseline(ImageUtil.readAll("res/dog_half.jpg"), BLUR, 1);
+  }
+
+  @Test
+  public void testSharpenEdgesMatchBaseline() {
+    assertEdgesMatchBaseline(ImageUtil.readAll("res/dog_half.jpg"), SHARPEN, 2);
+  }
+
+  @Test
+  public void testFilterSmallerThanKernel() {
+    // Every pixel of these pictures is near an edge, and the kernel reaches past both sides
+    assertEdgesMatchBaseline(squareImage, SHARPEN, 2);
+    assertEdgesMatchBaseline(squareImage, BLUR, 1);
+    IPicture thin = new AllPicture(4, 1, 255, new HeapRaster(4, 1, new int[] {
+        0xFF102030, 0xFFFFFFFF, 0xFF000000, 0xFF80C040}));
+    assertEdgesMatchBaseline(thin, SHARPEN, 2);
+    assertEdgesMatchBaseline(thin, BLUR, 1);
+    IPicture tall = new AllPicture(1, 3, 255, new HeapRaster(1, 3, new int[] {
+        0xFFF0E0D0, 0xFF0A0B0C, 0xFF7F7F7F}));
+    assertEdgesMatchBaseline(tall, SHARPEN, 2);
+    assertEdgesMatchBaseline(tall, BLUR, 1);
+  }
+
+  /**
+   * Checks that every color of two pictures of the same size is at most one apart, and that the
+   * alpha values are the same.
+   *
+   * @param expected The picture computed with doubles
+   * @param actual   The picture computed with fixed point math
+   */
+  private static void assertWithinOne(IPicture expected, IPicture actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        int expectedArgb = expected.getARGB(i, j);
+        int actualArgb = actual.getARGB(i, j);
+        assertEquals(expectedArgb >>> 24, actualArgb >>> 24);
+        for (int shift = 0; shift <= 16; shift += 8) {
+          assertEquals((expectedArgb >> shift) & 0xFF, (actualArgb >> shift) & 0xFF, 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Filters a picture and checks every pixel within twice the reach of the kernel from a side
+   * against the baseline rule: each color is the sum of the weights times the original colors
+   * of the pixels under the kernel, skipping the pixels that fall outside the picture, truncated
+   * and clamped to 0-255.
+   *
+   * @param picture The picture to filter, left as it is
+   * @param kernel  The weights of the kernel, row by row
+   * @param reach   How far the kernel reaches from its center
+   */
+  private static void assertEdgesMatchBaseline(IPicture picture, List<Double> kernel,
+                                               int reach) {
+    int height = picture.getHeight();
+    int width = picture.getWidth();
+    int[][] original = new int[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        original[i][j] = picture.getARGB(i, j);
+      }
+    }
+    IPicture filtered = picture.clone();
+    filtered.filter(kernel, reach);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        boolean nearEdge = (i < 2 * reach) || (j < 2 * reach) || (i >= height - 2 * reach)
+                || (j >= width - 2 * reach);
+        if (nearEdge) {
+          assertEquals("pixel " + i + ", " + j, baselinePixel(original, i, j, kernel, reach),
+                  filtered.getARGB(i, j));
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes a filtered pixel the way filtering worked before the convolution engine, reading
+   * only original pixels.
+   *
+   * @param pixels The packed values of the original picture, row by row
+   * @param row    The row of the pixel
+   * @param col    The column of the pixel
+   * @param kernel The weights of the kernel, row by row
+   * @param reach  How far the kernel reaches from its center
+   * @return the packed filtered pixel
+   */
+  private static int baselinePixel(int[][] pixels, int row, int col, List<Double> kernel,
+                                   int reach) {
+    int result = pixels[row][col] & 0xFF000000;
+    for (int shift = 0; shift <= 16; shift += 8) {
+      double total = 0;
+      int count = 0;
+      for (int i = row - reach; i <= row + reach; i++) {
+        for (int j = col - reach; j <= col + reach; j++) {
+          if ((i >= 0) && (j >= 0) && (i < pixels.length) && (j < pixels[0].length)) {
+            total += kernel.get(count) * ((pixels[i][j] >> shift) & 0xFF);
+          }
+          count++;
+        }
+      }
+      result |= Math.max(0, Math.min(255, (int) total)) << shift;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,160 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.InputMismatchException;
+
+import commands.Command;
+import commands.GaussianBlurImage;
+import controllers.ImageUtil;
+import model.GaussianBlur;
+import model.IPicture;
+import model.Mask;
+import model.ImageProcessorModel;
+import model.PictureStorageModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class is responsible for testing the gaussian blur command class, which blurs an image by
+ * a strength given by the user.
+ */
+public class GaussianBlurTests {
+  private IPicture squareImage;
+  private Command blurCommand;
+  private ImageProcessorModel model;
+
+  @Before
+  public void initData() {
+    squareImage = ImageUtil.readPPM("res/square.ppm");
+    model = new PictureStorageModel();
+    model.addPicture(squareImage, "square");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurModelNull() {
+    blurCommand = new GaussianBlurImage(null, "2", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurStrengthNull() {
+    blurCommand = new GaussianBlurImage(model, null, squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurPictureNull() {
+    blurCommand = new GaussianBlurImage(model, "2", null, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurReturnNameNull() {
+    blurCommand = new GaussianBlurImage(model, "2", squareImage, null);
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testGaussianBlurStrengthNotNumber() {
+    blurCommand = new GaussianBlurImage(model, "two", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurStrengthZero() {
+    blurCommand = new GaussianBlurImage(model, "0", squareImage, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurStrengthNegative() {
+    blurCommand = new GaussianBlurImage(model, "-1.5", squareImage, "square2");
+  }
+
+  @Test
+  public void testExecuteSmallStrength() {
+    // A blur too small to reach the neighbouring pixels leaves the image as it was
+    blurCommand = new GaussianBlurImage(model, "0.3", squareImage, "square2");
+    blurCommand.execute();
+
+    assertEquals(true, model.getPicture("square2").equals(squareImage));
+  }
+
+  @Test
+  public void testExecuteBlursImage() {
+    blurCommand = new GaussianBlurImage(model, "2", squareImage, "square2");
+    blurCommand.execute();
+
+    IPicture blurred = model.getPicture("square2");
+    assertEquals(false, blurred.equals(squareImage));
+    assertEquals(squareImage.getWidth(), blurred.getWidth());
+    assertEquals(squareImage.getHeight(), blurred.getHeight());
+  }
+
+  @Test
+  public void testExecuteDoesNotChangeOriginal() {
+    IPicture original = squareImage.clone();
+    blurCommand = new GaussianBlurImage(model, "5", squareImage, "square2");
+    blurCommand.execute();
+
+    assertEquals(true, squareImage.equals(original));
+  }
+
+  @Test
+  public void testExecuteStrongBlurFlattensImage() {
+    // Once the blur spreads over the whole image every pixel becomes close to the average color
+    blurCommand = new GaussianBlurImage(model, "500", squareImage, "square2");
+    blurCommand.execute();
+
+    IPicture blurred = model.getPicture("square2");
+    int first = blurred.getARGB(0, 0);
+    int last = blurred.getARGB(blurred.getHeight() - 1, blurred.getWidth() - 1);
+    for (int shift = 0; shift <= 16; shift += 8) {
+      assertEquals((first >> shift) & 0xFF, (last >> shift) & 0xFF, 2);
+    }
+  }
+
+  @Test
+  public void testHugeBlurHasReach() {
+    // The widths of a blur this strong no longer fit in an int
+    assertEquals(true, GaussianBlur.of(1e9).getReach() > 0);
+    assertEquals(3L * GaussianBlur.MAX_RADIUS, GaussianBlur.of(Double.MAX_VALUE).getReach());
+    assertEquals(GaussianBlur.of(1e9).getReach(), GaussianBlur.of(1e300).getReach());
+  }
+
+  @Test
+  public void testHugeBlurAveragesWholeImage() {
+    // Every box covers the whole image, so each pass averages whole rows or columns
+    IPicture small = squareImage.clone();
+    small.gaussianBlur(1e5);
+    for (double sigma : new double[] {1e9, 1e300, Double.MAX_VALUE}) {
+      IPicture huge = squareImage.clone();
+      huge.gaussianBlur(sigma);
+      assertEquals(true, huge.equals(small));
+    }
+    int first = small.getARGB(0, 0);
+    for (int i = 0; i < small.getHeight(); i++) {
+      for (int j = 0; j < small.getWidth(); j++) {
+        assertEquals(first, small.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testMaskedHugeBlur() {
+    boolean[][] selected = new boolean[squareImage.getHeight()][squareImage.getWidth()];
+    selected[1][1] = true;
+    IPicture whole = squareImage.clone();
+    whole.gaussianBlur(1e9);
+    IPicture masked = squareImage.clone();
+    masked.applyMasked(Mask.of(selected), GaussianBlur.of(1e9).getReach(), picture -> {
+      picture.gaussianBlur(1e9);
+      return picture;
+    });
+
+    assertEquals(whole.getARGB(1, 1), masked.getARGB(1, 1));
+    assertEquals(squareImage.getARGB(0, 0), masked.getARGB(0, 0));
+  }
+
+  @Test
+  public void testOutputMessage() {
+    blurCommand = new GaussianBlurImage(model, "2", squareImage, "square2");
+    String output = blurCommand.outputMessage();
+
+    assertEquals("Blurred picture with a strength of 2.0 and saved as square2\n", output);
+  }
+}
@@ -1,9 +1,21 @@
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
 
 import controllers.ImageUtil;
+import controllers.MaskCache;
 import model.IPicture;
 import model.AllPicture;
+import model.Mask;
+import model.Parallelism;
 
 import static org.junit.Assert.assertEquals;
 
@@ -11,6 +23,8 @@ import static org.junit.Assert.assertEquals;
  * This class is responsible for testing the ImageUtil Methods.
  */
 public class ImageUtilTests {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   @Test
   public void testReadPPM() {
@@ -43,6 +57,61 @@ public class ImageUtilTests {
     assertEquals(ppmCorrectString2, squareString2);
   }
 
+  @Test
+  public void testReadPPMComments() throws IOException {
+    File file = folder.newFile("comments-test.ppm");
+    Files.writeString(file.toPath(), "P3 # plain\n"
+            + "\n"
+            + "# a line of comments 1 2 3\n"
+            + "2#width\n1 510\n"
+            + "0 510#no space before this\n  255   # half of each\n"
+            + "\t-4 1000 20\n");
+    AllPicture picture = ImageUtil.readPPM(file.getPath());
+    assertEquals(2, picture.getWidth());
+    assertEquals(255, picture.getMaxValue());
+    // Values over the max are clamped before they are scaled down
+    assertEquals(0xFF00FF7F, picture.getARGB(0, 0));
+    assertEquals(0xFF00FF0A, picture.getARGB(0, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadPPMMissingValues() throws IOException {
+    File file = folder.newFile("short-test.ppm");
+    Files.writeString(file.toPath(), "P3\n2 2\n255\n1 2 3 4 5 6\n");
+    ImageUtil.readPPM(file.getPath());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadPPMNotANumber() throws IOException {
+    File file = folder.newFile("word-test.ppm");
+    Files.writeString(file.toPath(), "P3\n1 1\n255\n1 2x 3\n");
+    ImageUtil.readPPM(file.getPath());
+  }
+
+  @Test
+  public void testReadPPMInChunks() throws IOException {
+    // Long enough to be split into chunks, with comments over the places it may be split
+    Random random = new Random(3);
+    StringBuilder text = new StringBuilder("P3\n700 700\n255\n");
+    for (int i = 0; i < 3 * 700 * 700; i++) {
+      text.append(random.nextInt(256));
+      int gap = random.nextInt(50);
+      text.append((gap == 0) ? " # a long comment " + "7 8 9 # ".repeat(30) + "\n"
+              : (gap < 5) ? "\n" : " ");
+    }
+    File file = folder.newFile("chunks-test.ppm");
+    Files.writeString(file.toPath(), text);
+    AllPicture sequential = ImageUtil.readPPM(file.getPath());
+    Parallelism.setLevel(4);
+    try {
+      AllPicture chunked = ImageUtil.readPPM(file.getPath());
+      assertEquals(sequential, chunked);
+      assertEquals(sequential, ImageUtil.readTiledPPM(file.getPath()));
+    } finally {
+      Parallelism.setLevel(1);
+    }
+  }
+
   @Test
   public void testReadPNG() {
     IPicture squareImage = ImageUtil.readAll("res/square.png");
@@ -60,6 +129,51 @@ public class ImageUtilTests {
     assertEquals(correctString, squareString);
   }
 
+  @Test
+  public void testReadPNGKeepsAlpha() throws IOException {
+    // One color all over, so saving as a JPG changes it very little
+    BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        // Opaque and fully see through on the left, half see through on the right
+        int alpha = (j >= 8) ? 0x80 : (i < 8) ? 0xFF : 0x00;
+        image.setRGB(j, i, (alpha << 24) | 0x3366CC);
+      }
+    }
+    File png = folder.newFile("alpha-test.png");
+    ImageIO.write(image, "png", png);
+
+    IPicture picture = ImageUtil.readAll(png.getPath());
+    assertEquals(0xFF3366CC, picture.getARGB(0, 0));
+    assertEquals(0x003366CC, picture.getARGB(15, 0));
+    assertEquals(0x803366CC, picture.getARGB(0, 15));
+    assertEquals(0x803366CC, picture.getARGB(15, 15));
+
+    // Saving as a PNG keeps every alpha value
+    File savedPng = folder.newFile("alpha-saved.png");
+    picture.save(savedPng.getPath());
+    IPicture reread = ImageUtil.readAll(savedPng.getPath());
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        assertEquals(picture.getARGB(i, j), reread.getARGB(i, j));
+      }
+    }
+
+    // A JPG has no alpha, so every pixel comes back opaque with about the same color
+    File savedJpg = folder.newFile("alpha-saved.jpg");
+    picture.save(savedJpg.getPath());
+    IPicture opaque = ImageUtil.readAll(savedJpg.getPath());
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        int argb = opaque.getARGB(i, j);
+        assertEquals(0xFF, argb >>> 24);
+        for (int shift = 0; shift <= 16; shift += 8) {
+          assertEquals((picture.getARGB(i, j) >> shift) & 0xFF, (argb >> shift) & 0xFF, 8);
+        }
+      }
+    }
+  }
+
   @Test
   public void testReadBMP() {
     IPicture squareImage = ImageUtil.readAll("res/square.bmp");
@@ -111,4 +225,73 @@ public class ImageUtilTests {
     assertEquals(true, squareImage.equals(newPNG));
     assertEquals(true, squareImage.equals(newBMP));
   }
+
+  /**
+   * Writes a mask image with the given number of white pixels at the start of its first row.
+   *
+   * @param filename The file to write
+   * @param white    The number of white pixels
+   * @throws IOException if the file cannot be written
+   */
+  private void writeMask(String filename, int white) throws IOException {
+    BufferedImage mask = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    for (int j = 0; j < white; j++) {
+      mask.setRGB(j, 0, 0xFFFFFF);
+    }
+    ImageIO.write(mask, "png", new File(filename));
+  }
+
+  @Test
+  public void testReadMaskCached() throws IOException {
+    String path = folder.newFile("cached-mask-test.png").getPath();
+    writeMask(path, 3);
+    Mask mask = ImageUtil.readMask(path);
+    assertEquals(3, mask.getArea());
+    // The same file is not decoded again
+    assertEquals(true, mask == ImageUtil.readMask(path));
+  }
+
+  @Test
+  public void testReadMaskFileChanged() throws IOException {
+    MaskCache cache = new MaskCache(MaskCache.DEFAULT_CACHE_BYTES);
+    File file = folder.newFile("changed-mask-test.png");
+    writeMask(file.getPath(), 2);
+    file.setLastModified(1000000000000L);
+    assertEquals(2, cache.get(file.getPath()).getArea());
+
+    writeMask(file.getPath(), 5);
+    file.setLastModified(1000000005000L);
+    assertEquals(5, cache.get(file.getPath()).getArea());
+  }
+
+  @Test
+  public void testMaskCacheEvictsLeastRecentlyUsed() throws IOException {
+    String first = folder.newFile("first-mask-test.png").getPath();
+    String second = folder.newFile("second-mask-test.png").getPath();
+    String third = folder.newFile("third-mask-test.png").getPath();
+    writeMask(first, 1);
+    writeMask(second, 2);
+    writeMask(third, 3);
+    // Room for two of the 8x8 masks with one span each
+    long size = ImageUtil.readMask(first).memorySize();
+    MaskCache cache = new MaskCache(2 * size);
+
+    Mask firstMask = cache.get(first);
+    Mask secondMask = cache.get(second);
+    // Using the first mask again makes the second one the least recently used
+    cache.get(first);
+    cache.get(third);
+    assertEquals(2 * size, cache.usedBytes());
+    assertEquals(true, firstMask == cache.get(first));
+    assertEquals(false, secondMask == cache.get(second));
+  }
+
+  @Test
+  public void testMaskCacheTooSmall() throws IOException {
+    String path = folder.newFile("first-mask-test.png").getPath();
+    writeMask(path, 1);
+    MaskCache cache = new MaskCache(0);
+    assertEquals(1, cache.get(path).getArea());
+    assertEquals(0, cache.usedBytes());
+  }
 }
@@ -1,55 +1,187 @@
-/*
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+import javax.imageio.ImageIO;
 
 import commands.Command;
 import commands.MaskImage;
-import commands.SaveImage;
 import controllers.ImageUtil;
 import model.IPicture;
 import model.ImageProcessorModel;
+import model.Mask;
 import model.PictureStorageModel;
 
 import static org.junit.Assert.assertEquals;
 
+/**
+ * This class is responsible for testing the mask command, which applies another operation to
+ * only the white areas of a mask image.
+ */
 public class MaskImageTests {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private String squareMask;
   private IPicture squareImage;
-  private IPicture dogImage;
   private Command maskImage;
   private ImageProcessorModel model;
 
   @Before
-  public void initData() {
+  public void initData() throws IOException {
     squareImage = ImageUtil.readPPM("res/square.ppm");
-    dogImage = ImageUtil.readAll("res/dog.jpg");
     model = new PictureStorageModel();
+    model.addPicture(squareImage, "square");
+
+    // White at the top left pixel and the right two pixels of the middle row
+    BufferedImage mask = new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB);
+    mask.setRGB(0, 0, 0xFFFFFF);
+    mask.setRGB(1, 1, 0xFFFFFF);
+    mask.setRGB(2, 1, 0xFFFFFF);
+    squareMask = folder.newFile("square-mask-test.png").getPath();
+    ImageIO.write(mask, "png", new File(squareMask));
+  }
+
+  /**
+   * Checks that the selected pixels of a masked picture match the picture edited as a whole, and
+   * that every other pixel matches the original picture.
+   *
+   * @param mask     The mask the edit was applied through
+   * @param original The picture before the edit
+   * @param whole    The whole picture edited
+   * @param masked   The picture edited through the mask
+   */
+  private void assertMasked(Mask mask, IPicture original, IPicture whole, IPicture masked) {
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        IPicture expected = mask.contains(i, j) ? whole : original;
+        assertEquals(expected.getARGB(i, j), masked.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskModelNull() {
+    maskImage = new MaskImage(null, squareImage, squareMask, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskFileNull() {
+    maskImage = new MaskImage(model, squareImage, null, "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskUnknownOperation() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "horizontal-flip", null,
+            "square2");
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testMaskBadValue() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "brighten", "lots", "square2");
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testMaskBadStrength() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "gaussian-blur", "lots",
+            "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskStrengthNull() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "gaussian-blur", null,
+            "square2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskStrengthZero() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "gaussian-blur", "0", "square2");
   }
 
   @Test
-  public void testExecuteScaledImage() {
-    model = new PictureStorageModel();
-    model.addPicture(dogImage, "dog");
-    maskImage = new MaskImage(model,  dogImage,
-            "res/dog-mask.jpg", "masked-dog");
+  public void testExecuteHugeGaussianBlur() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "gaussian-blur", "1e9",
+            "square2");
     maskImage.execute();
 
-    Command saveImage = new SaveImage(model.getPicture("masked-dog"),
-            "testMask.png");
-    saveImage.execute();
-    assertEquals(true, true);
-
-    /**
-     * // Load correct image (Manipulated in Gimp)
-     *     AllPicture brightenImageCorrect =
-     *             ImageUtil.readPPM("res/square-brighter-by-50.ppm");
-     *     // Check that the new picture was added to the Model and get this Picture
-     *     IPicture newImage = model.getPicture("square-brightened");
-     *     // Check that the new picture is the same as the correct one
-     *     assertEquals(true, brightenImageCorrect.equals(newImage));
-     *
-     *     load res/dog.jpg dog downscale .5 .5 dog dog-small save dog-small testSmall.jpg q
-     */
-
-  //}
-//}
+    IPicture whole = squareImage.clone();
+    whole.gaussianBlur(1e9);
+    assertMasked(ImageUtil.readAll(squareMask).mask(), squareImage, whole,
+            model.getPicture("square2"));
+  }
+
+  @Test
+  public void testExecuteDefaultBrightens() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "square2");
+    maskImage.execute();
+
+    IPicture whole = squareImage.clone();
+    whole.brightenImage(50);
+    assertMasked(ImageUtil.readAll(squareMask).mask(), squareImage, whole,
+            model.getPicture("square2"));
+  }
+
+  @Test
+  public void testExecuteGreyscale() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "luma-component", null,
+            "square2");
+    maskImage.execute();
+
+    IPicture whole = squareImage.clone();
+    whole.greyScale("luma");
+    assertMasked(ImageUtil.readAll(squareMask).mask(), squareImage, whole,
+            model.getPicture("square2"));
+  }
+
+  @Test
+  public void testExecuteSharpenSeesWholeImage() throws IOException {
+    IPicture dog = ImageUtil.readAll("res/dog_half.jpg");
+    // A small square away from the edges and a strip along the top edge
+    BufferedImage mask = new BufferedImage(dog.getWidth(), dog.getHeight(),
+            BufferedImage.TYPE_INT_RGB);
+    for (int i = 40; i < 60; i++) {
+      for (int j = 70; j < 95; j++) {
+        mask.setRGB(j, i, 0xFFFFFF);
+      }
+    }
+    for (int j = 0; j < 30; j++) {
+      mask.setRGB(j, 0, 0xFFFFFF);
+    }
+    String dogMask = folder.newFile("dog-mask-test.png").getPath();
+    ImageIO.write(mask, "png", new File(dogMask));
+    model.addPicture(dog, "dog");
+
+    maskImage = new MaskImage(model, dog, dogMask, "sharpen", null, "dog2");
+    maskImage.execute();
+    Command blur = new MaskImage(model, dog, dogMask, "gaussian-blur", "2.5", "dog3");
+    blur.execute();
 
+    IPicture sharpened = dog.clone();
+    sharpened.filter(Arrays.asList(
+            -.125, -.125, -.125, -.125, -.125,
+            -.125, .25, .25, .25, -.125,
+            -.125, .25, 1.0, .25, -.125,
+            -.125, .25, .25, .25, -.125,
+            -.125, -.125, -.125, -.125, -.125), 2);
+    IPicture blurred = dog.clone();
+    blurred.gaussianBlur(2.5);
+    Mask selected = ImageUtil.readAll(dogMask).mask();
+    assertMasked(selected, dog, sharpened, model.getPicture("dog2"));
+    assertMasked(selected, dog, blurred, model.getPicture("dog3"));
+  }
+
+  @Test
+  public void testOutputMessage() {
+    maskImage = new MaskImage(model, squareImage, squareMask, "sepia", null, "square2");
+
+    assertEquals("Applied sepia to valid regions in mask and saved as square2\n",
+            maskImage.outputMessage());
+  }
+}
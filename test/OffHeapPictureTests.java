@@ -0,0 +1,182 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import controllers.ImageUtil;
+import model.AllPicture;
+import model.DirectRaster;
+import model.HeapRaster;
+import model.IPicture;
+import model.OffHeapPicture;
+import model.PixelRaster;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the Pictures and rasters that keep their pixels outside of the Java heap.
+ */
+public class OffHeapPictureTests {
+  private static final List<Double> BLUR = Arrays.asList(
+          .0625, .125, .0625,
+          .125, .25, .125,
+          .0625, .125, .0625);
+
+  private AllPicture squareImage;
+
+  @Before
+  public void initData() {
+    squareImage = ImageUtil.readPPM("res/square.ppm");
+  }
+
+  /**
+   * Checks that two rasters are the same size and hold the same pixels.
+   *
+   * @param expected The raster with the expected pixels
+   * @param actual   The raster to check
+   */
+  private static void assertSameRaster(PixelRaster expected, PixelRaster actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.get(i, j), actual.get(i, j));
+      }
+    }
+  }
+
+  /**
+   * Makes a heap raster where every pixel is different, with some of them see through.
+   *
+   * @param width  The width of the raster
+   * @param height The height of the raster
+   * @return the raster
+   */
+  private static HeapRaster gradient(int width, int height) {
+    HeapRaster raster = new HeapRaster(width, height);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        raster.set(i, j, PixelRaster.pack(i * 7 % 256, j * 13 % 256, (i + j) % 256,
+                (i % 3 == 0) ? 128 : 255));
+      }
+    }
+    return raster;
+  }
+
+  @Test
+  public void testCopyOfKeepsPixels() {
+    HeapRaster heap = gradient(37, 21);
+    DirectRaster direct = DirectRaster.copyOf(heap);
+    assertSameRaster(heap, direct);
+    assertSameRaster(heap, DirectRaster.copyOf(direct));
+
+    int[] row = new int[37];
+    direct.getRow(20, row);
+    assertEquals(heap.get(20, 36), row[36]);
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    DirectRaster direct = DirectRaster.copyOf(gradient(5, 4));
+    DirectRaster copy = direct.copy();
+    assertSameRaster(direct, copy);
+
+    copy.set(2, 3, 0xFF000000);
+    int[] row = {1, 2, 3, 4, 5};
+    copy.setRow(0, row);
+    assertEquals(false, direct.get(2, 3) == 0xFF000000);
+    assertEquals(false, direct.get(0, 4) == 5);
+    assertEquals(5, copy.get(0, 4));
+  }
+
+  @Test
+  public void testCreateIsEmpty() {
+    DirectRaster direct = DirectRaster.copyOf(gradient(5, 4));
+    DirectRaster created = direct.create(3, 7);
+    assertEquals(3, created.getWidth());
+    assertEquals(7, created.getHeight());
+    assertEquals(0, created.get(6, 2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadAfterRelease() {
+    DirectRaster direct = DirectRaster.copyOf(gradient(5, 4));
+    direct.release();
+    assertEquals(true, direct.isReleased());
+    direct.get(0, 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWriteAfterRelease() {
+    DirectRaster direct = DirectRaster.copyOf(gradient(5, 4));
+    direct.release();
+    direct.setRow(0, new int[5]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCopyAfterRelease() {
+    DirectRaster direct = DirectRaster.copyOf(gradient(5, 4));
+    direct.release();
+    // Releasing again does nothing
+    direct.release();
+    direct.copy();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPictureAfterRelease() {
+    OffHeapPicture picture = OffHeapPicture.copyOf(squareImage);
+    picture.release();
+    picture.getARGB(0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyOfNull() {
+    OffHeapPicture.copyOf(null);
+  }
+
+  @Test
+  public void testCopyOfPicture() {
+    OffHeapPicture picture = OffHeapPicture.copyOf(squareImage);
+    assertEquals(true, squareImage.equals(picture));
+    assertEquals(squareImage.toString(), picture.toString());
+
+    // Queued edits are carried over to the copy
+    squareImage.brightenImage(10);
+    OffHeapPicture brightened = OffHeapPicture.copyOf(squareImage);
+    assertEquals(true, squareImage.equals(brightened));
+  }
+
+  @Test
+  public void testCloneIsIndependent() {
+    OffHeapPicture picture = OffHeapPicture.copyOf(squareImage);
+    OffHeapPicture copy = picture.clone();
+    copy.setARGB(1, 1, 0xFF000000);
+    assertEquals(squareImage.getARGB(1, 1), picture.getARGB(1, 1));
+    copy.release();
+    // Releasing the clone leaves the original usable
+    assertEquals(true, squareImage.equals(picture));
+  }
+
+  @Test
+  public void testEditsMatchHeap() {
+    IPicture heap = new AllPicture(37, 21, 255, gradient(37, 21));
+    IPicture direct = OffHeapPicture.copyOf(heap);
+    heap.brightenImage(40);
+    direct.brightenImage(40);
+    assertEquals(true, heap.equals(direct));
+
+    heap.filter(BLUR, 1);
+    direct.filter(BLUR, 1);
+    assertEquals(true, heap.equals(direct));
+
+    heap.greyScale("luma");
+    heap.horizontalFlip();
+    heap.gaussianBlur(2);
+    direct.greyScale("luma");
+    direct.horizontalFlip();
+    direct.gaussianBlur(2);
+    assertEquals(true, heap.equals(direct));
+    assertEquals(true, Arrays.equals(heap.colorValues("red"), direct.colorValues("red")));
+  }
+}
@@ -4,6 +4,7 @@ import org.junit.Test;
 import controllers.ImageUtil;
 import model.AllPicture;
 import model.IPicture;
+import model.OffHeapPicture;
 import model.PictureStorageModel;
 import static org.junit.Assert.assertEquals;
 
@@ -99,4 +100,32 @@ public class PictureStorageModelTests {
     assertEquals(2, redResults[102]);
 
   }
+
+  @Test
+  public void testOffHeapKeepsOwnCopy() {
+    PictureStorageModel offHeap = new PictureStorageModel(true);
+    AllPicture original = squareImage.clone();
+    offHeap.addPicture(squareImage, "square1");
+    IPicture stored = offHeap.getPicture("square1");
+    assertEquals(true, stored instanceof OffHeapPicture);
+    assertEquals(original, stored);
+
+    // Changing the caller's picture leaves the stored one as it was, and the other way around
+    squareImage.setARGB(0, 0, 0xFF000000);
+    squareImage.brightenImage(20);
+    assertEquals(original, stored);
+    stored.setARGB(2, 2, 0xFFFFFFFF);
+    assertEquals(false, squareImage.getARGB(2, 2) == 0xFFFFFFFF);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOffHeapFreesReplaced() {
+    PictureStorageModel offHeap = new PictureStorageModel(true);
+    offHeap.addPicture(squareImage, "square1");
+    IPicture replaced = offHeap.getPicture("square1");
+    offHeap.addPicture(squareImage2, "square1");
+    assertEquals(squareImage2, offHeap.getPicture("square1"));
+    // The memory of the replaced picture has been freed
+    replaced.getARGB(0, 0);
+  }
 }
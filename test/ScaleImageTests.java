@@ -8,6 +8,7 @@ import controllers.ImageUtil;
 import model.IPicture;
 import model.ImageProcessorModel;
 import model.PictureStorageModel;
+import model.ResampleFilter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -68,6 +69,34 @@ public class ScaleImageTests {
             null);
   }
 
+  @Test
+  public void testExecuteResize() {
+    model.addPicture(dogImage, "dog");
+    scaleCommand = new ScaleImage(model, "lanczos", "1.5", ".25", dogImage, "wide-dog");
+    scaleCommand.execute();
+
+    IPicture expected = dogImage.resize((int) (dogImage.getWidth() * 1.5),
+            (int) (dogImage.getHeight() * .25), ResampleFilter.LANCZOS);
+    assertTrue(expected.equals(model.getPicture("wide-dog")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeUnknownFilter() {
+    scaleCommand = new ScaleImage(model, "cubic", ".5", ".5", dogImage, "small-dog");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeTooSmall() {
+    scaleCommand = new ScaleImage(model, "box", "0", ".5", dogImage, "small-dog");
+  }
+
+  @Test
+  public void testResizeOutputMessage() {
+    scaleCommand = new ScaleImage(model, "box", ".5", "2", dogImage, "small-dog");
+    assertEquals("Scaled image by w: 0.5 height: 2.0 using box and saved as small-dog\n",
+            scaleCommand.outputMessage());
+  }
+
   @Test
   public void testOutPutMessage() {
     scaleCommand = new ScaleImage(model, ".5", ".5", dogImage,